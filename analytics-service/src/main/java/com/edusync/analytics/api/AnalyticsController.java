@@ -1,136 +1,398 @@
 package com.edusync.analytics.api;
 
+import com.edusync.analytics.engagement.EngagementCounters;
+import com.edusync.analytics.engagement.HyperLogLog;
+import com.edusync.analytics.forecast.GradeSimulator;
+import com.edusync.analytics.funnels.FunnelIndex;
+import com.edusync.analytics.grades.GradeDistributions;
+import com.edusync.analytics.planning.StudyScheduler;
+import com.edusync.analytics.risk.LearnerSignalReader;
+import com.edusync.analytics.risk.RiskRanking;
+import com.edusync.analytics.risk.RiskScorer;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/analytics")
 public class AnalyticsController {
 
+    /** Shared secret grading-service presents when it writes grade distributions. */
+    static final String SERVICE_TOKEN_HEADER = "X-Service-Token";
+    private static final int STUDY_PLAN_CHUNK_SIZE = 256;
+    private static final int MAX_AT_RISK_K = 10_000;
+    private static final int DEFAULT_FORECAST_TRIALS = 10_000;
+    private static final long DEFAULT_FORECAST_SEED = 42L;
+
+    private final GradeDistributions gradeDistributions;
+    private final EngagementCounters engagementCounters;
+    private final FunnelIndex funnelIndex;
+    private final ExecutorService studyPlanPool;
+    private final ForkJoinPool computePool;
+    private final ObjectMapper objectMapper;
+    private final byte[] ingestToken;
+
+    public AnalyticsController(GradeDistributions gradeDistributions, EngagementCounters engagementCounters,
+                               FunnelIndex funnelIndex,
+                               @Value("${analytics.study-plan.parallelism:0}") int parallelism,
+                               @Value("${analytics.compute.parallelism:0}") int computeParallelism, ObjectMapper objectMapper,
+                               @Value("${analytics.ingest.token:}") String ingestToken) {
+        this.gradeDistributions = gradeDistributions;
+        this.engagementCounters = engagementCounters;
+        this.funnelIndex = funnelIndex;
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.studyPlanPool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "study-plan-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.computePool = new ForkJoinPool(computeParallelism > 0 ? computeParallelism : Runtime.getRuntime().availableProcessors());
+        this.objectMapper = objectMapper;
+        this.ingestToken = ingestToken.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        studyPlanPool.shutdownNow();
+        computePool.shutdownNow();
+    }
+
     @GetMapping("/health")
     public Map<String, Object> health() {
         return Map.of("status", "UP", "timestamp", Instant.now().toString());
     }
 
+    public record ActivityEvent(String courseId, String userId, String type, String occurredAt) {}
+    public record ActivityBatchRequest(List<ActivityEvent> events) {}
+
+    /**
+     * Batched activity ingestion: each event marks {@code userId} active in {@code courseId} on its
+     * UTC day and, when it has a {@code type} (VIEW, ENROLL, COMPLETE, ...), as reaching that funnel stage.
+     * Service-only: every new courseId allocates a month of sketches that are kept for good.
+     */
+    @PostMapping(value = "/events", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> ingestEvents(@RequestHeader(value = SERVICE_TOKEN_HEADER, required = false) String token,
+                                          @RequestBody ActivityBatchRequest req) {
+        if (!serviceToken(token)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "UNAUTHENTICATED"));
+        }
+        List<ActivityEvent> events = req.events() == null ? List.of() : req.events();
+        long today = LocalDate.now(ZoneOffset.UTC).toEpochDay();
+        int accepted = 0;
+        int rejected = 0;
+        for (ActivityEvent event : events) {
+            if (ingest(event, today)) {
+                accepted++;
+            } else {
+                rejected++;
+            }
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("accepted", accepted, "rejected", rejected));
+    }
+
+    /** Streaming variant: one {@link ActivityEvent} JSON object per line. */
+    @PostMapping(value = "/events", consumes = "application/x-ndjson")
+    public ResponseEntity<?> ingestEventStream(@RequestHeader(value = SERVICE_TOKEN_HEADER, required = false) String token,
+                                               HttpServletRequest request) throws IOException {
+        if (!serviceToken(token)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "UNAUTHENTICATED"));
+        }
+        long today = LocalDate.now(ZoneOffset.UTC).toEpochDay();
+        int accepted = 0;
+        int rejected = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                ActivityEvent event;
+                try {
+                    event = objectMapper.readValue(line, ActivityEvent.class);
+                } catch (IOException e) {
+                    rejected++;
+                    continue;
+                }
+                if (ingest(event, today)) {
+                    accepted++;
+                } else {
+                    rejected++;
+                }
+            }
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("accepted", accepted, "rejected", rejected));
+    }
+
+    /**
+     * Distinct active users for the day ending {@code date} (default today, UTC) and the
+     * trailing 7 and 30 days, estimated from HyperLogLog sketches.
+     */
     @GetMapping("/engagement")
-    public Map<String, Object> engagement(@RequestParam String courseId) {
-        return Map.of(
-                "courseId", courseId,
-                "dau", 42,
-                "completionRate", 0.68
-        );
+    public ResponseEntity<?> engagement(@RequestParam String courseId, @RequestParam(required = false) String date) {
+        LocalDate day;
+        try {
+            day = date == null ? LocalDate.now(ZoneOffset.UTC) : LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "INVALID_DATE"));
+        }
+        EngagementCounters.ActiveUsers active = engagementCounters.activeUsers(courseId, day.toEpochDay());
+        Map<String, Object> response = new HashMap<>();
+        response.put("courseId", courseId);
+        response.put("date", day.toString());
+        response.put("dau", active.dau());
+        response.put("wau", active.wau());
+        response.put("mau", active.mau());
+        response.put("standardError", Math.round(engagementCounters.standardError() * 10_000.0) / 10_000.0);
+        // Share of enrolled users who also completed, all-time.
+        response.put("completionRate", funnelIndex.funnel(courseId, List.of("enroll", "complete"), null, null).get(1).conversion());
+        return ResponseEntity.ok(response);
+    }
+
+    public record GradeEventsRequest(List<GradeDistributions.GradeChange> events) {}
+    public record GradeTotalsRequest(String courseId, int[] totals) {}
+
+    /**
+     * Grade writes forwarded by grading-service: each event moves one submission's total.
+     * Callers must present the shared service token.
+     */
+    @PostMapping("/grade-events")
+    public ResponseEntity<?> gradeEvents(@RequestHeader(value = SERVICE_TOKEN_HEADER, required = false) String token,
+                                         @RequestBody GradeEventsRequest req) {
+        if (!serviceToken(token)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "UNAUTHENTICATED"));
+        }
+        List<GradeDistributions.GradeChange> events = req.events() == null ? List.of() : req.events();
+        int accepted = 0;
+        int ignored = 0;
+        for (GradeDistributions.GradeChange change : events) {
+            if (change != null && gradeDistributions.apply(change)) {
+                accepted++;
+            } else {
+                ignored++;
+            }
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("accepted", accepted, "ignored", ignored));
+    }
+
+    /**
+     * Replaces an assessment's histogram with one counted from all of its current totals, sent
+     * by grading-service when some of its incremental changes could not be delivered.
+     */
+    @PutMapping("/grade-distributions/{assessmentId}")
+    public ResponseEntity<?> replaceGradeDistribution(@RequestHeader(value = SERVICE_TOKEN_HEADER, required = false) String token,
+                                                      @PathVariable String assessmentId,
+                                                      @RequestBody GradeTotalsRequest req) {
+        if (!serviceToken(token)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "UNAUTHENTICATED"));
+        }
+        if (req.totals() == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "TOTALS_REQUIRED"));
+        }
+        gradeDistributions.replace(assessmentId, req.courseId(), req.totals());
+        return ResponseEntity.ok(Map.of("assessmentId", assessmentId, "count", req.totals().length));
     }
 
+    /**
+     * Letter-grade bins, mean and percentiles for a course (all of its assessments) or a single
+     * assessment, read from the incrementally maintained histograms.
+     */
     @GetMapping("/grade-distribution")
-    public Map<String, Object> gradeDistribution(@RequestParam String courseId) {
-        return Map.of(
-                "courseId", courseId,
-                "bins", List.of(
-                        Map.of("grade", "A", "count", 5),
-                        Map.of("grade", "B", "count", 8),
-                        Map.of("grade", "C", "count", 3)
-                )
-        );
+    public ResponseEntity<?> gradeDistribution(@RequestParam(required = false) String courseId,
+                                               @RequestParam(required = false) String assessmentId,
+                                               @RequestParam(defaultValue = "0.25,0.5,0.75,0.9") String quantiles) {
+        if ((courseId == null) == (assessmentId == null)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "COURSE_OR_ASSESSMENT_REQUIRED"));
+        }
+        double[] parsed = parseQuantiles(quantiles);
+        if (parsed == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "INVALID_QUANTILES"));
+        }
+        GradeDistributions.Distribution distribution = courseId != null
+                ? gradeDistributions.forCourse(courseId, parsed)
+                : gradeDistributions.forAssessment(assessmentId, parsed);
+        Map<String, Object> response = new HashMap<>();
+        if (courseId != null) {
+            response.put("courseId", courseId);
+        } else {
+            response.put("assessmentId", assessmentId);
+        }
+        response.put("count", distribution.count());
+        response.put("mean", distribution.mean());
+        response.put("bins", distribution.bins());
+        response.put("percentiles", distribution.percentiles());
+        response.put("outOfRange", distribution.outOfRange());
+        return ResponseEntity.ok(response);
     }
 
+    /**
+     * Conversion through {@code stages} in order: each stage counts the users who reached it and
+     * every earlier stage, optionally only counting activity dated within [{@code from}, {@code to}].
+     */
     @GetMapping("/funnels")
-    public Map<String, Object> funnels(@RequestParam String courseId) {
-        return Map.of(
-                "courseId", courseId,
-                "stages", List.of(
-                        Map.of("stage", "view", "count", 100),
-                        Map.of("stage", "enroll", "count", 40),
-                        Map.of("stage", "complete", "count", 25)
-                )
-        );
+    public ResponseEntity<?> funnels(@RequestParam String courseId,
+                                     @RequestParam(defaultValue = "view,enroll,complete") String stages,
+                                     @RequestParam(required = false) String from,
+                                     @RequestParam(required = false) String to) {
+        List<String> stageNames = new ArrayList<>();
+        for (String part : stages.split(",")) {
+            String stage = FunnelIndex.stageName(part);
+            if (stage == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "INVALID_STAGES"));
+            }
+            stageNames.add(stage);
+        }
+        if (stageNames.size() > FunnelIndex.MAX_STAGES_PER_COURSE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "INVALID_STAGES"));
+        }
+        LocalDate fromDate;
+        LocalDate toDate;
+        try {
+            fromDate = from == null ? null : LocalDate.parse(from);
+            toDate = to == null ? null : LocalDate.parse(to);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "INVALID_DATE"));
+        }
+        if (fromDate != null && toDate != null && fromDate.isAfter(toDate)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "INVALID_DATE"));
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("courseId", courseId);
+        response.put("from", from);
+        response.put("to", to);
+        response.put("stages", funnelIndex.funnel(courseId, stageNames,
+                fromDate == null ? null : fromDate.toEpochDay(), toDate == null ? null : toDate.toEpochDay()));
+        return ResponseEntity.ok(response);
     }
 
     public record StudyPlanRequest(String learnerId, Integer weeklyHours, Integer horizonDays, List<StudyModule> modules) {}
     public record StudyModule(String moduleId, String title, Integer estimatedMinutes, Integer difficulty, String dueDate) {}
 
+    public record StudyPlanBatchRequest(List<StudyPlanRequest> plans) {}
+
     @PostMapping("/study-plan")
     public Map<String, Object> studyPlan(@RequestBody StudyPlanRequest req) {
+        return buildStudyPlan(req, LocalDate.now(ZoneOffset.UTC), new HashMap<>());
+    }
+
+    /**
+     * Plans for a whole cohort in one call. Requests are planned in chunks on the bounded
+     * study-plan pool, sharing the priority of modules that are identical across learners, and
+     * each chunk's plans are streamed back as NDJSON in request order, followed by a summary.
+     */
+    @PostMapping(value = "/study-plan/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = "application/x-ndjson")
+    public void studyPlanBatch(@RequestBody StudyPlanBatchRequest req, HttpServletResponse response) throws IOException {
+        StudyPlanBatch batch = startStudyPlanBatch(response);
+        int line = 0;
+        for (StudyPlanRequest plan : req.plans() == null ? List.<StudyPlanRequest>of() : req.plans()) {
+            batch.add(++line, plan);
+        }
+        batch.finish();
+    }
+
+    /** Streaming variant: one {@link StudyPlanRequest} JSON object per line. */
+    @PostMapping(value = "/study-plan/batch", consumes = "application/x-ndjson", produces = "application/x-ndjson")
+    public void studyPlanBatchStream(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        StudyPlanBatch batch = startStudyPlanBatch(response);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))) {
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                StudyPlanRequest plan;
+                try {
+                    plan = objectMapper.readValue(line, StudyPlanRequest.class);
+                } catch (IOException e) {
+                    plan = null;
+                }
+                batch.add(lineNumber, plan);
+            }
+        }
+        batch.finish();
+    }
+
+    private Map<String, Object> buildStudyPlan(StudyPlanRequest req, LocalDate start, Map<PriorityKey, WeightedModule> priorities) {
         int weeklyHours = req.weeklyHours() == null ? 8 : Math.max(1, req.weeklyHours());
         int horizonDays = req.horizonDays() == null ? 14 : Math.max(1, req.horizonDays());
         int dailyCapacityMinutes = Math.max(30, (weeklyHours * 60) / 7);
-        LocalDate start = LocalDate.now(ZoneOffset.UTC);
         LocalDate end = start.plusDays(horizonDays - 1L);
 
         List<StudyModule> modules = req.modules() == null ? List.of() : req.modules();
         List<WeightedModule> weighted = new ArrayList<>();
         for (StudyModule module : modules) {
-            int minutes = module.estimatedMinutes() == null ? 45 : Math.max(15, module.estimatedMinutes());
-            int difficulty = module.difficulty() == null ? 3 : Math.max(1, Math.min(5, module.difficulty()));
-            LocalDate due = parseDueDate(module.dueDate(), end);
-            long daysUntilDue = Math.max(0, start.until(due).getDays());
-            double urgency = (horizonDays - Math.min(horizonDays, daysUntilDue) + 1.0) / (horizonDays + 1.0);
-            double priority = (minutes * difficulty) * (1.0 + urgency);
-            weighted.add(new WeightedModule(module, minutes, due, priority));
+            weighted.add(priorities.computeIfAbsent(new PriorityKey(module, horizonDays),
+                    key -> weigh(key.module(), start, end, horizonDays)));
         }
         weighted.sort(Comparator.comparingDouble(WeightedModule::priority).reversed());
 
-        Map<LocalDate, Integer> loads = new HashMap<>();
-        Map<LocalDate, List<Map<String, Object>>> schedule = new HashMap<>();
-        List<Map<String, Object>> backlog = new ArrayList<>();
-
+        List<StudyScheduler.Item> items = new ArrayList<>(weighted.size());
         for (WeightedModule module : weighted) {
-            int remaining = module.estimatedMinutes();
-            LocalDate latest = module.dueDate().isBefore(end) ? module.dueDate() : end;
-            for (LocalDate day = start; !day.isAfter(latest) && remaining > 0; day = day.plusDays(1)) {
-                int used = loads.getOrDefault(day, 0);
-                int room = dailyCapacityMinutes - used;
-                if (room <= 0) {
-                    continue;
-                }
-                int assigned = Math.min(room, remaining);
-                Map<String, Object> task = new HashMap<>();
-                task.put("moduleId", safeText(module.module().moduleId(), "module"));
-                task.put("title", safeText(module.module().title(), "Module"));
-                task.put("minutes", assigned);
-                task.put("dueDate", module.dueDate().toString());
-                schedule.computeIfAbsent(day, ignored -> new ArrayList<>()).add(task);
-                loads.put(day, used + assigned);
-                remaining -= assigned;
-            }
-            if (remaining > 0) {
-                backlog.add(Map.of(
-                        "moduleId", safeText(module.module().moduleId(), "module"),
-                        "unplannedMinutes", remaining
-                ));
-            }
-        }
-
-        List<Map<String, Object>> days = new ArrayList<>();
-        for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
-            days.add(Map.of(
-                    "date", day.toString(),
-                    "totalMinutes", loads.getOrDefault(day, 0),
-                    "tasks", schedule.getOrDefault(day, List.of())
-            ));
+            items.add(new StudyScheduler.Item(safeText(module.module().moduleId(), "module"),
+                    safeText(module.module().title(), "Module"), module.estimatedMinutes(), module.dueDate()));
         }
+        StudyScheduler.Plan plan = StudyScheduler.schedule(start, horizonDays, dailyCapacityMinutes, items);
 
         return Map.of(
                 "learnerId", safeText(req.learnerId(), "anonymous"),
                 "generatedAt", Instant.now().toString(),
                 "dailyCapacityMinutes", dailyCapacityMinutes,
-                "schedule", days,
-                "backlog", backlog
+                "schedule", plan.schedule(),
+                "backlog", plan.backlog()
         );
     }
 
+    private WeightedModule weigh(StudyModule module, LocalDate start, LocalDate end, int horizonDays) {
+        int minutes = module.estimatedMinutes() == null ? 45 : Math.max(15, module.estimatedMinutes());
+        int difficulty = module.difficulty() == null ? 3 : Math.max(1, Math.min(5, module.difficulty()));
+        LocalDate due = parseDueDate(module.dueDate(), end);
+        long daysUntilDue = Math.max(0, start.until(due).getDays());
+        double urgency = (horizonDays - Math.min(horizonDays, daysUntilDue) + 1.0) / (horizonDays + 1.0);
+        double priority = (minutes * difficulty) * (1.0 + urgency);
+        return new WeightedModule(module, minutes, due, priority);
+    }
+
     public record AtRiskRequest(String courseId, List<LearnerSignal> learners) {}
     public record LearnerSignal(String userId, Double completionRate, Double averageScore, Integer lastActiveDaysAgo, Integer missedDeadlines) {}
 
@@ -140,19 +402,14 @@ public class AnalyticsController {
         List<Map<String, Object>> results = new ArrayList<>();
 
         for (LearnerSignal learner : learners) {
-            double completionRate = bounded(learner.completionRate(), 0.0, 1.0, 0.5);
-            double averageScore = bounded(learner.averageScore(), 0.0, 100.0, 65.0);
-            double inactivityDays = bounded(learner.lastActiveDaysAgo() == null ? null : learner.lastActiveDaysAgo().doubleValue(), 0.0, 30.0, 7.0);
-            double missedDeadlines = bounded(learner.missedDeadlines() == null ? null : learner.missedDeadlines().doubleValue(), 0.0, 6.0, 1.0);
+            double completionRate = RiskScorer.completionRate(orNaN(learner.completionRate()));
+            double averageScore = RiskScorer.averageScore(orNaN(learner.averageScore()));
+            double inactivityDays = RiskScorer.inactivityDays(orNaN(learner.lastActiveDaysAgo()));
+            double missedDeadlines = RiskScorer.missedDeadlines(orNaN(learner.missedDeadlines()));
 
-            double score = (1.0 - completionRate) * 35.0
-                    + (1.0 - (averageScore / 100.0)) * 30.0
-                    + (inactivityDays / 30.0) * 20.0
-                    + (missedDeadlines / 6.0) * 15.0;
-
-            int riskScore = (int) Math.round(score);
-            String riskLevel = riskScore >= 70 ? "HIGH" : riskScore >= 40 ? "MEDIUM" : "LOW";
-            List<String> recommendations = buildRiskRecommendations(completionRate, averageScore, inactivityDays, missedDeadlines);
+            int riskScore = RiskScorer.score(completionRate, averageScore, inactivityDays, missedDeadlines);
+            String riskLevel = RiskScorer.levelName(RiskScorer.level(riskScore));
+            List<String> recommendations = RiskScorer.recommendations(completionRate, averageScore, inactivityDays, missedDeadlines);
 
             results.add(Map.of(
                     "userId", safeText(learner.userId(), "unknown"),
@@ -170,28 +427,83 @@ public class AnalyticsController {
         );
     }
 
-    public record GradeForecastRequest(String learnerId, String courseId, List<CompletedGrade> completed, List<RemainingGrade> remaining, Double targetFinalGrade) {}
+    /**
+     * Streaming top-K variant of {@code /at-risk} for whole courses: the body is parsed one learner
+     * at a time and only the {@code k} riskiest are kept, while level counts cover everyone.
+     */
+    @PostMapping(value = "/at-risk/top", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> atRiskTop(@RequestParam(defaultValue = "200") int k, HttpServletRequest request) throws IOException {
+        if (k < 1 || k > MAX_AT_RISK_K) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "INVALID_K"));
+        }
+        RiskRanking ranking = new RiskRanking(k);
+        LearnerSignalReader.Batch batch;
+        try (JsonParser parser = objectMapper.getFactory().createParser(request.getInputStream())) {
+            batch = LearnerSignalReader.readRequest(parser, ranking);
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "INVALID_BODY"));
+        }
+        return ResponseEntity.ok(atRiskTopResponse(batch.courseId(), ranking.finish(), batch.rejected()));
+    }
+
+    /**
+     * NDJSON variant: one {@link LearnerSignal} per line, with the course given as a parameter.
+     * Lines are independent, so large inputs are parsed and scored in parallel slices.
+     */
+    @PostMapping(value = "/at-risk/top", consumes = "application/x-ndjson")
+    public ResponseEntity<?> atRiskTopStream(@RequestParam(required = false) String courseId,
+                                             @RequestParam(defaultValue = "200") int k,
+                                             HttpServletRequest request) throws IOException {
+        if (k < 1 || k > MAX_AT_RISK_K) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "INVALID_K"));
+        }
+        RiskRanking ranking = new RiskRanking(k);
+        long rejected = LearnerSignalReader.readLines(request.getInputStream(), objectMapper.getFactory(), computePool, ranking);
+        return ResponseEntity.ok(atRiskTopResponse(courseId, ranking.finish(), rejected));
+    }
+
+    public record GradeForecastRequest(String learnerId, String courseId, List<CompletedGrade> completed, List<RemainingGrade> remaining,
+                                       Double targetFinalGrade, ForecastSimulation simulation) {}
     public record CompletedGrade(String name, Double weightPct, Double scorePct) {}
     public record RemainingGrade(String name, Double weightPct) {}
+    public record ForecastSimulation(Integer trials, Long seed) {}
 
+    /**
+     * Deterministic projection at the current average; with {@code simulation} set, also a Monte
+     * Carlo distribution of the final grade from the learner's own score spread, reproducible per seed.
+     */
     @PostMapping("/grade-forecast")
-    public Map<String, Object> gradeForecast(@RequestBody GradeForecastRequest req) {
+    public ResponseEntity<?> gradeForecast(@RequestBody GradeForecastRequest req) {
         List<CompletedGrade> completed = req.completed() == null ? List.of() : req.completed();
         List<RemainingGrade> remaining = req.remaining() == null ? List.of() : req.remaining();
         double target = bounded(req.targetFinalGrade(), 0.0, 100.0, 85.0);
+        int trials = 0;
+        if (req.simulation() != null) {
+            trials = req.simulation().trials() == null ? DEFAULT_FORECAST_TRIALS : req.simulation().trials();
+            if (trials < 1 || trials > GradeSimulator.MAX_TRIALS) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "INVALID_TRIALS"));
+            }
+        }
 
         double earnedPoints = 0.0;
         double completedWeight = 0.0;
-        for (CompletedGrade item : completed) {
+        double[] completedWeights = new double[completed.size()];
+        double[] completedScores = new double[completed.size()];
+        for (int i = 0; i < completed.size(); i++) {
+            CompletedGrade item = completed.get(i);
             double weight = bounded(item.weightPct(), 0.0, 100.0, 0.0);
             double score = bounded(item.scorePct(), 0.0, 100.0, 0.0);
             completedWeight += weight;
             earnedPoints += (weight * score) / 100.0;
+            completedWeights[i] = weight;
+            completedScores[i] = score;
         }
 
         double remainingWeight = 0.0;
-        for (RemainingGrade item : remaining) {
-            remainingWeight += bounded(item.weightPct(), 0.0, 100.0, 0.0);
+        double[] remainingWeights = new double[remaining.size()];
+        for (int i = 0; i < remaining.size(); i++) {
+            remainingWeights[i] = bounded(remaining.get(i).weightPct(), 0.0, 100.0, 0.0);
+            remainingWeight += remainingWeights[i];
         }
 
         double currentAverage = completedWeight > 0 ? (earnedPoints / completedWeight) * 100.0 : 0.0;
@@ -201,18 +513,71 @@ public class AnalyticsController {
         double projectedFinal = earnedPoints + (remainingWeight * currentAverage) / 100.0;
         boolean feasible = requiredAverage <= 100.0;
 
-        return Map.of(
-                "learnerId", safeText(req.learnerId(), "unknown"),
-                "courseId", safeText(req.courseId(), "unknown"),
-                "currentAverage", round2(currentAverage),
-                "earnedPoints", round2(earnedPoints),
-                "remainingWeight", round2(remainingWeight),
-                "requiredAverageOnRemaining", round2(Math.max(0.0, requiredAverage)),
-                "projectedFinalAtCurrentPace", round2(projectedFinal),
-                "targetFinalGrade", round2(target),
-                "targetAchievable", feasible,
-                "computedAt", Instant.now().toString()
-        );
+        Map<String, Object> response = new HashMap<>();
+        response.put("learnerId", safeText(req.learnerId(), "unknown"));
+        response.put("courseId", safeText(req.courseId(), "unknown"));
+        response.put("currentAverage", round2(currentAverage));
+        response.put("earnedPoints", round2(earnedPoints));
+        response.put("remainingWeight", round2(remainingWeight));
+        response.put("requiredAverageOnRemaining", round2(Math.max(0.0, requiredAverage)));
+        response.put("projectedFinalAtCurrentPace", round2(projectedFinal));
+        response.put("targetFinalGrade", round2(target));
+        response.put("targetAchievable", feasible);
+        response.put("computedAt", Instant.now().toString());
+        if (req.simulation() != null) {
+            long seed = req.simulation().seed() == null ? DEFAULT_FORECAST_SEED : req.simulation().seed();
+            GradeSimulator.Model model = GradeSimulator.model(completedWeights, completedScores, earnedPoints, remainingWeights);
+            GradeSimulator.Result result = GradeSimulator.simulate(model, target, trials, seed, computePool);
+            Map<String, Object> simulation = new HashMap<>();
+            simulation.put("trials", result.trials());
+            simulation.put("seed", result.seed());
+            simulation.put("scoreStdDev", round2(result.scoreStdDev()));
+            simulation.put("meanFinal", round2(result.meanFinal()));
+            simulation.put("probabilityOfTarget", Math.round(result.probabilityOfTarget() * 10_000.0) / 10_000.0);
+            simulation.put("percentiles", result.percentiles());
+            response.put("simulation", simulation);
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    private boolean ingest(ActivityEvent event, long today) {
+        if (event == null || event.courseId() == null || event.courseId().isBlank()
+                || event.userId() == null || event.userId().isBlank()) {
+            return false;
+        }
+        long epochDay;
+        try {
+            epochDay = event.occurredAt() == null ? today
+                    : LocalDate.ofInstant(Instant.parse(event.occurredAt()), ZoneOffset.UTC).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+        if (epochDay > today) {
+            return false;
+        }
+        boolean recorded = engagementCounters.record(event.courseId(), HyperLogLog.hash(event.userId()), epochDay, today);
+        String stage = FunnelIndex.stageName(event.type());
+        if (stage != null) {
+            // Funnels keep full history; only the engagement sketches are limited to the trailing window.
+            recorded |= funnelIndex.record(event.courseId(), stage, event.userId(), epochDay);
+        }
+        return recorded;
+    }
+
+    private double[] parseQuantiles(String text) {
+        String[] parts = text.split(",");
+        double[] quantiles = new double[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                quantiles[i] = Double.parseDouble(parts[i].trim());
+                if (!(quantiles[i] >= 0.0 && quantiles[i] <= 1.0)) {
+                    return null;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return quantiles;
     }
 
     private LocalDate parseDueDate(String dueDateText, LocalDate fallback) {
@@ -226,6 +591,27 @@ public class AnalyticsController {
         }
     }
 
+    private Map<String, Object> atRiskTopResponse(String courseId, RiskRanking.Result result, long rejected) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("courseId", safeText(courseId, "unknown"));
+        response.put("evaluatedAt", Instant.now().toString());
+        response.put("evaluated", result.evaluated());
+        response.put("rejected", rejected);
+        response.put("levels", Map.of("HIGH", result.high(), "MEDIUM", result.medium(), "LOW", result.low()));
+        response.put("learners", result.learners());
+        return response;
+    }
+
+    /** An unset token rejects every caller rather than admitting them all. */
+    private boolean serviceToken(String presented) {
+        return ingestToken.length > 0 && presented != null
+                && MessageDigest.isEqual(ingestToken, presented.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static double orNaN(Number value) {
+        return value == null ? Double.NaN : value.doubleValue();
+    }
+
     private String safeText(String value, String fallback) {
         if (value == null || value.isBlank()) {
             return fallback;
@@ -240,29 +626,105 @@ public class AnalyticsController {
         return Math.max(min, Math.min(max, value));
     }
 
-    private List<String> buildRiskRecommendations(double completionRate, double averageScore, double inactivityDays, double missedDeadlines) {
-        List<String> recs = new ArrayList<>();
-        if (completionRate < 0.55) {
-            recs.add("Schedule focused catch-up sessions on unfinished modules");
-        }
-        if (averageScore < 65.0) {
-            recs.add("Assign remedial quizzes before next graded assessment");
+    private double round2(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    private record WeightedModule(StudyModule module, int estimatedMinutes, LocalDate dueDate, double priority) {}
+
+    /** A module's priority depends only on its own fields and the plan horizon, given a shared start day. */
+    private record PriorityKey(StudyModule module, int horizonDays) {}
+
+    private StudyPlanBatch startStudyPlanBatch(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType("application/x-ndjson");
+        return new StudyPlanBatch(response.getOutputStream());
+    }
+
+    private final class StudyPlanBatch {
+        private final OutputStream out;
+        private final long startedAt = System.nanoTime();
+        // One start day and one priority cache for the whole batch, so identical modules are weighed once.
+        private final LocalDate start = LocalDate.now(ZoneOffset.UTC);
+        private final Map<PriorityKey, WeightedModule> priorities = new ConcurrentHashMap<>();
+        private final List<Integer> lines = new ArrayList<>(STUDY_PLAN_CHUNK_SIZE);
+        private final List<StudyPlanRequest> chunk = new ArrayList<>(STUDY_PLAN_CHUNK_SIZE);
+        private int planned;
+        private int rejected;
+
+        private StudyPlanBatch(OutputStream out) {
+            this.out = out;
         }
-        if (inactivityDays > 7.0) {
-            recs.add("Trigger outreach and re-engagement reminders this week");
+
+        void add(int line, StudyPlanRequest plan) throws IOException {
+            lines.add(line);
+            chunk.add(plan);
+            if (chunk.size() == STUDY_PLAN_CHUNK_SIZE) {
+                flushChunk();
+            }
         }
-        if (missedDeadlines >= 2.0) {
-            recs.add("Offer deadline planning support and weekly checkpoints");
+
+        void finish() throws IOException {
+            flushChunk();
+            long elapsedNanos = System.nanoTime() - startedAt;
+            Map<String, Object> summary = new HashMap<>();
+            summary.put("type", "summary");
+            summary.put("planned", planned);
+            summary.put("rejected", rejected);
+            summary.put("distinctModules", priorities.size());
+            summary.put("elapsedMs", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+            summary.put("throughputPerSec", elapsedNanos == 0 ? 0.0 : round2(planned * 1e9 / elapsedNanos));
+            writeLine(summary);
+            out.flush();
         }
-        if (recs.isEmpty()) {
-            recs.add("Progress is stable; continue current pace");
+
+        private void flushChunk() throws IOException {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            List<Callable<Map<String, Object>>> tasks = new ArrayList<>(chunk.size());
+            for (StudyPlanRequest plan : chunk) {
+                tasks.add(() -> plan == null ? null : buildStudyPlan(plan, start, priorities));
+            }
+            List<Future<Map<String, Object>>> futures;
+            try {
+                futures = studyPlanPool.invokeAll(tasks);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while planning batch", e);
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                Map<String, Object> plan;
+                String error;
+                try {
+                    plan = futures.get(i).get();
+                    error = plan == null ? "INVALID_REQUEST" : null;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while planning batch", e);
+                } catch (ExecutionException e) {
+                    plan = null;
+                    error = "PLANNING_FAILED";
+                }
+                if (plan != null) {
+                    planned++;
+                    Map<String, Object> result = new HashMap<>(plan);
+                    result.put("type", "plan");
+                    result.put("line", lines.get(i));
+                    writeLine(result);
+                } else {
+                    rejected++;
+                    writeLine(Map.of("type", "result", "line", lines.get(i), "status", "REJECTED", "error", error));
+                }
+            }
+            out.flush();
+            lines.clear();
+            chunk.clear();
         }
-        return recs;
-    }
 
-    private double round2(double value) {
-        return Math.round(value * 100.0) / 100.0;
+        private void writeLine(Object value) throws IOException {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+        }
     }
-
-    private record WeightedModule(StudyModule module, int estimatedMinutes, LocalDate dueDate, double priority) {}
 }
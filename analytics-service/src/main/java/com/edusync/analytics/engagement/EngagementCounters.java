@@ -0,0 +1,86 @@
+package com.edusync.analytics.engagement;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Distinct active users per course per day, as one {@link HyperLogLog} per day in a ring of
+ * the last {@value #RETAINED_DAYS} days. Memory per course is fixed by the configured error
+ * bound, however many users or events it sees. DAU reads one day's sketch; WAU and MAU merge
+ * the trailing 7 and 30.
+ */
+@Component
+public class EngagementCounters {
+
+    public static final int RETAINED_DAYS = 30;
+
+    public record ActiveUsers(long dau, long wau, long mau) {}
+
+    private record DaySketch(long epochDay, HyperLogLog sketch) {}
+
+    private final int precision;
+    private final Map<String, AtomicReferenceArray<DaySketch>> byCourse = new ConcurrentHashMap<>();
+
+    public EngagementCounters(@Value("${analytics.engagement.error-bound:0.03}") double errorBound) {
+        this.precision = HyperLogLog.precisionFor(errorBound);
+    }
+
+    /** Counts {@code userHash} as active on {@code epochDay}. Returns false if that day is outside the retained window. */
+    public boolean record(String courseId, long userHash, long epochDay, long todayEpochDay) {
+        if (epochDay > todayEpochDay || epochDay <= todayEpochDay - RETAINED_DAYS) {
+            return false;
+        }
+        AtomicReferenceArray<DaySketch> ring =
+                byCourse.computeIfAbsent(courseId, ignored -> new AtomicReferenceArray<>(RETAINED_DAYS));
+        int slot = (int) Math.floorMod(epochDay, (long) RETAINED_DAYS);
+        while (true) {
+            DaySketch day = ring.get(slot);
+            if (day != null && day.epochDay() == epochDay) {
+                day.sketch().add(userHash);
+                return true;
+            }
+            if (day != null && day.epochDay() > epochDay) {
+                // The slot already rolled over to a newer day.
+                return false;
+            }
+            // Lock-free roll-over; a loser of the race retries against the winner's sketch.
+            ring.compareAndSet(slot, day, new DaySketch(epochDay, new HyperLogLog(precision)));
+        }
+    }
+
+    public ActiveUsers activeUsers(String courseId, long epochDay) {
+        AtomicReferenceArray<DaySketch> ring = byCourse.get(courseId);
+        if (ring == null) {
+            return new ActiveUsers(0, 0, 0);
+        }
+        int[] registers = new int[1 << precision];
+        long dau = 0;
+        long wau = 0;
+        // Walk back from the requested day, merging as the window widens.
+        for (int back = 0; back < RETAINED_DAYS; back++) {
+            DaySketch day = ring.get((int) Math.floorMod(epochDay - back, (long) RETAINED_DAYS));
+            if (day != null && day.epochDay() == epochDay - back) {
+                day.sketch().mergeInto(registers);
+            }
+            if (back == 0) {
+                dau = HyperLogLog.estimate(registers);
+            } else if (back == 6) {
+                wau = HyperLogLog.estimate(registers);
+            }
+        }
+        return new ActiveUsers(dau, wau, HyperLogLog.estimate(registers));
+    }
+
+    public double standardError() {
+        return HyperLogLog.standardError(precision);
+    }
+
+    /** Upper bound on sketch memory per course. */
+    public int bytesPerCourse() {
+        return RETAINED_DAYS * (1 << precision);
+    }
+}
@@ -0,0 +1,122 @@
+package com.edusync.analytics.engagement;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Distinct-count sketch over 64-bit hashes: 2^precision one-byte registers, packed four to an
+ * int. Writers raise a register with a compare-and-set on its word, so any number of threads
+ * can add at once without locks, and sketches of the same precision merge by taking the
+ * register-wise maximum. Relative standard error is about {@code 1.04 / sqrt(2^precision)}.
+ */
+public final class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 16;
+
+    private final int precision;
+    private final AtomicIntegerArray words;
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION);
+        }
+        this.precision = precision;
+        this.words = new AtomicIntegerArray((1 << precision) / 4);
+    }
+
+    /** Smallest precision whose standard error is at most {@code relativeError}. */
+    public static int precisionFor(double relativeError) {
+        if (!(relativeError > 0 && relativeError < 1)) {
+            throw new IllegalArgumentException("relativeError must be between 0 and 1");
+        }
+        double registers = Math.pow(1.04 / relativeError, 2);
+        int precision = 64 - Long.numberOfLeadingZeros((long) Math.ceil(registers) - 1);
+        return Math.max(MIN_PRECISION, Math.min(MAX_PRECISION, precision));
+    }
+
+    public static double standardError(int precision) {
+        return 1.04 / Math.sqrt(1 << precision);
+    }
+
+    public int precision() {
+        return precision;
+    }
+
+    public int sizeInBytes() {
+        return 1 << precision;
+    }
+
+    public void add(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // Rank of the first set bit in the remaining bits; the sentinel bit caps it at 65 - precision.
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        int word = index >>> 2;
+        int shift = (index & 3) << 3;
+        while (true) {
+            int current = words.get(word);
+            if (((current >>> shift) & 0xFF) >= rank) {
+                return;
+            }
+            int updated = (current & ~(0xFF << shift)) | (rank << shift);
+            if (words.compareAndSet(word, current, updated)) {
+                return;
+            }
+        }
+    }
+
+    /** Raises {@code into}'s registers to at least this sketch's; {@code into} has the same precision. */
+    void mergeInto(int[] into) {
+        for (int i = 0; i < into.length; i++) {
+            into[i] = Math.max(into[i], register(i));
+        }
+    }
+
+    int register(int index) {
+        return (words.get(index >>> 2) >>> ((index & 3) << 3)) & 0xFF;
+    }
+
+    public long estimate() {
+        int[] registers = new int[1 << precision];
+        mergeInto(registers);
+        return estimate(registers);
+    }
+
+    /** Standard HyperLogLog estimate with linear counting for small cardinalities. */
+    static long estimate(int[] registers) {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (int register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+        double raw = alpha * m * (double) m / sum;
+        if (raw <= 2.5 * m && zeros > 0) {
+            return Math.round(m * Math.log((double) m / zeros));
+        }
+        return Math.round(raw);
+    }
+
+    /** 64-bit hash of a string: FNV-1a over the chars, then the MurmurHash3 finalizer to spread the bits. */
+    public static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
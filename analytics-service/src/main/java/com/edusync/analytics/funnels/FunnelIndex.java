@@ -0,0 +1,109 @@
+package com.edusync.analytics.funnels;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Per-course, per-stage {@link RoaringBitmap}s of the users who reached each stage, kept both
+ * all-time and per UTC day. A funnel over stages S1..Sn counts the users in S1, S1 AND S2, and
+ * so on, so "did stage N and also stage N-1" is a chunked AND instead of a set intersection
+ * over user-ID strings. Stages are whatever activity {@code type}s arrive, so ad-hoc
+ * sequences need no schema change.
+ */
+@Component
+public class FunnelIndex {
+
+    public static final int MAX_STAGES_PER_COURSE = 32;
+    private static final Pattern STAGE_NAME = Pattern.compile("[a-z0-9_-]{1,64}");
+
+    public record StageCount(String stage, long count, Double conversion) {}
+
+    private static final class StageBitmaps {
+        private final RoaringBitmap allTime = new RoaringBitmap();
+        private final NavigableMap<Long, RoaringBitmap> byDay = new TreeMap<>();
+
+        synchronized void add(int user, long epochDay) {
+            allTime.add(user);
+            byDay.computeIfAbsent(epochDay, ignored -> new RoaringBitmap()).add(user);
+        }
+
+        /** A private copy of the users seen in [fromDay, toDay], or all-time when both are null. */
+        synchronized RoaringBitmap users(Long fromDay, Long toDay) {
+            if (fromDay == null && toDay == null) {
+                return allTime.copy();
+            }
+            RoaringBitmap union = new RoaringBitmap();
+            long from = fromDay == null ? Long.MIN_VALUE : fromDay;
+            long to = toDay == null ? Long.MAX_VALUE : toDay;
+            for (RoaringBitmap day : byDay.subMap(from, true, to, true).values()) {
+                union.or(day);
+            }
+            return union;
+        }
+    }
+
+    private final UserDictionary users = new UserDictionary();
+    private final Map<String, Map<String, StageBitmaps>> byCourse = new ConcurrentHashMap<>();
+
+    /** Lower-cased stage name for an activity type, or null if the type cannot name a stage. */
+    public static String stageName(String type) {
+        if (type == null) {
+            return null;
+        }
+        String stage = type.trim().toLowerCase(Locale.ROOT);
+        return STAGE_NAME.matcher(stage).matches() ? stage : null;
+    }
+
+    /** Marks {@code userId} as having reached {@code stage} on {@code epochDay}. Returns false once the course is at its stage limit. */
+    public boolean record(String courseId, String stage, String userId, long epochDay) {
+        Map<String, StageBitmaps> stages = byCourse.computeIfAbsent(courseId, ignored -> new ConcurrentHashMap<>());
+        StageBitmaps bitmaps = stages.get(stage);
+        if (bitmaps == null) {
+            if (stages.size() >= MAX_STAGES_PER_COURSE) {
+                return false;
+            }
+            bitmaps = stages.computeIfAbsent(stage, ignored -> new StageBitmaps());
+        }
+        bitmaps.add(users.idFor(userId), epochDay);
+        return true;
+    }
+
+    /**
+     * Users reaching each stage in order, each count restricted to users who also reached every
+     * earlier stage within the window. {@code conversion} is the share of the previous stage's
+     * users, and null for the first stage.
+     */
+    public List<StageCount> funnel(String courseId, List<String> stages, Long fromDay, Long toDay) {
+        Map<String, StageBitmaps> course = byCourse.getOrDefault(courseId, Map.of());
+        List<StageCount> counts = new ArrayList<>(stages.size());
+        RoaringBitmap reached = null;
+        long previous = 0;
+        for (String stage : stages) {
+            StageBitmaps bitmaps = course.get(stage);
+            RoaringBitmap users = bitmaps == null ? new RoaringBitmap() : bitmaps.users(fromDay, toDay);
+            if (reached == null) {
+                reached = users;
+            } else {
+                reached.and(users);
+            }
+            long count = reached.cardinality();
+            Double conversion = counts.isEmpty() ? null
+                    : previous == 0 ? 0.0 : Math.round(count * 10_000.0 / previous) / 10_000.0;
+            counts.add(new StageCount(stage, count, conversion));
+            previous = count;
+        }
+        return counts;
+    }
+
+    public int distinctUsers() {
+        return users.size();
+    }
+}
@@ -0,0 +1,275 @@
+package com.edusync.analytics.funnels;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of non-negative ints in the Roaring layout: values are split by their high
+ * 16 bits into chunks, and each chunk is a sorted {@code char[]} while it holds at most
+ * {@value #ARRAY_MAX} values and a 65,536-bit {@code long[]} bitmap beyond that. Sparse
+ * stages cost two bytes per user, dense ones one bit, and AND/OR run chunk by chunk.
+ * Not thread-safe; callers guard writes and copy before reading concurrently.
+ */
+public final class RoaringBitmap {
+
+    static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private char[] keys = new char[0];
+    // Each entry is a char[] (array chunk, first `cardinalities[i]` values used) or a long[] bitmap chunk.
+    private Object[] chunks = new Object[0];
+    private int[] cardinalities = new int[0];
+    private int size;
+
+    public void add(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must be non-negative");
+        }
+        char key = (char) (value >>> 16);
+        char low = (char) value;
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index < 0) {
+            index = -index - 1;
+            insertChunk(index, key, new char[4], 0);
+        }
+        Object chunk = chunks[index];
+        int cardinality = cardinalities[index];
+        if (chunk instanceof long[] bits) {
+            long mask = 1L << low;
+            if ((bits[low >>> 6] & mask) == 0) {
+                bits[low >>> 6] |= mask;
+                cardinalities[index] = cardinality + 1;
+            }
+            return;
+        }
+        char[] values = (char[]) chunk;
+        int at = Arrays.binarySearch(values, 0, cardinality, low);
+        if (at >= 0) {
+            return;
+        }
+        at = -at - 1;
+        if (cardinality == ARRAY_MAX) {
+            long[] bits = toBitmap(values, cardinality);
+            bits[low >>> 6] |= 1L << low;
+            chunks[index] = bits;
+            cardinalities[index] = cardinality + 1;
+            return;
+        }
+        if (cardinality == values.length) {
+            values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            chunks[index] = values;
+        }
+        System.arraycopy(values, at, values, at + 1, cardinality - at);
+        values[at] = low;
+        cardinalities[index] = cardinality + 1;
+    }
+
+    public boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        if (value < 0 || index < 0) {
+            return false;
+        }
+        char low = (char) value;
+        if (chunks[index] instanceof long[] bits) {
+            return (bits[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) chunks[index], 0, cardinalities[index], low) >= 0;
+    }
+
+    public long cardinality() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += cardinalities[i];
+        }
+        return total;
+    }
+
+    /** Bytes held by the chunk contents, for capacity planning. */
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (int i = 0; i < size; i++) {
+            bytes += chunks[i] instanceof long[] bits ? bits.length * 8L : ((char[]) chunks[i]).length * 2L;
+        }
+        return bytes;
+    }
+
+    public RoaringBitmap copy() {
+        RoaringBitmap copy = new RoaringBitmap();
+        copy.keys = Arrays.copyOf(keys, size);
+        copy.cardinalities = Arrays.copyOf(cardinalities, size);
+        copy.chunks = new Object[size];
+        for (int i = 0; i < size; i++) {
+            copy.chunks[i] = chunks[i] instanceof long[] bits ? bits.clone()
+                    : Arrays.copyOf((char[]) chunks[i], cardinalities[i]);
+        }
+        copy.size = size;
+        return copy;
+    }
+
+    /** Keeps only the values also in {@code other}. */
+    public void and(RoaringBitmap other) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j == other.size || other.keys[j] != keys[i]) {
+                continue;
+            }
+            Object chunk = and(chunks[i], cardinalities[i], other.chunks[j], other.cardinalities[j]);
+            int cardinality = cardinalityOf(chunk);
+            if (cardinality > 0) {
+                keys[kept] = keys[i];
+                chunks[kept] = chunk;
+                cardinalities[kept] = cardinality;
+                kept++;
+            }
+        }
+        Arrays.fill(chunks, kept, size, null);
+        size = kept;
+    }
+
+    /** Adds every value of {@code other}. */
+    public void or(RoaringBitmap other) {
+        for (int j = 0; j < other.size; j++) {
+            int index = Arrays.binarySearch(keys, 0, size, other.keys[j]);
+            if (index < 0) {
+                Object chunk = other.chunks[j] instanceof long[] bits ? bits.clone()
+                        : Arrays.copyOf((char[]) other.chunks[j], Math.max(4, other.cardinalities[j]));
+                insertChunk(-index - 1, other.keys[j], chunk, other.cardinalities[j]);
+                continue;
+            }
+            Object chunk = or(chunks[index], cardinalities[index], other.chunks[j], other.cardinalities[j]);
+            chunks[index] = chunk;
+            cardinalities[index] = cardinalityOf(chunk);
+        }
+    }
+
+    private void insertChunk(int index, char key, Object chunk, int cardinality) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            chunks = Arrays.copyOf(chunks, capacity);
+            cardinalities = Arrays.copyOf(cardinalities, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(chunks, index, chunks, index + 1, size - index);
+        System.arraycopy(cardinalities, index, cardinalities, index + 1, size - index);
+        keys[index] = key;
+        chunks[index] = chunk;
+        cardinalities[index] = cardinality;
+        size++;
+    }
+
+    // Chunk results are returned trimmed: an array chunk's length is its cardinality.
+    private static Object and(Object left, int leftCardinality, Object right, int rightCardinality) {
+        if (left instanceof long[] a && right instanceof long[] b) {
+            long[] words = new long[BITMAP_WORDS];
+            int cardinality = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] = a[w] & b[w];
+                cardinality += Long.bitCount(words[w]);
+            }
+            return cardinality > ARRAY_MAX ? words : toArray(words, cardinality);
+        }
+        if (left instanceof long[] bits) {
+            return filter((char[]) right, rightCardinality, bits);
+        }
+        if (right instanceof long[] bits) {
+            return filter((char[]) left, leftCardinality, bits);
+        }
+        char[] a = (char[]) left;
+        char[] b = (char[]) right;
+        char[] out = new char[Math.min(leftCardinality, rightCardinality)];
+        int n = 0;
+        for (int i = 0, j = 0; i < leftCardinality && j < rightCardinality; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static Object or(Object left, int leftCardinality, Object right, int rightCardinality) {
+        if (left instanceof long[] || right instanceof long[]) {
+            long[] words = left instanceof long[] a ? a.clone() : toBitmap((char[]) left, leftCardinality);
+            if (right instanceof long[] b) {
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    words[w] |= b[w];
+                }
+            } else {
+                char[] values = (char[]) right;
+                for (int i = 0; i < rightCardinality; i++) {
+                    words[values[i] >>> 6] |= 1L << values[i];
+                }
+            }
+            return words;
+        }
+        char[] a = (char[]) left;
+        char[] b = (char[]) right;
+        char[] out = new char[leftCardinality + rightCardinality];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < leftCardinality || j < rightCardinality) {
+            if (j == rightCardinality || (i < leftCardinality && a[i] < b[j])) {
+                out[n++] = a[i++];
+            } else if (i == leftCardinality || b[j] < a[i]) {
+                out[n++] = b[j++];
+            } else {
+                out[n++] = a[i++];
+                j++;
+            }
+        }
+        return n > ARRAY_MAX ? toBitmap(out, n) : Arrays.copyOf(out, n);
+    }
+
+    private static char[] filter(char[] values, int cardinality, long[] bits) {
+        char[] out = new char[cardinality];
+        int n = 0;
+        for (int i = 0; i < cardinality; i++) {
+            if ((bits[values[i] >>> 6] & (1L << values[i])) != 0) {
+                out[n++] = values[i];
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static int cardinalityOf(Object chunk) {
+        if (chunk instanceof char[] values) {
+            return values.length;
+        }
+        int cardinality = 0;
+        for (long word : (long[]) chunk) {
+            cardinality += Long.bitCount(word);
+        }
+        return cardinality;
+    }
+
+    private static long[] toBitmap(char[] values, int cardinality) {
+        long[] words = new long[BITMAP_WORDS];
+        for (int i = 0; i < cardinality; i++) {
+            words[values[i] >>> 6] |= 1L << values[i];
+        }
+        return words;
+    }
+
+    private static char[] toArray(long[] words, int cardinality) {
+        char[] values = new char[cardinality];
+        int n = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            long word = words[w];
+            while (word != 0) {
+                values[n++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,23 @@
+package com.edusync.analytics.funnels;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assigns each user ID a dense int in arrival order, so stage bitmaps index users by small,
+ * contiguous values that Roaring chunks compress well.
+ */
+class UserDictionary {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    public int idFor(String userId) {
+        return ids.computeIfAbsent(userId, ignored -> next.getAndIncrement());
+    }
+
+    public int size() {
+        return next.get();
+    }
+}
@@ -0,0 +1,136 @@
+package com.edusync.analytics.grades;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streaming grade distributions, kept up to date from grading writes rather than computed by
+ * scanning grades. Each change moves the previous total out of its assessment's histogram
+ * before counting the new one. A course's distribution is the merge of its assessments'
+ * histograms, so the assessment-to-course link can arrive with any later event without
+ * leaving stale counts behind. When grading-service could not deliver some changes it
+ * {@linkplain #replace replaces} the assessment's histogram with one rebuilt from its grades.
+ */
+@Component
+public class GradeDistributions {
+
+    /** Letter bins, lowest total of each; everything below the last is F. */
+    private static final String[] LETTERS = {"A", "B", "C", "D", "F"};
+    private static final int[] LETTER_FLOORS = {90, 80, 70, 60, 0};
+
+    public record GradeChange(String submissionId, String assessmentId, String courseId,
+                              String previousAssessmentId, Integer previousTotal, Integer total) {}
+
+    public record Bin(String grade, long count) {}
+
+    public record Percentile(double quantile, int total) {}
+
+    /** {@code outOfRange} grades have a total outside 0 to 100; they are not in {@code count} or the bins. */
+    public record Distribution(long count, double mean, List<Bin> bins, List<Percentile> percentiles, long outOfRange) {}
+
+    private final Map<String, GradeHistogram> byAssessment = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> assessmentsByCourse = new ConcurrentHashMap<>();
+
+    /** Returns false when the change has no assessment to attribute it to and was ignored. */
+    public boolean apply(GradeChange change) {
+        boolean applied = false;
+        if (change.previousTotal() != null && change.previousAssessmentId() != null) {
+            histogram(change.previousAssessmentId()).remove(change.previousTotal());
+            applied = true;
+        }
+        if (change.total() != null && change.assessmentId() != null) {
+            histogram(change.assessmentId()).add(change.total());
+            applied = true;
+        }
+        if (change.courseId() != null && change.assessmentId() != null) {
+            assessmentsByCourse.computeIfAbsent(change.courseId(), ignored -> ConcurrentHashMap.newKeySet())
+                    .add(change.assessmentId());
+        }
+        return applied;
+    }
+
+    /** Swaps in a histogram counted from {@code totals}, every current total of the assessment. */
+    public void replace(String assessmentId, String courseId, int[] totals) {
+        GradeHistogram rebuilt = new GradeHistogram();
+        for (int total : totals) {
+            rebuilt.add(total);
+        }
+        byAssessment.put(assessmentId, rebuilt);
+        if (courseId != null) {
+            assessmentsByCourse.computeIfAbsent(courseId, ignored -> ConcurrentHashMap.newKeySet()).add(assessmentId);
+        }
+    }
+
+    public Distribution forCourse(String courseId, double[] quantiles) {
+        long[] counts = new long[GradeHistogram.MAX_TOTAL + 1];
+        long outOfRange = 0;
+        for (String assessmentId : assessmentsByCourse.getOrDefault(courseId, Set.of())) {
+            GradeHistogram histogram = byAssessment.get(assessmentId);
+            if (histogram != null) {
+                histogram.addTo(counts);
+                outOfRange += histogram.outOfRange();
+            }
+        }
+        return summarize(counts, quantiles, outOfRange);
+    }
+
+    public Distribution forAssessment(String assessmentId, double[] quantiles) {
+        long[] counts = new long[GradeHistogram.MAX_TOTAL + 1];
+        GradeHistogram histogram = byAssessment.get(assessmentId);
+        if (histogram != null) {
+            histogram.addTo(counts);
+        }
+        return summarize(counts, quantiles, histogram == null ? 0 : histogram.outOfRange());
+    }
+
+    private GradeHistogram histogram(String assessmentId) {
+        return byAssessment.computeIfAbsent(assessmentId, ignored -> new GradeHistogram());
+    }
+
+    static Distribution summarize(long[] counts, double[] quantiles, long outOfRange) {
+        long count = 0;
+        long sum = 0;
+        long[] letterCounts = new long[LETTERS.length];
+        for (int total = 0; total < counts.length; total++) {
+            // A racing override can leave a bucket briefly negative between its remove and add;
+            // lasting drift is repaired by grading-service replacing the histogram.
+            long n = Math.max(0, counts[total]);
+            counts[total] = n;
+            count += n;
+            sum += n * total;
+            int letter = 0;
+            while (total < LETTER_FLOORS[letter]) {
+                letter++;
+            }
+            letterCounts[letter] += n;
+        }
+        List<Bin> bins = new ArrayList<>(LETTERS.length);
+        for (int letter = 0; letter < LETTERS.length; letter++) {
+            bins.add(new Bin(LETTERS[letter], letterCounts[letter]));
+        }
+        List<Percentile> percentiles = new ArrayList<>(quantiles.length);
+        for (double quantile : quantiles) {
+            percentiles.add(new Percentile(quantile, count == 0 ? 0 : quantile(counts, count, quantile)));
+        }
+        double mean = count == 0 ? 0.0 : Math.round(sum * 100.0 / count) / 100.0;
+        return new Distribution(count, mean, bins, percentiles, Math.max(0, outOfRange));
+    }
+
+    /** Nearest-rank quantile: the smallest total with at least {@code ceil(q * count)} grades at or below it. */
+    private static int quantile(long[] counts, long count, double quantile) {
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int total = 0; total < counts.length; total++) {
+            seen += counts[total];
+            if (seen >= rank) {
+                return total;
+            }
+        }
+        return GradeHistogram.MAX_TOTAL;
+    }
+}
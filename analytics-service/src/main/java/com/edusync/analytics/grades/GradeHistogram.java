@@ -0,0 +1,54 @@
+package com.edusync.analytics.grades;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Exact count of grades at each whole total from 0 to 100, so 101 counters are a complete
+ * quantile sketch for percentage-scored work: quantiles and letter bins are read in a fixed
+ * 101 steps whatever the number of grades, histograms merge by adding counts, and unlike a
+ * t-digest a value can be taken back out when a grade is overridden.
+ *
+ * <p>Not every total is a percentage: manual grades sum raw rubric points and regrade overrides
+ * are free-form. Totals outside 0 to 100 are not binned, which would misplace them (150 points
+ * is not an A); they are only counted, so distributions can report how many were left out.
+ */
+public final class GradeHistogram {
+
+    public static final int MAX_TOTAL = 100;
+
+    private final AtomicLongArray counts = new AtomicLongArray(MAX_TOTAL + 1);
+    private final AtomicLong outOfRange = new AtomicLong();
+
+    public void add(int total) {
+        if (inRange(total)) {
+            counts.incrementAndGet(total);
+        } else {
+            outOfRange.incrementAndGet();
+        }
+    }
+
+    public void remove(int total) {
+        if (inRange(total)) {
+            counts.decrementAndGet(total);
+        } else {
+            outOfRange.decrementAndGet();
+        }
+    }
+
+    /** Grades whose total is outside 0 to 100 and so is in no bin. */
+    public long outOfRange() {
+        return outOfRange.get();
+    }
+
+    /** Adds this histogram's counts into {@code into}, which must have {@code MAX_TOTAL + 1} slots. */
+    public void addTo(long[] into) {
+        for (int total = 0; total <= MAX_TOTAL; total++) {
+            into[total] += counts.get(total);
+        }
+    }
+
+    static boolean inRange(int total) {
+        return total >= 0 && total <= MAX_TOTAL;
+    }
+}
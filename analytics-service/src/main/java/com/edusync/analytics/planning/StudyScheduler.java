@@ -0,0 +1,76 @@
+package com.edusync.analytics.planning;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Greedy study-plan scheduler: modules, already in priority order, fill each day up to the
+ * daily capacity from the first day until their due date, and whatever does not fit goes to the
+ * backlog. Days are indexed as offsets into int arrays, and full days are skipped with a
+ * path-halving "next day with room" forest, so a plan costs about one step per task placed
+ * plus one per day that fills up, instead of a walk over every day for every module.
+ */
+public final class StudyScheduler {
+
+    /** One module to place, with the minutes it needs and the last day it may use. */
+    public record Item(String moduleId, String title, int minutes, LocalDate dueDate) {}
+    public record Task(String moduleId, String title, int minutes, String dueDate) {}
+    public record Day(String date, int totalMinutes, List<Task> tasks) {}
+    public record Unplanned(String moduleId, int unplannedMinutes) {}
+    public record Plan(List<Day> schedule, List<Unplanned> backlog) {}
+
+    private StudyScheduler() {
+    }
+
+    public static Plan schedule(LocalDate start, int horizonDays, int dailyCapacityMinutes, List<Item> prioritized) {
+        int[] loads = new int[horizonDays];
+        // nextOpen[d] == d while day d has room; otherwise it points further right. Index horizonDays is a sentinel.
+        int[] nextOpen = new int[horizonDays + 1];
+        for (int d = 0; d <= horizonDays; d++) {
+            nextOpen[d] = d;
+        }
+        @SuppressWarnings("unchecked")
+        List<Task>[] tasks = new List[horizonDays];
+        List<Unplanned> backlog = new ArrayList<>();
+
+        for (Item item : prioritized) {
+            int remaining = item.minutes();
+            long untilDue = ChronoUnit.DAYS.between(start, item.dueDate());
+            int latest = (int) Math.min(untilDue, horizonDays - 1L);
+            String dueDate = item.dueDate().toString();
+            for (int day = open(nextOpen, 0); day <= latest && remaining > 0; day = open(nextOpen, day + 1)) {
+                int assigned = Math.min(dailyCapacityMinutes - loads[day], remaining);
+                if (tasks[day] == null) {
+                    tasks[day] = new ArrayList<>();
+                }
+                tasks[day].add(new Task(item.moduleId(), item.title(), assigned, dueDate));
+                loads[day] += assigned;
+                remaining -= assigned;
+                if (loads[day] == dailyCapacityMinutes) {
+                    nextOpen[day] = day + 1;
+                }
+            }
+            if (remaining > 0) {
+                backlog.add(new Unplanned(item.moduleId(), remaining));
+            }
+        }
+
+        List<Day> days = new ArrayList<>(horizonDays);
+        LocalDate date = start;
+        for (int d = 0; d < horizonDays; d++, date = date.plusDays(1)) {
+            days.add(new Day(date.toString(), loads[d], tasks[d] == null ? List.of() : tasks[d]));
+        }
+        return new Plan(days, backlog);
+    }
+
+    /** First day at or after {@code day} with room left, halving the path as it walks. */
+    private static int open(int[] nextOpen, int day) {
+        while (nextOpen[day] != day) {
+            nextOpen[day] = nextOpen[nextOpen[day]];
+            day = nextOpen[day];
+        }
+        return day;
+    }
+}
@@ -0,0 +1,248 @@
+package com.edusync.analytics.risk;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Token-level reader for learner signals that feeds a {@link RiskRanking} without binding each
+ * learner to an object: only the user ID string is allocated. Accepts the same shapes as the
+ * buffered at-risk endpoint, with numbers given as JSON numbers or numeric strings, and
+ * {@code lastActiveDaysAgo}/{@code missedDeadlines} truncated to whole values as before.
+ */
+public final class LearnerSignalReader {
+
+    public record Batch(String courseId, long rejected) {}
+
+    static final int SLICE_BYTES = 256 * 1024;
+
+    private record Slice(RiskRanking ranking, long rejected) {}
+
+    private LearnerSignalReader() {
+    }
+
+    /** Reads {@code {"courseId": ..., "learners": [...]}} from the parser's next token on. */
+    public static Batch readRequest(JsonParser parser, RiskRanking ranking) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object");
+        }
+        String courseId = null;
+        long rejected = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("courseId".equals(field) && value.isScalarValue()) {
+                courseId = value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+            } else if ("learners".equals(field) && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (!readLearner(parser, ranking)) {
+                        rejected++;
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new Batch(courseId, rejected);
+    }
+
+    /**
+     * Reads the learner at the parser's current token. Returns false, with the value skipped, if it
+     * is not an object or a field has the wrong type.
+     */
+    public static boolean readLearner(JsonParser parser, RiskRanking ranking) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return false;
+        }
+        String userId = null;
+        double completionRate = Double.NaN;
+        double averageScore = Double.NaN;
+        double inactivityDays = Double.NaN;
+        double missedDeadlines = Double.NaN;
+        boolean valid = true;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (!value.isScalarValue()) {
+                parser.skipChildren();
+                valid &= !isKnown(field);
+                continue;
+            }
+            try {
+                switch (field) {
+                    case "userId" -> userId = value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+                    case "completionRate" -> completionRate = number(parser, value, false);
+                    case "averageScore" -> averageScore = number(parser, value, false);
+                    case "lastActiveDaysAgo" -> inactivityDays = number(parser, value, true);
+                    case "missedDeadlines" -> missedDeadlines = number(parser, value, true);
+                    default -> {
+                    }
+                }
+            } catch (NumberFormatException e) {
+                valid = false;
+            }
+        }
+        if (valid) {
+            ranking.add(userId, completionRate, averageScore, inactivityDays, missedDeadlines);
+        }
+        return valid;
+    }
+
+    /**
+     * Ranks NDJSON input, one learner per line, into {@code ranking}. The raw bytes are cut at
+     * line boundaries into slices that are parsed and scored in parallel on {@code pool}, each
+     * into its own partial ranking, with a bounded number of slices in flight; input that fits
+     * one slice is ranked inline. Returns the number of rejected lines.
+     */
+    public static long readLines(InputStream in, JsonFactory factory, ForkJoinPool pool, RiskRanking ranking)
+            throws IOException {
+        int k = ranking.k();
+        int maxInFlight = 2 * pool.getParallelism();
+        Deque<Future<Slice>> inFlight = new ArrayDeque<>();
+        long rejected = 0;
+        long firstIndex = 0;
+        byte[] buffer = new byte[SLICE_BYTES];
+        int filled = 0;
+        int read;
+        while ((read = in.read(buffer, filled, buffer.length - filled)) >= 0) {
+            filled += read;
+            if (filled < buffer.length) {
+                continue;
+            }
+            int end = filled - 1;
+            while (end >= 0 && buffer[end] != '\n') {
+                end--;
+            }
+            if (end < 0) {
+                // A single line longer than the buffer.
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                continue;
+            }
+            byte[] slice = Arrays.copyOf(buffer, end + 1);
+            long sliceStart = firstIndex;
+            inFlight.add(pool.submit(() -> rankSlice(slice, sliceStart, factory, k)));
+            firstIndex += countLines(slice);
+            filled -= end + 1;
+            System.arraycopy(buffer, end + 1, buffer, 0, filled);
+            if (inFlight.size() >= maxInFlight) {
+                rejected += mergeInto(ranking, inFlight.poll());
+            }
+        }
+        if (filled > 0) {
+            Slice last = rankSlice(Arrays.copyOf(buffer, filled), firstIndex, factory, k);
+            ranking.merge(last.ranking());
+            rejected += last.rejected();
+        }
+        while (!inFlight.isEmpty()) {
+            rejected += mergeInto(ranking, inFlight.poll());
+        }
+        return rejected;
+    }
+
+    private static Slice rankSlice(byte[] slice, long firstIndex, JsonFactory factory, int k) throws IOException {
+        // Fast path: one parser over the whole slice. Any malformed line, or a line holding more
+        // than one value, sends the slice through the per-line path so rejections stay per line.
+        RiskRanking ranking = new RiskRanking(k, firstIndex);
+        long rejected = 0;
+        int values = 0;
+        try (JsonParser parser = factory.createParser(slice)) {
+            while (parser.nextToken() != null) {
+                values++;
+                if (!readLearner(parser, ranking)) {
+                    rejected++;
+                }
+            }
+        } catch (JsonProcessingException e) {
+            values = -1;
+        }
+        if (values == countLines(slice)) {
+            return new Slice(ranking, rejected);
+        }
+        ranking = new RiskRanking(k, firstIndex);
+        rejected = 0;
+        int start = 0;
+        for (int i = 0; i <= slice.length; i++) {
+            if (i < slice.length && slice[i] != '\n') {
+                continue;
+            }
+            if (!isBlank(slice, start, i)) {
+                try (JsonParser parser = factory.createParser(slice, start, i - start)) {
+                    parser.nextToken();
+                    if (!readLearner(parser, ranking)) {
+                        rejected++;
+                    }
+                } catch (JsonProcessingException e) {
+                    rejected++;
+                }
+            }
+            start = i + 1;
+        }
+        return new Slice(ranking, rejected);
+    }
+
+    /** Non-blank lines in {@code slice}. */
+    private static int countLines(byte[] slice) {
+        int lines = 0;
+        boolean content = false;
+        for (byte b : slice) {
+            if (b == '\n') {
+                lines += content ? 1 : 0;
+                content = false;
+            } else if (b != ' ' && b != '\t' && b != '\r') {
+                content = true;
+            }
+        }
+        return lines + (content ? 1 : 0);
+    }
+
+    private static boolean isBlank(byte[] slice, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (slice[i] != ' ' && slice[i] != '\t' && slice[i] != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long mergeInto(RiskRanking ranking, Future<Slice> pending) throws IOException {
+        try {
+            Slice slice = pending.get();
+            ranking.merge(slice.ranking());
+            return slice.rejected();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while ranking learners", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Ranking slice failed", e.getCause());
+        }
+    }
+
+    private static boolean isKnown(String field) {
+        return switch (field) {
+            case "userId", "completionRate", "averageScore", "lastActiveDaysAgo", "missedDeadlines" -> true;
+            default -> false;
+        };
+    }
+
+    private static double number(JsonParser parser, JsonToken value, boolean whole) throws IOException {
+        double number = switch (value) {
+            case VALUE_NULL -> Double.NaN;
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getDoubleValue();
+            case VALUE_STRING -> Double.parseDouble(parser.getText().trim());
+            default -> throw new NumberFormatException("not a number");
+        };
+        return whole && !Double.isNaN(number) ? (double) (long) number : number;
+    }
+}
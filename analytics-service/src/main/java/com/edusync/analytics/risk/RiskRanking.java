@@ -0,0 +1,182 @@
+package com.edusync.analytics.risk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming top-K over learner risk. Signals are buffered into primitive column chunks, each
+ * chunk is scored in one tight pass, and only learners that beat the current K-th riskiest enter
+ * a bounded min-heap. Level counts cover every learner seen. Memory is one chunk plus K entries
+ * however many learners stream through. Ties keep arrival order, as the full sort did, so partial
+ * rankings over consecutive slices of the input can be built in parallel and {@link #merge merged}.
+ * Not thread-safe; one instance per thread.
+ */
+public final class RiskRanking {
+
+    public record RankedLearner(String userId, int riskScore, String riskLevel, List<String> recommendations) {}
+    public record Result(long evaluated, long high, long medium, long low, List<RankedLearner> learners) {}
+
+    static final int CHUNK_SIZE = 16_384;
+
+    private final int k;
+
+    private final String[] ids = new String[CHUNK_SIZE];
+    private final double[] completion = new double[CHUNK_SIZE];
+    private final double[] average = new double[CHUNK_SIZE];
+    private final double[] inactivity = new double[CHUNK_SIZE];
+    private final double[] missed = new double[CHUNK_SIZE];
+    private final int[] scores = new int[CHUNK_SIZE];
+    private int pending;
+
+    private long evaluated;
+    private long nextIndex;
+    private final long[] levelCounts = new long[3];
+
+    // Min-heap of slot numbers ordered by key; a slot holds one retained learner's fields.
+    private final int[] heap;
+    private final long[] keys;
+    private final String[] heapIds;
+    private final double[] heapSignals;
+    private int heapSize;
+
+    public RiskRanking(int k) {
+        this(k, 0);
+    }
+
+    /** A ranking whose first learner arrives at position {@code firstIndex} of the whole input. */
+    public RiskRanking(int k, long firstIndex) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        this.k = k;
+        this.nextIndex = firstIndex;
+        this.heap = new int[k];
+        this.keys = new long[k];
+        this.heapIds = new String[k];
+        this.heapSignals = new double[k * 4];
+    }
+
+    public int k() {
+        return k;
+    }
+
+    /** Adds one learner; NaN for a signal that was not reported. */
+    public void add(String userId, double completionRate, double averageScore, double inactivityDays, double missedDeadlines) {
+        ids[pending] = userId;
+        completion[pending] = RiskScorer.completionRate(completionRate);
+        average[pending] = RiskScorer.averageScore(averageScore);
+        inactivity[pending] = RiskScorer.inactivityDays(inactivityDays);
+        missed[pending] = RiskScorer.missedDeadlines(missedDeadlines);
+        if (++pending == CHUNK_SIZE) {
+            flush();
+        }
+    }
+
+    /** Folds in a ranking built over another slice of the input; {@code other} is spent afterwards. */
+    public void merge(RiskRanking other) {
+        flush();
+        other.flush();
+        evaluated += other.evaluated;
+        for (int level = 0; level < levelCounts.length; level++) {
+            levelCounts[level] += other.levelCounts[level];
+        }
+        for (int i = 0; i < other.heapSize; i++) {
+            int slot = other.heap[i];
+            int base = slot * 4;
+            offer(other.keys[slot], other.heapIds[slot], other.heapSignals[base], other.heapSignals[base + 1],
+                    other.heapSignals[base + 2], other.heapSignals[base + 3]);
+        }
+    }
+
+    public Result finish() {
+        flush();
+        Integer[] order = new Integer[heapSize];
+        for (int i = 0; i < heapSize; i++) {
+            order[i] = heap[i];
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keys[b], keys[a]));
+        List<RankedLearner> learners = new ArrayList<>(heapSize);
+        for (int slot : order) {
+            int score = (int) (keys[slot] >>> 32);
+            int base = slot * 4;
+            String userId = heapIds[slot] == null || heapIds[slot].isBlank() ? "unknown" : heapIds[slot].trim();
+            learners.add(new RankedLearner(userId, score, RiskScorer.levelName(RiskScorer.level(score)),
+                    RiskScorer.recommendations(heapSignals[base], heapSignals[base + 1], heapSignals[base + 2], heapSignals[base + 3])));
+        }
+        return new Result(evaluated, levelCounts[RiskScorer.HIGH], levelCounts[RiskScorer.MEDIUM], levelCounts[RiskScorer.LOW], learners);
+    }
+
+    private void flush() {
+        int n = pending;
+        for (int i = 0; i < n; i++) {
+            scores[i] = RiskScorer.score(completion[i], average[i], inactivity[i], missed[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            int score = scores[i];
+            levelCounts[RiskScorer.level(score)]++;
+            // Higher score first, then earlier arrival: the low word counts down with the arrival index.
+            long key = ((long) score << 32) | (0xFFFF_FFFFL - (nextIndex++ & 0xFFFF_FFFFL));
+            offer(key, ids[i], completion[i], average[i], inactivity[i], missed[i]);
+        }
+        evaluated += n;
+        Arrays.fill(ids, 0, n, null);
+        pending = 0;
+    }
+
+    private void offer(long key, String userId, double completionRate, double averageScore,
+                       double inactivityDays, double missedDeadlines) {
+        if (heapSize < k) {
+            int slot = heapSize;
+            store(slot, key, userId, completionRate, averageScore, inactivityDays, missedDeadlines);
+            heap[heapSize++] = slot;
+            siftUp(heapSize - 1);
+        } else if (key > keys[heap[0]]) {
+            store(heap[0], key, userId, completionRate, averageScore, inactivityDays, missedDeadlines);
+            siftDown(0);
+        }
+    }
+
+    private void store(int slot, long key, String userId, double completionRate, double averageScore,
+                       double inactivityDays, double missedDeadlines) {
+        keys[slot] = key;
+        heapIds[slot] = userId;
+        int base = slot * 4;
+        heapSignals[base] = completionRate;
+        heapSignals[base + 1] = averageScore;
+        heapSignals[base + 2] = inactivityDays;
+        heapSignals[base + 3] = missedDeadlines;
+    }
+
+    private void siftUp(int index) {
+        int slot = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (keys[heap[parent]] <= keys[slot]) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = slot;
+    }
+
+    private void siftDown(int index) {
+        int slot = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && keys[heap[child + 1]] < keys[heap[child]]) {
+                child++;
+            }
+            if (keys[slot] <= keys[heap[child]]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = slot;
+    }
+}
@@ -0,0 +1,80 @@
+package com.edusync.analytics.risk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The at-risk score on primitives: each signal is clamped to its range (NaN meaning "not
+ * reported" falls back to a neutral value) and the weighted sum is rounded to 0..100.
+ */
+public final class RiskScorer {
+
+    public static final int HIGH = 2;
+    public static final int MEDIUM = 1;
+    public static final int LOW = 0;
+
+    private static final String[] LEVEL_NAMES = {"LOW", "MEDIUM", "HIGH"};
+
+    private RiskScorer() {
+    }
+
+    public static double completionRate(double value) {
+        return bound(value, 0.0, 1.0, 0.5);
+    }
+
+    public static double averageScore(double value) {
+        return bound(value, 0.0, 100.0, 65.0);
+    }
+
+    public static double inactivityDays(double value) {
+        return bound(value, 0.0, 30.0, 7.0);
+    }
+
+    public static double missedDeadlines(double value) {
+        return bound(value, 0.0, 6.0, 1.0);
+    }
+
+    /** Score from already-clamped signals. */
+    public static int score(double completionRate, double averageScore, double inactivityDays, double missedDeadlines) {
+        double score = (1.0 - completionRate) * 35.0
+                + (1.0 - (averageScore / 100.0)) * 30.0
+                + (inactivityDays / 30.0) * 20.0
+                + (missedDeadlines / 6.0) * 15.0;
+        return (int) Math.round(score);
+    }
+
+    public static int level(int score) {
+        return score >= 70 ? HIGH : score >= 40 ? MEDIUM : LOW;
+    }
+
+    public static String levelName(int level) {
+        return LEVEL_NAMES[level];
+    }
+
+    public static List<String> recommendations(double completionRate, double averageScore, double inactivityDays, double missedDeadlines) {
+        List<String> recs = new ArrayList<>();
+        if (completionRate < 0.55) {
+            recs.add("Schedule focused catch-up sessions on unfinished modules");
+        }
+        if (averageScore < 65.0) {
+            recs.add("Assign remedial quizzes before next graded assessment");
+        }
+        if (inactivityDays > 7.0) {
+            recs.add("Trigger outreach and re-engagement reminders this week");
+        }
+        if (missedDeadlines >= 2.0) {
+            recs.add("Offer deadline planning support and weekly checkpoints");
+        }
+        if (recs.isEmpty()) {
+            recs.add("Progress is stable; continue current pace");
+        }
+        return recs;
+    }
+
+    private static double bound(double value, double min, double max, double fallback) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return fallback;
+        }
+        return Math.max(min, Math.min(max, value));
+    }
+}
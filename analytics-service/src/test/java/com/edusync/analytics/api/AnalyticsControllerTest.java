@@ -1,5 +1,7 @@
 package com.edusync.analytics.api;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -7,8 +9,15 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -16,9 +25,14 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @AutoConfigureMockMvc
 class AnalyticsControllerTest {
 
+    private static final String INGEST_TOKEN = "changeme-analytics-ingest";
+
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Test
     void healthShouldReturnOk() throws Exception {
         mockMvc.perform(get("/analytics/health")).andExpect(status().isOk());
@@ -63,6 +77,51 @@ class AnalyticsControllerTest {
                 .andExpect(jsonPath("$.learners[0].riskLevel").value("HIGH"));
     }
 
+    @Test
+    void atRiskTopShouldKeepTheRiskiestAndCountEveryLevel() throws Exception {
+        String payload = """
+                {
+                  "courseId": "c-1",
+                  "learners": [
+                    {"userId":"u-low","completionRate":0.95,"averageScore":92,"lastActiveDaysAgo":1,"missedDeadlines":0},
+                    {"userId":"u-risk","completionRate":0.05,"averageScore":30,"lastActiveDaysAgo":30,"missedDeadlines":6},
+                    {"userId":"u-mid","completionRate":0.5,"averageScore":55,"lastActiveDaysAgo":10,"missedDeadlines":2}
+                  ]
+                }
+                """;
+        mockMvc.perform(post("/analytics/at-risk/top").param("k", "2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(payload))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.courseId").value("c-1"))
+                .andExpect(jsonPath("$.evaluated").value(3))
+                .andExpect(jsonPath("$.levels.HIGH").value(1))
+                .andExpect(jsonPath("$.levels.MEDIUM").value(1))
+                .andExpect(jsonPath("$.levels.LOW").value(1))
+                .andExpect(jsonPath("$.learners.length()").value(2))
+                .andExpect(jsonPath("$.learners[0].userId").value("u-risk"))
+                .andExpect(jsonPath("$.learners[1].userId").value("u-mid"));
+
+        mockMvc.perform(post("/analytics/at-risk/top").param("courseId", "c-2").param("k", "1")
+                        .contentType("application/x-ndjson")
+                        .content("{\"userId\":\"u-risk\",\"completionRate\":0.05,\"lastActiveDaysAgo\":30}\n{oops\n{\"userId\":\"u-ok\",\"completionRate\":1}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.courseId").value("c-2"))
+                .andExpect(jsonPath("$.evaluated").value(2))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.learners[0].userId").value("u-risk"));
+
+        mockMvc.perform(post("/analytics/at-risk/top").param("k", "0")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(payload))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/analytics/at-risk/top")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1,2"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("INVALID_BODY"));
+    }
+
     @Test
     void gradeForecastShouldReturnFeasibility() throws Exception {
         String payload = """
@@ -81,4 +140,245 @@ class AnalyticsControllerTest {
                 .andExpect(jsonPath("$.targetFinalGrade").value(85.0))
                 .andExpect(jsonPath("$.requiredAverageOnRemaining").exists());
     }
+
+    @Test
+    void gradeForecastSimulationShouldBeReproducible() throws Exception {
+        String payload = """
+                {
+                  "learnerId":"u-1",
+                  "completed":[{"name":"Quiz 1","weightPct":15,"scorePct":80},{"name":"Quiz 2","weightPct":15,"scorePct":92}],
+                  "remaining":[{"name":"Midterm","weightPct":30},{"name":"Final Exam","weightPct":40}],
+                  "targetFinalGrade":85,
+                  "simulation":{"trials":20000,"seed":99}
+                }
+                """;
+        String first = mockMvc.perform(post("/analytics/grade-forecast")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(payload))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requiredAverageOnRemaining").exists())
+                .andExpect(jsonPath("$.simulation.trials").value(20000))
+                .andExpect(jsonPath("$.simulation.seed").value(99))
+                .andExpect(jsonPath("$.simulation.percentiles.length()").value(5))
+                .andExpect(jsonPath("$.simulation.percentiles[2].quantile").value(0.5))
+                .andReturn().getResponse().getContentAsString();
+        String second = mockMvc.perform(post("/analytics/grade-forecast")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(payload))
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(objectMapper.readTree(first).get("simulation"), objectMapper.readTree(second).get("simulation"));
+
+        mockMvc.perform(post("/analytics/grade-forecast")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"remaining\":[{\"weightPct\":100}],\"simulation\":{\"trials\":0}}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("INVALID_TRIALS"));
+    }
+
+    @Test
+    void gradeDistributionShouldReflectIngestedGradeEvents() throws Exception {
+        String events = """
+                {"events":[
+                  {"submissionId":"s1","assessmentId":"a-dist","courseId":"c-dist","total":93},
+                  {"submissionId":"s2","assessmentId":"a-dist","courseId":"c-dist","total":61},
+                  {"submissionId":"s2","assessmentId":"a-dist","courseId":"c-dist","previousAssessmentId":"a-dist","previousTotal":61,"total":81},
+                  {"submissionId":"s3","total":50}
+                ]}
+                """;
+        mockMvc.perform(post("/analytics/grade-events")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(events))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.error").value("UNAUTHENTICATED"));
+        mockMvc.perform(post("/analytics/grade-events")
+                        .header(AnalyticsController.SERVICE_TOKEN_HEADER, "wrong")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(events))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/analytics/grade-events")
+                        .header(AnalyticsController.SERVICE_TOKEN_HEADER, INGEST_TOKEN)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(events))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(3))
+                .andExpect(jsonPath("$.ignored").value(1));
+
+        mockMvc.perform(get("/analytics/grade-distribution").param("courseId", "c-dist").param("quantiles", "0.5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(2))
+                .andExpect(jsonPath("$.bins[0].grade").value("A"))
+                .andExpect(jsonPath("$.bins[0].count").value(1))
+                .andExpect(jsonPath("$.bins[1].count").value(1))
+                .andExpect(jsonPath("$.bins[3].count").value(0))
+                .andExpect(jsonPath("$.percentiles[0].total").value(81));
+
+        mockMvc.perform(get("/analytics/grade-distribution"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/analytics/grade-distribution").param("assessmentId", "a-dist").param("quantiles", "1.5"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void gradeDistributionShouldBeReplaceableFromCurrentTotals() throws Exception {
+        mockMvc.perform(post("/analytics/grade-events")
+                        .header(AnalyticsController.SERVICE_TOKEN_HEADER, INGEST_TOKEN)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"events":[
+                                  {"submissionId":"s1","assessmentId":"a-resync","courseId":"c-resync","previousAssessmentId":"a-resync","previousTotal":40,"total":95}
+                                ]}
+                                """))
+                .andExpect(status().isAccepted());
+
+        String totals = "{\"courseId\":\"c-resync\",\"totals\":[95,72,72]}";
+        mockMvc.perform(put("/analytics/grade-distributions/a-resync")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(totals))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(put("/analytics/grade-distributions/a-resync")
+                        .header(AnalyticsController.SERVICE_TOKEN_HEADER, INGEST_TOKEN)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(totals))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(3));
+        mockMvc.perform(put("/analytics/grade-distributions/a-resync")
+                        .header(AnalyticsController.SERVICE_TOKEN_HEADER, INGEST_TOKEN)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"courseId\":\"c-resync\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("TOTALS_REQUIRED"));
+
+        // The unmatched removal of 40 is gone; only the rebuilt totals count.
+        mockMvc.perform(get("/analytics/grade-distribution").param("courseId", "c-resync").param("quantiles", "0.5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(3))
+                .andExpect(jsonPath("$.bins[0].count").value(1))
+                .andExpect(jsonPath("$.bins[2].count").value(2))
+                .andExpect(jsonPath("$.percentiles[0].total").value(72));
+    }
+
+    @Test
+    void engagementShouldCountDistinctUsersFromIngestedEvents() throws Exception {
+        mockMvc.perform(post("/analytics/events")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"events\":[{\"courseId\":\"c-anon\",\"userId\":\"u1\"}]}"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.error").value("UNAUTHENTICATED"));
+        mockMvc.perform(post("/analytics/events")
+                        .header(AnalyticsController.SERVICE_TOKEN_HEADER, "wrong")
+                        .contentType("application/x-ndjson")
+                        .content("{\"courseId\":\"c-anon\",\"userId\":\"u1\"}\n"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/analytics/engagement").param("courseId", "c-anon"))
+                .andExpect(jsonPath("$.mau").value(0));
+        mockMvc.perform(post("/analytics/events")
+                        .header(AnalyticsController.SERVICE_TOKEN_HEADER, INGEST_TOKEN)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"events":[
+                                  {"courseId":"c-eng","userId":"u1","type":"VIEW"},
+                                  {"courseId":"c-eng","userId":"u2","type":"VIEW"},
+                                  {"courseId":"c-eng","userId":"u1","type":"ENROLL"},
+                                  {"courseId":"c-eng","type":"VIEW"},
+                                  {"courseId":"c-eng","userId":"u3","occurredAt":"not-a-time"}
+                                ]}
+                                """))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(3))
+                .andExpect(jsonPath("$.rejected").value(2));
+        String yesterday = Instant.now().minus(Duration.ofDays(1)).toString();
+        mockMvc.perform(post("/analytics/events")
+                        .header(AnalyticsController.SERVICE_TOKEN_HEADER, INGEST_TOKEN)
+                        .contentType("application/x-ndjson")
+                        .content("{\"courseId\":\"c-eng\",\"userId\":\"u4\",\"occurredAt\":\"" + yesterday + "\"}\n{oops\n"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(1))
+                .andExpect(jsonPath("$.rejected").value(1));
+
+        mockMvc.perform(get("/analytics/engagement").param("courseId", "c-eng"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.dau").value(2))
+                .andExpect(jsonPath("$.wau").value(3))
+                .andExpect(jsonPath("$.mau").value(3));
+        mockMvc.perform(get("/analytics/engagement").param("courseId", "c-eng").param("date", "yesterday"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void funnelsShouldIntersectStagesFromIngestedEvents() throws Exception {
+        mockMvc.perform(post("/analytics/events")
+                        .header(AnalyticsController.SERVICE_TOKEN_HEADER, INGEST_TOKEN)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"events":[
+                                  {"courseId":"c-fun","userId":"u1","type":"VIEW","occurredAt":"2026-03-01T10:00:00Z"},
+                                  {"courseId":"c-fun","userId":"u2","type":"VIEW","occurredAt":"2026-03-01T11:00:00Z"},
+                                  {"courseId":"c-fun","userId":"u3","type":"VIEW","occurredAt":"2026-03-02T09:00:00Z"},
+                                  {"courseId":"c-fun","userId":"u1","type":"ENROLL","occurredAt":"2026-03-02T10:00:00Z"},
+                                  {"courseId":"c-fun","userId":"u2","type":"ENROLL","occurredAt":"2026-03-05T10:00:00Z"},
+                                  {"courseId":"c-fun","userId":"u1","type":"COMPLETE","occurredAt":"2026-03-09T10:00:00Z"},
+                                  {"courseId":"c-fun","userId":"u4","type":"COMPLETE","occurredAt":"2026-03-09T10:00:00Z"}
+                                ]}
+                                """))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(7));
+
+        mockMvc.perform(get("/analytics/funnels").param("courseId", "c-fun"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stages[0].stage").value("view"))
+                .andExpect(jsonPath("$.stages[0].count").value(3))
+                .andExpect(jsonPath("$.stages[1].count").value(2))
+                .andExpect(jsonPath("$.stages[2].count").value(1))
+                .andExpect(jsonPath("$.stages[2].conversion").value(0.5));
+        mockMvc.perform(get("/analytics/funnels").param("courseId", "c-fun")
+                        .param("stages", "view,enroll").param("from", "2026-03-01").param("to", "2026-03-02"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stages[0].count").value(3))
+                .andExpect(jsonPath("$.stages[1].count").value(1));
+        mockMvc.perform(get("/analytics/engagement").param("courseId", "c-fun"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completionRate").value(0.5));
+
+        mockMvc.perform(get("/analytics/funnels").param("courseId", "c-fun").param("stages", "view,,enroll"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/analytics/funnels").param("courseId", "c-fun").param("from", "2026-03-09").param("to", "2026-03-01"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void studyPlanBatchShouldStreamOnePlanPerLearnerInOrder() throws Exception {
+        String module = "{\"moduleId\":\"m1\",\"title\":\"Recursion\",\"estimatedMinutes\":120,\"difficulty\":4,\"dueDate\":\"2030-01-03\"}";
+        String body = "{\"learnerId\":\"u-1\",\"weeklyHours\":7,\"horizonDays\":5,\"modules\":[" + module + "]}\n"
+                + "{not json\n"
+                + "\n"
+                + "{\"learnerId\":\"u-2\",\"weeklyHours\":7,\"horizonDays\":5,\"modules\":[" + module + "]}\n";
+        String stream = mockMvc.perform(post("/analytics/study-plan/batch")
+                        .contentType("application/x-ndjson")
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = stream.split("\n");
+        assertEquals(4, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals("plan", first.get("type").asText());
+        assertEquals(1, first.get("line").asInt());
+        assertEquals("u-1", first.get("learnerId").asText());
+        assertEquals(60, first.get("schedule").get(0).get("totalMinutes").asInt());
+        JsonNode rejected = objectMapper.readTree(lines[1]);
+        assertEquals(2, rejected.get("line").asInt());
+        assertEquals("INVALID_REQUEST", rejected.get("error").asText());
+        assertEquals("u-2", objectMapper.readTree(lines[2]).get("learnerId").asText());
+        assertEquals(4, objectMapper.readTree(lines[2]).get("line").asInt());
+        JsonNode summary = objectMapper.readTree(lines[3]);
+        assertEquals(2, summary.get("planned").asInt());
+        assertEquals(1, summary.get("rejected").asInt());
+        assertEquals(1, summary.get("distinctModules").asInt());
+
+        mockMvc.perform(post("/analytics/study-plan/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"plans\":[{\"learnerId\":\"u-3\"}]}"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"learnerId\":\"u-3\"")));
+    }
 }
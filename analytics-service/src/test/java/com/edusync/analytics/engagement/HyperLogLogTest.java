@@ -0,0 +1,80 @@
+package com.edusync.analytics.engagement;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimatesShouldStayWithinThreeStandardErrors() {
+        int precision = HyperLogLog.precisionFor(0.02);
+        assertEquals(12, precision);
+        for (int distinct : new int[] {10, 1_000, 50_000, 500_000}) {
+            HyperLogLog sketch = new HyperLogLog(precision);
+            for (int i = 0; i < distinct; i++) {
+                long hash = HyperLogLog.hash("user-" + i);
+                sketch.add(hash);
+                sketch.add(hash);
+            }
+            double error = Math.abs(sketch.estimate() - distinct) / (double) distinct;
+            assertTrue(error <= 3 * HyperLogLog.standardError(precision), distinct + " -> " + sketch.estimate());
+        }
+    }
+
+    @Test
+    void concurrentWritersShouldMatchASingleWriter() throws Exception {
+        HyperLogLog shared = new HyperLogLog(11);
+        HyperLogLog single = new HyperLogLog(11);
+        for (int i = 0; i < 200_000; i++) {
+            single.add(HyperLogLog.hash("u" + i));
+        }
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+            threads.add(new Thread(() -> {
+                for (int i = offset; i < 200_000; i += 4) {
+                    shared.add(HyperLogLog.hash("u" + i));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // Registers only ever rise to the max rank seen, so no update may be lost.
+        for (int i = 0; i < 1 << 11; i++) {
+            assertEquals(single.register(i), shared.register(i));
+        }
+    }
+
+    @Test
+    void weeklyAndMonthlyCountsShouldMergeDistinctUsersAcrossDays() {
+        EngagementCounters counters = new EngagementCounters(0.02);
+        long today = 20_000;
+        for (int day = 0; day < 30; day++) {
+            // 100 regulars every day, plus 50 users seen only on this day.
+            for (int u = 0; u < 100; u++) {
+                counters.record("c1", HyperLogLog.hash("regular-" + u), today - day, today);
+            }
+            for (int u = 0; u < 50; u++) {
+                counters.record("c1", HyperLogLog.hash("day-" + day + "-" + u), today - day, today);
+            }
+        }
+        EngagementCounters.ActiveUsers active = counters.activeUsers("c1", today);
+        assertNear(150, active.dau());
+        assertNear(100 + 7 * 50, active.wau());
+        assertNear(100 + 30 * 50, active.mau());
+        assertFalse(counters.record("c1", HyperLogLog.hash("late"), today - 30, today));
+        assertEquals(new EngagementCounters.ActiveUsers(0, 0, 0), counters.activeUsers("unknown", today));
+    }
+
+    private static void assertNear(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= Math.max(3, expected * 0.06), "expected ~" + expected + " got " + actual);
+    }
+}
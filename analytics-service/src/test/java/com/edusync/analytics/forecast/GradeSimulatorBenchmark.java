@@ -0,0 +1,40 @@
+package com.edusync.analytics.forecast;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Latency of one simulated forecast at 100k trials for a learner with four completed and five
+ * remaining items, as p50/p99 over repeated calls on a pool with one thread per core. Not part of
+ * the test run; after {@code mvn -pl analytics-service test-compile} run it with
+ * {@code java -cp analytics-service/target/classes:analytics-service/target/test-classes com.edusync.analytics.forecast.GradeSimulatorBenchmark [trials] [calls]}.
+ */
+public final class GradeSimulatorBenchmark {
+
+    private GradeSimulatorBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int calls = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        GradeSimulator.Model model = GradeSimulator.model(new double[]{5, 5, 10, 10}, new double[]{70, 88, 64, 81},
+                21.65, new double[]{10, 15, 15, 10, 20});
+
+        double sink = 0.0;
+        for (int i = 0; i < 200; i++) {
+            sink += GradeSimulator.simulate(model, 75, trials, i, pool).probabilityOfTarget();
+        }
+        long[] nanos = new long[calls];
+        for (int i = 0; i < calls; i++) {
+            long startedAt = System.nanoTime();
+            sink += GradeSimulator.simulate(model, 75, trials, i, pool).probabilityOfTarget();
+            nanos[i] = System.nanoTime() - startedAt;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%d trials on %d threads: p50 %.2f ms, p99 %.2f ms, max %.2f ms (checksum %.3f)%n",
+                trials, pool.getParallelism(), nanos[calls / 2] / 1e6, nanos[(int) Math.ceil(calls * 0.99) - 1] / 1e6,
+                nanos[calls - 1] / 1e6, sink);
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,65 @@
+package com.edusync.analytics.forecast;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GradeSimulatorTest {
+
+    @Test
+    void aSeedShouldReproduceTheSameResultOnAnyPoolSize() {
+        GradeSimulator.Model model = GradeSimulator.model(new double[]{20, 10}, new double[]{78, 90}, 24.6,
+                new double[]{30, 40});
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool four = new ForkJoinPool(4);
+        try {
+            GradeSimulator.Result first = GradeSimulator.simulate(model, 80, 50_000, 7L, single);
+            GradeSimulator.Result second = GradeSimulator.simulate(model, 80, 50_000, 7L, four);
+            assertEquals(first, second);
+            assertNotEquals(first.probabilityOfTarget(), GradeSimulator.simulate(model, 80, 50_000, 8L, four).probabilityOfTarget());
+        } finally {
+            single.shutdownNow();
+            four.shutdownNow();
+        }
+    }
+
+    @Test
+    void bandsShouldFollowTheLearnersOwnSpread() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            // Steady 90s: the median lands near 90 and a target of 85 is very likely.
+            GradeSimulator.Model steady = GradeSimulator.model(new double[]{10, 10, 10, 10, 10, 10},
+                    new double[]{89, 91, 90, 90, 88, 92}, 54.0, new double[]{40});
+            assertEquals(90.0, steady.meanScore(), 1e-9);
+            GradeSimulator.Result result = GradeSimulator.simulate(steady, 85, 100_000, 1L, pool);
+            assertEquals(90.0, result.percentiles().get(2).finalGrade(), 0.5);
+            assertTrue(result.probabilityOfTarget() > 0.85, "got " + result.probabilityOfTarget());
+            for (int i = 1; i < result.percentiles().size(); i++) {
+                assertTrue(result.percentiles().get(i).finalGrade() >= result.percentiles().get(i - 1).finalGrade());
+            }
+
+            // Same average from scattered scores: wider bands (damped by the prior and the 100 ceiling),
+            // and the target is less certain.
+            GradeSimulator.Model erratic = GradeSimulator.model(new double[]{10, 10, 10, 10, 10, 10},
+                    new double[]{65, 100, 80, 100, 100, 95}, 54.0, new double[]{40});
+            GradeSimulator.Result scattered = GradeSimulator.simulate(erratic, 85, 100_000, 1L, pool);
+            double steadyBand = result.percentiles().get(4).finalGrade() - result.percentiles().get(0).finalGrade();
+            double erraticBand = scattered.percentiles().get(4).finalGrade() - scattered.percentiles().get(0).finalGrade();
+            assertTrue(erraticBand > 1.3 * steadyBand, steadyBand + " vs " + erraticBand);
+            assertTrue(scattered.probabilityOfTarget() < result.probabilityOfTarget());
+
+            // Nothing left to earn: the final grade is already fixed.
+            GradeSimulator.Result done = GradeSimulator.simulate(
+                    GradeSimulator.model(new double[]{100}, new double[]{72.5}, 72.5, new double[0]), 70, 1_000, 1L, pool);
+            assertEquals(1.0, done.probabilityOfTarget());
+            assertEquals(72.5, done.percentiles().get(0).finalGrade());
+            assertEquals(72.5, done.percentiles().get(4).finalGrade());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
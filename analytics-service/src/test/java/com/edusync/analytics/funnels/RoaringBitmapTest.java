@@ -0,0 +1,100 @@
+package com.edusync.analytics.funnels;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoaringBitmapTest {
+
+    @Test
+    void andAndOrShouldMatchBitSetAcrossSparseAndDenseChunks() {
+        SplittableRandom random = new SplittableRandom(21);
+        // Chunk 0 dense on both sides, chunk 1 dense vs sparse, chunk 2 sparse vs sparse, chunk 3 one side only.
+        int[][] densities = {{30_000, 20_000}, {10_000, 300}, {200, 150}, {500, 0}};
+        RoaringBitmap left = new RoaringBitmap();
+        RoaringBitmap right = new RoaringBitmap();
+        BitSet leftBits = new BitSet();
+        BitSet rightBits = new BitSet();
+        for (int chunk = 0; chunk < densities.length; chunk++) {
+            for (int i = 0; i < densities[chunk][0]; i++) {
+                int value = (chunk << 16) | random.nextInt(1 << 16);
+                left.add(value);
+                leftBits.set(value);
+            }
+            for (int i = 0; i < densities[chunk][1]; i++) {
+                int value = (chunk << 16) | random.nextInt(1 << 16);
+                right.add(value);
+                rightBits.set(value);
+            }
+        }
+        assertEquals(leftBits.cardinality(), left.cardinality());
+        assertTrue(left.contains(leftBits.nextSetBit(0)));
+        assertFalse(left.contains(leftBits.nextClearBit(0)));
+
+        RoaringBitmap and = left.copy();
+        and.and(right);
+        BitSet andBits = (BitSet) leftBits.clone();
+        andBits.and(rightBits);
+        assertEquals(andBits.cardinality(), and.cardinality());
+        for (int value = andBits.nextSetBit(0); value >= 0; value = andBits.nextSetBit(value + 1)) {
+            assertTrue(and.contains(value));
+        }
+
+        RoaringBitmap or = right.copy();
+        or.or(left);
+        BitSet orBits = (BitSet) leftBits.clone();
+        orBits.or(rightBits);
+        assertEquals(orBits.cardinality(), or.cardinality());
+        // The copies are independent of their sources.
+        assertEquals(leftBits.cardinality(), left.cardinality());
+        assertEquals(rightBits.cardinality(), right.cardinality());
+    }
+
+    @Test
+    void sparseStagesShouldStayArrayBacked() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int user = 0; user < 100_000; user += 50) {
+            bitmap.add(user);
+        }
+        assertEquals(2_000, bitmap.cardinality());
+        // Two bytes per user plus growth headroom, against 8 KiB per chunk once a chunk turns into a bitmap.
+        assertTrue(bitmap.sizeInBytes() <= 4 * 2_000, "got " + bitmap.sizeInBytes());
+    }
+
+    @Test
+    void funnelShouldCountUsersWhoReachedEveryEarlierStageInTheWindow() {
+        FunnelIndex index = new FunnelIndex();
+        for (int user = 0; user < 10_000; user++) {
+            index.record("c1", "view", "u" + user, 100);
+            if (user % 2 == 0) {
+                index.record("c1", "enroll", "u" + user, 101);
+            }
+            if (user % 5 == 0) {
+                // Half of these completers never enrolled, so they drop out of the funnel.
+                index.record("c1", "complete", "u" + user, 102);
+            }
+        }
+        index.record("c2", "enroll", "u1", 101);
+
+        List<FunnelIndex.StageCount> all = index.funnel("c1", List.of("view", "enroll", "complete"), null, null);
+        assertEquals(10_000, all.get(0).count());
+        assertNull(all.get(0).conversion());
+        assertEquals(5_000, all.get(1).count());
+        assertEquals(0.5, all.get(1).conversion());
+        assertEquals(1_000, all.get(2).count());
+        assertEquals(0.2, all.get(2).conversion());
+
+        List<FunnelIndex.StageCount> windowed = index.funnel("c1", List.of("view", "complete"), 101L, 102L);
+        assertEquals(0, windowed.get(0).count());
+        assertEquals(0, windowed.get(1).count());
+        assertEquals(2_000, index.funnel("c1", List.of("complete"), 101L, 102L).get(0).count());
+        assertEquals(0, index.funnel("c2", List.of("view", "enroll"), null, null).get(1).count());
+    }
+}
@@ -0,0 +1,76 @@
+package com.edusync.analytics.grades;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GradeDistributionsTest {
+
+    private static final double[] MEDIAN_AND_P90 = {0.5, 0.9};
+
+    @Test
+    void overridesShouldMoveTheOldTotalOutOfItsBin() {
+        GradeDistributions distributions = new GradeDistributions();
+        distributions.apply(new GradeDistributions.GradeChange("s1", "a1", "c1", null, null, 95));
+        distributions.apply(new GradeDistributions.GradeChange("s2", "a1", "c1", null, null, 72));
+        distributions.apply(new GradeDistributions.GradeChange("s3", "a2", null, null, null, 55));
+        // Regrade override on s2, and a later event that links a2 to the course.
+        distributions.apply(new GradeDistributions.GradeChange("s2", "a1", "c1", "a1", 72, 85));
+        distributions.apply(new GradeDistributions.GradeChange("s4", "a2", "c1", null, null, 64));
+
+        GradeDistributions.Distribution course = distributions.forCourse("c1", MEDIAN_AND_P90);
+        assertEquals(4, course.count());
+        assertEquals(List.of(
+                new GradeDistributions.Bin("A", 1),
+                new GradeDistributions.Bin("B", 1),
+                new GradeDistributions.Bin("C", 0),
+                new GradeDistributions.Bin("D", 1),
+                new GradeDistributions.Bin("F", 1)
+        ), course.bins());
+        assertEquals(74.75, course.mean());
+        assertEquals(2, distributions.forAssessment("a1", MEDIAN_AND_P90).count());
+        assertEquals(0, distributions.forCourse("unknown", MEDIAN_AND_P90).count());
+    }
+
+    @Test
+    void totalsOutsideZeroToHundredShouldBeCountedApartNotBinned() {
+        GradeDistributions distributions = new GradeDistributions();
+        distributions.apply(new GradeDistributions.GradeChange("s1", "a1", "c1", null, null, 150));
+        distributions.apply(new GradeDistributions.GradeChange("s2", "a1", "c1", null, null, 80));
+        distributions.apply(new GradeDistributions.GradeChange("s3", "a1", "c1", null, null, -5));
+
+        GradeDistributions.Distribution distribution = distributions.forAssessment("a1", MEDIAN_AND_P90);
+        assertEquals(1, distribution.count());
+        assertEquals(2, distribution.outOfRange());
+        assertEquals(0, distribution.bins().get(0).count());
+        assertEquals(80.0, distribution.mean());
+
+        // An override back into range moves the grade out of the out-of-range count.
+        distributions.apply(new GradeDistributions.GradeChange("s1", "a1", "c1", "a1", 150, 95));
+        GradeDistributions.Distribution course = distributions.forCourse("c1", MEDIAN_AND_P90);
+        assertEquals(2, course.count());
+        assertEquals(1, course.outOfRange());
+        assertEquals(1, course.bins().get(0).count());
+    }
+
+    @Test
+    void percentilesShouldMatchSortedTotals() {
+        GradeDistributions distributions = new GradeDistributions();
+        Random random = new Random(7);
+        int[] totals = new int[10_001];
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] = random.nextInt(101);
+            distributions.apply(new GradeDistributions.GradeChange("s" + i, "a1", "c1", null, null, totals[i]));
+        }
+        Arrays.sort(totals);
+        GradeDistributions.Distribution distribution = distributions.forCourse("c1", new double[] {0.0, 0.5, 0.9, 1.0});
+        assertEquals(totals[0], distribution.percentiles().get(0).total());
+        assertEquals(totals[5_000], distribution.percentiles().get(1).total());
+        assertEquals(totals[8_999], distribution.percentiles().get(2).total());
+        assertEquals(totals[10_000], distribution.percentiles().get(3).total());
+    }
+}
@@ -0,0 +1,49 @@
+package com.edusync.analytics.planning;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The original day-by-day {@code HashMap<LocalDate, Integer>} loop from the study-plan endpoint,
+ * kept as the reference that {@link StudyScheduler} must reproduce exactly.
+ */
+final class DayByDayScheduler {
+
+    private DayByDayScheduler() {
+    }
+
+    static StudyScheduler.Plan schedule(LocalDate start, int horizonDays, int dailyCapacityMinutes,
+                                        List<StudyScheduler.Item> prioritized) {
+        LocalDate end = start.plusDays(horizonDays - 1L);
+        Map<LocalDate, Integer> loads = new HashMap<>();
+        Map<LocalDate, List<StudyScheduler.Task>> schedule = new HashMap<>();
+        List<StudyScheduler.Unplanned> backlog = new ArrayList<>();
+        for (StudyScheduler.Item item : prioritized) {
+            int remaining = item.minutes();
+            LocalDate latest = item.dueDate().isBefore(end) ? item.dueDate() : end;
+            for (LocalDate day = start; !day.isAfter(latest) && remaining > 0; day = day.plusDays(1)) {
+                int used = loads.getOrDefault(day, 0);
+                int room = dailyCapacityMinutes - used;
+                if (room <= 0) {
+                    continue;
+                }
+                int assigned = Math.min(room, remaining);
+                schedule.computeIfAbsent(day, ignored -> new ArrayList<>())
+                        .add(new StudyScheduler.Task(item.moduleId(), item.title(), assigned, item.dueDate().toString()));
+                loads.put(day, used + assigned);
+                remaining -= assigned;
+            }
+            if (remaining > 0) {
+                backlog.add(new StudyScheduler.Unplanned(item.moduleId(), remaining));
+            }
+        }
+        List<StudyScheduler.Day> days = new ArrayList<>();
+        for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+            days.add(new StudyScheduler.Day(day.toString(), loads.getOrDefault(day, 0), schedule.getOrDefault(day, List.of())));
+        }
+        return new StudyScheduler.Plan(days, backlog);
+    }
+}
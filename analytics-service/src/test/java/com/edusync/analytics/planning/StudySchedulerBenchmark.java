@@ -0,0 +1,52 @@
+package com.edusync.analytics.planning;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Plans per second for 1,000 modules over a 365-day horizon, comparing {@link StudyScheduler}
+ * with the original day-by-day loop. Not part of the test run; after
+ * {@code mvn -pl analytics-service test-compile} run it with
+ * {@code java -cp analytics-service/target/classes:analytics-service/target/test-classes com.edusync.analytics.planning.StudySchedulerBenchmark [modules] [horizonDays]}.
+ */
+public final class StudySchedulerBenchmark {
+
+    private StudySchedulerBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int modules = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int horizonDays = args.length > 1 ? Integer.parseInt(args[1]) : 365;
+        int capacity = 120;
+        LocalDate start = LocalDate.of(2026, 9, 1);
+        SplittableRandom random = new SplittableRandom(42);
+        List<StudyScheduler.Item> items = new ArrayList<>(modules);
+        for (int m = 0; m < modules; m++) {
+            items.add(new StudyScheduler.Item("m" + m, "Module " + m, 15 + random.nextInt(240),
+                    start.plusDays(random.nextInt(horizonDays))));
+        }
+        if (!StudyScheduler.schedule(start, horizonDays, capacity, items)
+                .equals(DayByDayScheduler.schedule(start, horizonDays, capacity, items))) {
+            throw new IllegalStateException("schedules differ");
+        }
+        double dayByDay = plansPerSecond(() -> DayByDayScheduler.schedule(start, horizonDays, capacity, items));
+        double indexed = plansPerSecond(() -> StudyScheduler.schedule(start, horizonDays, capacity, items));
+        System.out.printf("%d modules over %d days: day-by-day %.1f plans/s (%.2f ms), indexed %.1f plans/s (%.2f ms)%n",
+                modules, horizonDays, dayByDay, 1000 / dayByDay, indexed, 1000 / indexed);
+    }
+
+    private static double plansPerSecond(Runnable plan) {
+        for (long warmUntil = System.nanoTime() + 2_000_000_000L; System.nanoTime() < warmUntil; ) {
+            plan.run();
+        }
+        int runs = 0;
+        long startedAt = System.nanoTime();
+        while (System.nanoTime() - startedAt < 3_000_000_000L) {
+            plan.run();
+            runs++;
+        }
+        return runs / ((System.nanoTime() - startedAt) / 1e9);
+    }
+}
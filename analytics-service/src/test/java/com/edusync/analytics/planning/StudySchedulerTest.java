@@ -0,0 +1,46 @@
+package com.edusync.analytics.planning;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StudySchedulerTest {
+
+    private static final LocalDate START = LocalDate.of(2026, 9, 1);
+
+    @Test
+    void shouldProduceTheSameScheduleAsTheDayByDayLoop() {
+        SplittableRandom random = new SplittableRandom(22);
+        for (int round = 0; round < 200; round++) {
+            int horizonDays = 1 + random.nextInt(120);
+            int capacity = 30 + random.nextInt(150);
+            List<StudyScheduler.Item> items = new ArrayList<>();
+            int modules = random.nextInt(80);
+            for (int m = 0; m < modules; m++) {
+                // Due dates range from before the start to past the horizon.
+                LocalDate due = START.plusDays(random.nextInt(horizonDays + 20) - 10L);
+                items.add(new StudyScheduler.Item("m" + m, "Module " + m, 15 + random.nextInt(400), due));
+            }
+            assertEquals(DayByDayScheduler.schedule(START, horizonDays, capacity, items),
+                    StudyScheduler.schedule(START, horizonDays, capacity, items), "round " + round);
+        }
+    }
+
+    @Test
+    void fullDaysShouldSpillIntoLaterDaysAndOverflowToTheBacklog() {
+        List<StudyScheduler.Item> items = List.of(
+                new StudyScheduler.Item("m1", "Recursion", 100, START.plusDays(1)),
+                new StudyScheduler.Item("m2", "Graphs", 90, START.plusDays(2)));
+        StudyScheduler.Plan plan = StudyScheduler.schedule(START, 3, 60, items);
+
+        assertEquals(List.of(60, 60, 60), plan.schedule().stream().map(StudyScheduler.Day::totalMinutes).toList());
+        assertEquals(List.of(new StudyScheduler.Task("m1", "Recursion", 40, "2026-09-02"),
+                new StudyScheduler.Task("m2", "Graphs", 20, "2026-09-03")), plan.schedule().get(1).tasks());
+        assertEquals(List.of(new StudyScheduler.Unplanned("m2", 10)), plan.backlog());
+    }
+}
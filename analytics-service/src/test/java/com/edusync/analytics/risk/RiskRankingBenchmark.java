@@ -0,0 +1,101 @@
+package com.edusync.analytics.risk;
+
+import com.edusync.analytics.api.AnalyticsController;
+import com.edusync.analytics.engagement.EngagementCounters;
+import com.edusync.analytics.funnels.FunnelIndex;
+import com.edusync.analytics.grades.GradeDistributions;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongSupplier;
+
+/**
+ * Time to rank one course's learners: binding the whole JSON request and scoring it with the
+ * buffered {@code /at-risk} path, against streaming the same body through {@link LearnerSignalReader}
+ * into a top-200 {@link RiskRanking}, and streaming it as NDJSON in parallel slices. Not part of the test
+ * run; after {@code mvn -pl analytics-service test-compile} run it with
+ * {@code java -Xmx4g -cp analytics-service/target/classes:analytics-service/target/test-classes:$(cat cp.txt) com.edusync.analytics.risk.RiskRankingBenchmark [learners]}
+ * where {@code cp.txt} comes from {@code mvn -pl analytics-service dependency:build-classpath -Dmdep.outputFile=cp.txt}.
+ */
+public final class RiskRankingBenchmark {
+
+    private RiskRankingBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int learners = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        SplittableRandom random = new SplittableRandom(42);
+        StringBuilder json = new StringBuilder(learners * 110).append("{\"courseId\":\"c-1\",\"learners\":[");
+        for (int i = 0; i < learners; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"userId\":\"u").append(i)
+                    .append("\",\"completionRate\":").append(random.nextInt(101) / 100.0)
+                    .append(",\"averageScore\":").append(random.nextInt(101))
+                    .append(",\"lastActiveDaysAgo\":").append(random.nextInt(40))
+                    .append(",\"missedDeadlines\":").append(random.nextInt(8)).append('}');
+        }
+        byte[] body = json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+        String text = new String(body, StandardCharsets.UTF_8);
+        byte[] ndjson = text.substring(text.indexOf('[') + 1, text.length() - 2).replace("},{", "}\n{")
+                .getBytes(StandardCharsets.UTF_8);
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        AnalyticsController controller = new AnalyticsController(new GradeDistributions(), new EngagementCounters(0.03),
+                new FunnelIndex(), 1, 1, objectMapper, "");
+        LongSupplier buffered = () -> {
+            try {
+                AnalyticsController.AtRiskRequest request = objectMapper.readValue(body, AnalyticsController.AtRiskRequest.class);
+                return controller.atRisk(request).size();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        LongSupplier streamed = () -> {
+            RiskRanking ranking = new RiskRanking(200);
+            try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+                LearnerSignalReader.readRequest(parser, ranking);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return ranking.finish().evaluated();
+        };
+        LongSupplier slices = () -> {
+            RiskRanking ranking = new RiskRanking(200);
+            try {
+                LearnerSignalReader.readLines(new ByteArrayInputStream(ndjson), objectMapper.getFactory(), pool, ranking);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return ranking.finish().evaluated();
+        };
+
+        System.out.printf("%d learners (%.1f MB body), %d cores%n", learners, body.length / 1e6, pool.getParallelism());
+        for (int round = 0; round < 3; round++) {
+            System.out.printf("  buffered bind + full sort:    %6.1f ms%n", millis(buffered));
+            System.out.printf("  streaming JSON top-200:       %6.1f ms%n", millis(streamed));
+            System.out.printf("  NDJSON parallel slices top-200:%6.1f ms%n", millis(slices));
+        }
+        pool.shutdown();
+    }
+
+    private static double millis(LongSupplier run) {
+        long best = Long.MAX_VALUE;
+        long sink = 0;
+        for (int i = 0; i < 5; i++) {
+            long startedAt = System.nanoTime();
+            sink += run.getAsLong();
+            best = Math.min(best, System.nanoTime() - startedAt);
+        }
+        if (sink == 42) {
+            System.out.print("");
+        }
+        return best / 1e6;
+    }
+}
@@ -0,0 +1,104 @@
+package com.edusync.analytics.risk;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RiskRankingTest {
+
+    private record Scored(int index, String userId, int score) {}
+
+    @Test
+    void parallelSlicesShouldMatchAFullStableSort() throws Exception {
+        SplittableRandom random = new SplittableRandom(24);
+        // About 20 slices' worth of lines.
+        int learners = 50_000;
+        StringBuilder ndjson = new StringBuilder();
+        List<Scored> all = new ArrayList<>();
+        long[] levels = new long[3];
+        RiskRanking serial = new RiskRanking(300);
+        for (int i = 0; i < learners; i++) {
+            // Coarse signals so many learners tie on score.
+            double completion = random.nextInt(11) / 10.0;
+            double average = random.nextInt(11) * 10.0;
+            double inactivity = random.nextInt(31);
+            double missed = random.nextInt(7);
+            ndjson.append("{\"userId\":\"u").append(i).append("\",\"completionRate\":").append(completion)
+                    .append(",\"averageScore\":").append(average).append(",\"lastActiveDaysAgo\":").append((int) inactivity)
+                    .append(",\"missedDeadlines\":").append((int) missed).append("}\n");
+            if (i % 1_000 == 0) {
+                ndjson.append("{broken\n");
+            }
+            serial.add("u" + i, completion, average, inactivity, missed);
+            int score = RiskScorer.score(RiskScorer.completionRate(completion), RiskScorer.averageScore(average),
+                    RiskScorer.inactivityDays(inactivity), RiskScorer.missedDeadlines(missed));
+            all.add(new Scored(i, "u" + i, score));
+            levels[RiskScorer.level(score)]++;
+        }
+        all.sort(Comparator.comparingInt(Scored::score).reversed());
+
+        RiskRanking parallel = new RiskRanking(300);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        long rejected;
+        try {
+            rejected = LearnerSignalReader.readLines(new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8)),
+                    new JsonFactory(), pool, parallel);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals((learners + 999) / 1_000, rejected);
+
+        for (RiskRanking.Result result : List.of(serial.finish(), parallel.finish())) {
+            assertEquals(learners, result.evaluated());
+            assertEquals(levels[RiskScorer.HIGH], result.high());
+            assertEquals(levels[RiskScorer.MEDIUM], result.medium());
+            assertEquals(levels[RiskScorer.LOW], result.low());
+            assertEquals(300, result.learners().size());
+            for (int i = 0; i < 300; i++) {
+                assertEquals(all.get(i).userId(), result.learners().get(i).userId(), "rank " + i);
+                assertEquals(all.get(i).score(), result.learners().get(i).riskScore());
+            }
+        }
+    }
+
+    @Test
+    void readerShouldStreamLearnersAndRejectMistypedOnes() throws Exception {
+        String body = """
+                {"learners":[
+                  {"userId":"u-risk","completionRate":0.05,"averageScore":"30","lastActiveDaysAgo":30.9,"missedDeadlines":6,"tags":["x"]},
+                  {"userId":"u-ok","completionRate":1,"averageScore":95,"lastActiveDaysAgo":0,"missedDeadlines":0},
+                  {"userId":"u-bad","completionRate":{"value":1}},
+                  "not a learner",
+                  {"averageScore":null}
+                ],"courseId":"c-1"}
+                """;
+        RiskRanking ranking = new RiskRanking(2);
+        LearnerSignalReader.Batch batch;
+        try (JsonParser parser = new JsonFactory().createParser(body)) {
+            batch = LearnerSignalReader.readRequest(parser, ranking);
+        }
+        RiskRanking.Result result = ranking.finish();
+
+        assertEquals("c-1", batch.courseId());
+        assertEquals(2, batch.rejected());
+        assertEquals(3, result.evaluated());
+        assertEquals(List.of("u-risk", "unknown"), result.learners().stream().map(RiskRanking.RankedLearner::userId).toList());
+        assertEquals(89, result.learners().get(0).riskScore());
+        assertEquals("HIGH", result.learners().get(0).riskLevel());
+        assertEquals(4, result.learners().get(0).recommendations().size());
+        assertEquals(1, result.high());
+        // All-default signals score 35, which is LOW.
+        assertEquals(0, result.medium());
+        assertEquals(2, result.low());
+    }
+}
@@ -0,0 +1,373 @@
+package com.edusync.grading.analytics;
+
+import com.edusync.grading.store.GradeChangeListener;
+import com.edusync.grading.store.GradeRecord;
+import com.edusync.grading.store.GradingStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Forwards every grade write to analytics-service, which keeps per-assessment grade
+ * histograms up to date from these instead of scanning grades. Changes are buffered and sent
+ * in batches from one background thread, so grading writes never wait on analytics. Each
+ * assessment's course is looked up once in assessment-service and cached.
+ *
+ * <p>Grading never waits on analytics: when the buffer is full a change is dropped rather than
+ * slowing the write, and a batch analytics keeps refusing is given up after a few retries with
+ * backoff. Either way the assessments it touched are marked for resync, and the sender later
+ * replaces their histograms with ones rebuilt from every current grade. Changes are numbered
+ * so a resync can tell which queued changes its snapshot already counts. A snapshot may also
+ * see a write the store has made but not yet reported here; the store counts such writes as
+ * in flight, and an assessment with one, or written again after the snapshot began, is simply
+ * resynced again later.
+ */
+@Component
+public class AnalyticsGradeFeed implements GradeChangeListener {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsGradeFeed.class);
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private static final String SERVICE_TOKEN_HEADER = "X-Service-Token";
+
+    public record Stats(boolean enabled, long sentChanges, long droppedChanges, long failedChanges, long batches,
+                        long retries, long resyncs, int pendingResyncs, int queuedChanges, int cachedCourses) {}
+
+    private record Change(long seq, String submissionId, String assessmentId, String previousAssessmentId,
+                          Integer previousTotal, int total) {}
+
+    private final ObjectMapper objectMapper;
+    private final Supplier<GradingStore> store;
+    private final boolean enabled;
+    private final String analyticsUrl;
+    private final URI gradeEventsUri;
+    private final String assessmentUrl;
+    private final String token;
+    private final int maxBatch;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final BlockingQueue<Change> queue;
+    private final Map<String, Optional<String>> courseByAssessment = new ConcurrentHashMap<>();
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    /** Assessments whose histogram in analytics may have missed changes. */
+    private final Set<String> needsResync = ConcurrentHashMap.newKeySet();
+    /** Sequence number of each assessment's latest change, to spot writes racing a resync. */
+    private final Map<String, Long> lastChange = new ConcurrentHashMap<>();
+    /** Changes up to this sequence number are counted by the assessment's last resync; sender thread only. */
+    private final Map<String, Long> resyncedThrough = new HashMap<>();
+    private Thread sender;
+    private volatile boolean running;
+    private volatile long sent;
+    private volatile long failed;
+    private volatile long batches;
+    private volatile long retries;
+    private volatile long resyncs;
+    private long resyncBackoffNanos;
+    private long nextResyncNanos;
+
+    @Autowired
+    public AnalyticsGradeFeed(ObjectMapper objectMapper, ObjectProvider<GradingStore> store,
+                              @Value("${grading.analytics.enabled:true}") boolean enabled,
+                              @Value("${grading.analytics.url:http://localhost:9008}") String analyticsUrl,
+                              @Value("${grading.analytics.assessment-url:http://localhost:9005}") String assessmentUrl,
+                              @Value("${grading.analytics.token:}") String token,
+                              @Value("${grading.analytics.buffer:65536}") int buffer,
+                              @Value("${grading.analytics.max-batch:500}") int maxBatch,
+                              @Value("${grading.analytics.max-attempts:8}") int maxAttempts,
+                              @Value("${grading.analytics.initial-backoff:PT0.2S}") Duration initialBackoff,
+                              @Value("${grading.analytics.max-backoff:PT30S}") Duration maxBackoff) {
+        // The store notifies this feed, so it is looked up lazily rather than injected.
+        this(objectMapper, store::getObject, enabled, analyticsUrl, assessmentUrl, token, buffer, maxBatch,
+                maxAttempts, initialBackoff, maxBackoff);
+    }
+
+    AnalyticsGradeFeed(ObjectMapper objectMapper, Supplier<GradingStore> store, boolean enabled, String analyticsUrl,
+                       String assessmentUrl, String token, int buffer, int maxBatch, int maxAttempts,
+                       Duration initialBackoff, Duration maxBackoff) {
+        this.objectMapper = objectMapper;
+        this.store = store;
+        this.enabled = enabled;
+        this.analyticsUrl = trimSlash(analyticsUrl);
+        this.gradeEventsUri = URI.create(this.analyticsUrl + "/analytics/grade-events");
+        this.assessmentUrl = trimSlash(assessmentUrl);
+        this.token = token;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, buffer));
+    }
+
+    @PostConstruct
+    synchronized void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        sender = new Thread(this::drain, "analytics-grade-feed");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    @Override
+    public void gradeChanged(GradeRecord previous, GradeRecord current) {
+        if (!enabled) {
+            return;
+        }
+        if (previous != null && previous.total() == current.total()
+                && Objects.equals(previous.assessmentId(), current.assessmentId())) {
+            return;
+        }
+        Change change = new Change(sequence.incrementAndGet(), current.submissionId(), current.assessmentId(),
+                previous == null ? null : previous.assessmentId(), previous == null ? null : previous.total(), current.total());
+        noteChange(change.assessmentId(), change.seq());
+        noteChange(change.previousAssessmentId(), change.seq());
+        if (!queue.offer(change)) {
+            dropped.incrementAndGet();
+            markForResync(change);
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(enabled, sent, dropped.get(), failed, batches, retries, resyncs, needsResync.size(),
+                queue.size(), courseByAssessment.size());
+    }
+
+    @PreDestroy
+    synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            sender.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        List<Change> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                if (running) {
+                    resyncDue();
+                }
+                Change first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                send(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void send(List<Change> batch) throws InterruptedException {
+        List<Map<String, Object>> events = new ArrayList<>(batch.size());
+        for (Change change : batch) {
+            // A side already counted by its assessment's resync snapshot is left out.
+            boolean currentCounted = resynced(change.assessmentId(), change.seq());
+            boolean previousCounted = resynced(change.previousAssessmentId(), change.seq());
+            if ((currentCounted || previousCounted)
+                    && (currentCounted || change.assessmentId() == null)
+                    && (previousCounted || change.previousAssessmentId() == null)) {
+                continue;
+            }
+            String assessmentId = currentCounted ? null : change.assessmentId();
+            Map<String, Object> event = new HashMap<>();
+            event.put("submissionId", change.submissionId());
+            event.put("assessmentId", assessmentId);
+            event.put("courseId", assessmentId == null ? null : courseOf(assessmentId));
+            event.put("previousAssessmentId", previousCounted ? null : change.previousAssessmentId());
+            event.put("previousTotal", previousCounted ? null : change.previousTotal());
+            event.put("total", assessmentId == null ? null : change.total());
+            events.add(event);
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        batches++;
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(Map.of("events", events));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        HttpRequest request = request(gradeEventsUri).POST(HttpRequest.BodyPublishers.ofByteArray(body)).build();
+        long backoff = initialBackoff.toNanos();
+        for (int attempt = 1; ; attempt++) {
+            if (deliver(request, batch.size() + " grade changes")) {
+                sent += events.size();
+                return;
+            }
+            if (attempt == maxAttempts || !running) {
+                break;
+            }
+            retries++;
+            TimeUnit.NANOSECONDS.sleep(backoff);
+            backoff = Math.min(backoff * 2, maxBackoff.toNanos());
+        }
+        failed += events.size();
+        for (Change change : batch) {
+            markForResync(change);
+        }
+    }
+
+    /**
+     * Rebuilds the histograms of assessments that missed changes. A resync that fails, or races
+     * a write to its assessment, is retried on the same backoff as batches, without a limit.
+     */
+    private void resyncDue() throws InterruptedException {
+        if (needsResync.isEmpty() || System.nanoTime() - nextResyncNanos < 0) {
+            return;
+        }
+        for (String assessmentId : List.copyOf(needsResync)) {
+            needsResync.remove(assessmentId);
+            if (!resync(assessmentId)) {
+                needsResync.add(assessmentId);
+                resyncBackoffNanos = resyncBackoffNanos == 0 ? initialBackoff.toNanos()
+                        : Math.min(resyncBackoffNanos * 2, maxBackoff.toNanos());
+                nextResyncNanos = System.nanoTime() + resyncBackoffNanos;
+                return;
+            }
+        }
+        resyncBackoffNanos = 0;
+    }
+
+    private boolean resync(String assessmentId) throws InterruptedException {
+        long through = sequence.get();
+        List<Integer> totals = new ArrayList<>();
+        GradingStore grades = store.get();
+        grades.forEachGrade(assessmentId, grade -> totals.add(grade.total()));
+        // A write still in flight may be in the snapshot yet get a number after it; once it is
+        // reported, its number is in lastChange. Checked in that order, either catches it.
+        if (grades.writesInFlight(assessmentId) || lastChange.getOrDefault(assessmentId, 0L) > through) {
+            return false;
+        }
+        Map<String, Object> body = new HashMap<>();
+        body.put("courseId", courseOf(assessmentId));
+        body.put("totals", totals);
+        URI uri = URI.create(analyticsUrl + "/analytics/grade-distributions/"
+                + URLEncoder.encode(assessmentId, StandardCharsets.UTF_8));
+        HttpRequest request;
+        try {
+            request = request(uri).PUT(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body))).build();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        if (!deliver(request, "resync of assessment " + assessmentId)) {
+            return false;
+        }
+        resyncedThrough.put(assessmentId, through);
+        resyncs++;
+        return true;
+    }
+
+    private boolean deliver(HttpRequest request, String what) throws InterruptedException {
+        try {
+            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() / 100 == 2) {
+                return true;
+            }
+            log.warn("Analytics rejected {} with HTTP {}", what, response.statusCode());
+        } catch (IOException e) {
+            log.warn("Could not send {} to analytics: {}", what, e.toString());
+        }
+        return false;
+    }
+
+    private HttpRequest.Builder request(URI uri) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header(SERVICE_TOKEN_HEADER, token);
+    }
+
+    private boolean resynced(String assessmentId, long seq) {
+        return assessmentId != null && seq <= resyncedThrough.getOrDefault(assessmentId, 0L);
+    }
+
+    private void noteChange(String assessmentId, long seq) {
+        if (assessmentId != null) {
+            lastChange.merge(assessmentId, seq, Math::max);
+        }
+    }
+
+    private void markForResync(Change change) {
+        if (change.assessmentId() != null) {
+            needsResync.add(change.assessmentId());
+        }
+        if (change.previousAssessmentId() != null) {
+            needsResync.add(change.previousAssessmentId());
+        }
+    }
+
+    /** Course of an assessment, or null. Unknown assessments are remembered; lookup failures are retried. */
+    private String courseOf(String assessmentId) throws InterruptedException {
+        Optional<String> cached = courseByAssessment.get(assessmentId);
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+        try {
+            HttpRequest request = HttpRequest.newBuilder(
+                            URI.create(assessmentUrl + "/assessments/" + URLEncoder.encode(assessmentId, StandardCharsets.UTF_8)))
+                    .timeout(TIMEOUT)
+                    .GET()
+                    .build();
+            HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() == 200) {
+                JsonNode courseId = objectMapper.readTree(response.body()).path("courseId");
+                Optional<String> course = courseId.isTextual() ? Optional.of(courseId.asText()) : Optional.empty();
+                courseByAssessment.put(assessmentId, course);
+                return course.orElse(null);
+            }
+            if (response.statusCode() == 404) {
+                courseByAssessment.put(assessmentId, Optional.empty());
+            }
+        } catch (IOException e) {
+            log.debug("Course lookup for assessment {} failed", assessmentId, e);
+        }
+        return null;
+    }
+
+    private static String trimSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
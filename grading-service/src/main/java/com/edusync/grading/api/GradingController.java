@@ -1,47 +1,99 @@
 package com.edusync.grading.api;
 
+import com.edusync.grading.analytics.AnalyticsGradeFeed;
+import com.edusync.grading.events.GradeEventDispatcher;
+import com.edusync.grading.events.GradePublishedEvent;
+import com.edusync.grading.export.GradebookExporter;
+import com.edusync.grading.runner.CodeJob;
+import com.edusync.grading.runner.CodeRunnerPool;
+import com.edusync.grading.runner.CodeTestSuite;
+import com.edusync.grading.scoring.AnswerKey;
+import com.edusync.grading.scoring.ScoringPlan;
+import com.edusync.grading.store.GradeRecord;
+import com.edusync.grading.store.GradeStatus;
+import com.edusync.grading.store.GradingStore;
+import com.edusync.grading.store.RegradeCase;
+import com.edusync.grading.store.Rubric;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/grading")
 public class GradingController {
 
-    private final Map<String, GradeRecord> grades = new ConcurrentHashMap<>();
-    private final Map<String, RegradeCase> regrades = new ConcurrentHashMap<>();
-
-    private record GradeRecord(
-            String submissionId,
-            Map<String, Object> breakdown,
-            int total,
-            String feedback,
-            String status,
-            String updatedAt
-    ) {
-    }
-
-    private record RegradeCase(
-            String requestId,
-            String submissionId,
-            String requestedBy,
-            String reason,
-            String status,
-            String requestedAt,
-            String decidedBy,
-            String decisionNote,
-            String decidedAt,
-            Integer overrideTotal
-    ) {
+    private static final int BATCH_CHUNK_SIZE = 256;
+    private static final Set<String> REGRADE_STATUSES = Set.of("PENDING", "APPROVED", "REJECTED");
+    private static final Rubric PLACEHOLDER_RUBRIC = Rubric.of("auto");
+
+    private final GradingStore store;
+    private final GradeEventDispatcher eventDispatcher;
+    private final GradebookExporter gradebookExporter;
+    private final CodeRunnerPool codeRunner;
+    private final AnalyticsGradeFeed analyticsFeed;
+    private final Map<String, ScoringPlan> answerKeys = new ConcurrentHashMap<>();
+    private final Map<String, CodeTestSuite> codeTestSuites = new ConcurrentHashMap<>();
+    private final ExecutorService autoGradePool;
+    private final ObjectMapper objectMapper;
+
+    public GradingController(GradingStore store, GradeEventDispatcher eventDispatcher, GradebookExporter gradebookExporter,
+                             CodeRunnerPool codeRunner, AnalyticsGradeFeed analyticsFeed,
+                             @Value("${grading.auto.parallelism:0}") int parallelism, ObjectMapper objectMapper) {
+        this.store = store;
+        this.eventDispatcher = eventDispatcher;
+        this.gradebookExporter = gradebookExporter;
+        this.codeRunner = codeRunner;
+        this.analyticsFeed = analyticsFeed;
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.autoGradePool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "auto-grade-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.objectMapper = objectMapper;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        autoGradePool.shutdownNow();
     }
 
     @GetMapping("/health")
@@ -49,22 +101,113 @@ public class GradingController {
         return Map.of("status", "UP", "timestamp", Instant.now().toString());
     }
 
-    public record ManualGradeRequest(@NotNull Map<String, Object> breakdown, String feedback) {}
+    public record ManualGradeRequest(@NotNull Map<String, Object> breakdown, String feedback, String assessmentId) {}
     public record RegradeRequestBody(@NotBlank String requestedBy, @NotBlank String reason) {}
     public record RegradeDecisionBody(@NotBlank String moderatorId, @NotBlank String decision, String note, Integer overrideTotal) {}
+    public record PublishBatchRequest(String assessmentId, List<String> submissionIds) {}
+    public record AutoGradeRequest(String assessmentId, List<Map<String, Object>> answers) {}
+    public record AutoGradeBatchRequest(@NotNull List<String> submissionIds) {}
+    public record CodeRunRequest(@NotBlank String assessmentId, @NotNull String source) {}
+    public record AutoGradeBatchLine(String submissionId, String assessmentId, List<Map<String, Object>> answers) {}
+
+    /** Regrade case as returned by the API; {@code currentGrade} is left out when the submission has no grade. */
+    public record ApiRegrade(String requestId, String submissionId, String status, String requestedBy, String reason,
+                             String requestedAt, String decidedBy, String decisionNote, String decidedAt,
+                             Integer overrideTotal, @JsonInclude(JsonInclude.Include.NON_NULL) CurrentGrade currentGrade) {
+        public record CurrentGrade(int total, GradeStatus status, String updatedAt) {}
+    }
+
+    private record BatchItem(int line, String submissionId, String assessmentId, List<Map<String, Object>> answers, String error) {}
 
+    @PutMapping("/assessments/{assessmentId}/answer-key")
+    public ResponseEntity<?> putAnswerKey(@PathVariable String assessmentId, @RequestBody AnswerKey key) {
+        ScoringPlan plan;
+        try {
+            plan = ScoringPlan.compile(key);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "INVALID_ANSWER_KEY", "message", e.getMessage()));
+        }
+        answerKeys.put(assessmentId, plan);
+        return ResponseEntity.ok(Map.of(
+                "assessmentId", assessmentId,
+                "questions", plan.questionCount(),
+                "maxPoints", plan.maxPoints()
+        ));
+    }
+
+    @PutMapping("/assessments/{assessmentId}/code-tests")
+    public ResponseEntity<?> putCodeTests(@PathVariable String assessmentId, @RequestBody CodeTestSuite suite) {
+        CodeTestSuite validated;
+        try {
+            validated = CodeTestSuite.validate(suite);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "INVALID_CODE_TESTS", "message", e.getMessage()));
+        }
+        codeTestSuites.put(assessmentId, validated);
+        return ResponseEntity.ok(Map.of(
+                "assessmentId", assessmentId,
+                "tests", validated.tests().size(),
+                "timeLimitMs", validated.timeLimitMs(),
+                "memoryMb", validated.memoryMb()
+        ));
+    }
+
+    /**
+     * Queues the submitted code to run against the assessment's instructor tests in the
+     * sandbox pool. The grade is written when the job finishes; poll the returned job id.
+     * A full queue is reported as 503 with Retry-After rather than queued without bound.
+     */
+    @PostMapping("/code/{submissionId}")
+    public ResponseEntity<?> runCode(@PathVariable String submissionId, @Valid @RequestBody CodeRunRequest req) {
+        CodeTestSuite suite = codeTestSuites.get(req.assessmentId());
+        if (suite == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "CODE_TESTS_NOT_FOUND"));
+        }
+        if (!codeRunner.available()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", "RUNNER_UNAVAILABLE"));
+        }
+        CodeJob job = codeRunner.submit(submissionId, req.assessmentId(), req.source(), suite);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", "QUEUE_FULL"));
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                "jobId", job.jobId(),
+                "submissionId", submissionId,
+                "status", job.status(),
+                "queueDepth", codeRunner.queueDepth()
+        ));
+    }
+
+    @GetMapping("/code/jobs/{jobId}")
+    public ResponseEntity<?> getCodeJob(@PathVariable String jobId) {
+        CodeJob job = codeRunner.job(jobId);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "NOT_FOUND"));
+        }
+        return ResponseEntity.ok(job);
+    }
+
+    @GetMapping("/code/metrics")
+    public CodeRunnerPool.Metrics codeRunnerMetrics() {
+        return codeRunner.metrics();
+    }
+
+    /**
+     * With a body naming an assessment, the answers are scored against that assessment's
+     * compiled answer key. Without one, the legacy placeholder score is kept so existing
+     * callers that only know the submission id keep working.
+     */
     @PostMapping("/auto/{submissionId}")
-    public ResponseEntity<?> auto(@PathVariable String submissionId) {
-        int total = 50 + Math.abs(submissionId.hashCode() % 51);
-        GradeRecord record = new GradeRecord(
-                submissionId,
-                Map.of("auto", total),
-                total,
-                "Auto-graded result",
-                "GRADED",
-                Instant.now().toString()
-        );
-        grades.put(submissionId, record);
+    public ResponseEntity<?> auto(@PathVariable String submissionId, @RequestBody(required = false) AutoGradeRequest req) {
+        String assessmentId = req == null ? null : req.assessmentId();
+        if (assessmentId != null && !answerKeys.containsKey(assessmentId)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "ANSWER_KEY_NOT_FOUND"));
+        }
+        GradeRecord record = autoGrade(submissionId, assessmentId, req == null ? null : req.answers());
+        int total = record.total();
+        store.putGrade(record);
 
         Map<String, Object> res = new HashMap<>();
         res.put("submissionId", submissionId);
@@ -73,20 +216,51 @@ public class GradingController {
         return ResponseEntity.ok(res);
     }
 
+    /**
+     * Grades many submissions in one call. Ids are graded in chunks on the bounded auto-grade
+     * pool; each chunk is stored with a single bulk write and its results are streamed back
+     * as NDJSON before the next chunk is read, followed by a throughput summary. An id listed
+     * twice is graded once per line and stored in line order, so the last line wins.
+     */
+    @PostMapping(value = "/auto/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = "application/x-ndjson")
+    public void autoBatch(@Valid @RequestBody AutoGradeBatchRequest req, HttpServletResponse response) throws IOException {
+        BatchRun run = startBatch(response);
+        int line = 0;
+        for (String submissionId : req.submissionIds()) {
+            run.add(new BatchItem(++line, submissionId, null, null,
+                    submissionId == null || submissionId.isBlank() ? "MISSING_SUBMISSION_ID" : null));
+        }
+        run.finish();
+    }
+
+    /**
+     * Streaming variant: one submission per line, either a JSON string id or
+     * {"submissionId": ..., "assessmentId": ..., "answers": [...]} to score against an answer key.
+     */
+    @PostMapping(value = "/auto/batch", consumes = "application/x-ndjson", produces = "application/x-ndjson")
+    public void autoBatchStream(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        BatchRun run = startBatch(response);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))) {
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (!line.isBlank()) {
+                    run.add(parseBatchLine(lineNumber, line));
+                }
+            }
+        }
+        run.finish();
+    }
+
     @PostMapping("/manual/{submissionId}")
     public ResponseEntity<?> manual(@PathVariable String submissionId, @Valid @RequestBody ManualGradeRequest req) {
         int total = req.breakdown().values().stream()
                 .mapToInt(value -> value instanceof Number n ? n.intValue() : 0)
                 .sum();
-        GradeRecord record = new GradeRecord(
-                submissionId,
-                req.breakdown(),
-                total,
-                req.feedback(),
-                "GRADED",
-                Instant.now().toString()
-        );
-        grades.put(submissionId, record);
+        GradeRecord record = GradeRecord.of(submissionId, req.assessmentId(), req.breakdown(), total, req.feedback(),
+                GradeStatus.GRADED, Instant.now());
+        store.putGrade(record);
 
         Map<String, Object> res = new HashMap<>();
         res.put("submissionId", submissionId);
@@ -98,25 +272,109 @@ public class GradingController {
 
     @PostMapping("/{submissionId}/publish")
     public ResponseEntity<?> publish(@PathVariable String submissionId) {
-        GradeRecord grade = grades.get(submissionId);
+        GradeRecord grade = store.grade(submissionId);
         if (grade == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "NOT_GRADED"));
         }
+        String publishedAt = Instant.now().toString();
+        if (!eventDispatcher.submit(List.of(toPublishedEvent(grade, publishedAt)))) {
+            return eventQueueFull();
+        }
         Map<String, Object> res = new HashMap<>();
         res.put("submissionId", submissionId);
         res.put("score", Map.of("total", grade.total(), "breakdown", grade.breakdown()));
         res.put("event", "GRADE_PUBLISHED");
-        res.put("publishedAt", Instant.now().toString());
+        res.put("publishedAt", publishedAt);
         return ResponseEntity.ok(res);
     }
 
-    @PostMapping("/regrade/{submissionId}/request")
-    public ResponseEntity<?> requestRegrade(@PathVariable String submissionId, @Valid @RequestBody RegradeRequestBody req) {
-        GradeRecord grade = grades.get(submissionId);
-        if (grade == null) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "NOT_GRADED"));
+    /**
+     * Publishes every grade of an assessment, or of the listed submissions, as one coalesced
+     * batch handed to the event dispatcher. Returns once the batch is queued, or with 503 and
+     * nothing published when the dispatcher has no room for it.
+     */
+    @PostMapping("/publish")
+    public ResponseEntity<?> publishBatch(@RequestBody PublishBatchRequest req) {
+        boolean byAssessment = req.assessmentId() != null && !req.assessmentId().isBlank();
+        if (byAssessment == (req.submissionIds() != null)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "ASSESSMENT_OR_SUBMISSIONS_REQUIRED"));
+        }
+        String publishedAt = Instant.now().toString();
+        List<GradePublishedEvent> events = new ArrayList<>();
+        List<String> notGraded = new ArrayList<>();
+        if (byAssessment) {
+            for (GradeRecord grade : store.gradesForAssessment(req.assessmentId())) {
+                events.add(toPublishedEvent(grade, publishedAt));
+            }
+        } else {
+            for (String submissionId : req.submissionIds()) {
+                GradeRecord grade = submissionId == null ? null : store.grade(submissionId);
+                if (grade == null) {
+                    notGraded.add(submissionId);
+                } else {
+                    events.add(toPublishedEvent(grade, publishedAt));
+                }
+            }
+        }
+        if (!eventDispatcher.submit(events)) {
+            return eventQueueFull();
         }
 
+        Map<String, Object> res = new HashMap<>();
+        res.put("event", "GRADE_PUBLISHED");
+        res.put("assessmentId", req.assessmentId());
+        res.put("published", events.size());
+        res.put("notGraded", notGraded);
+        res.put("publishedAt", publishedAt);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(res);
+    }
+
+    /**
+     * Streams the gradebook (optionally one assessment's) as CSV with one column per rubric
+     * key, or as NDJSON, writing rows to the response as they are read from the store.
+     */
+    @GetMapping("/export")
+    public void exportGradebook(@RequestParam(defaultValue = "csv") String format,
+                                @RequestParam(required = false) String assessmentId,
+                                HttpServletResponse response) throws IOException {
+        String normalizedFormat = format.trim().toLowerCase();
+        if (!"csv".equals(normalizedFormat) && !"ndjson".equals(normalizedFormat)) {
+            writeError(response, HttpStatus.BAD_REQUEST, "INVALID_FORMAT");
+            return;
+        }
+        response.setStatus(HttpStatus.OK.value());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("gradebook." + normalizedFormat)
+                .build()
+                .toString());
+        if ("csv".equals(normalizedFormat)) {
+            response.setContentType("text/csv;charset=UTF-8");
+            Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8), 64 * 1024);
+            gradebookExporter.writeCsv(assessmentId, writer);
+        } else {
+            response.setContentType("application/x-ndjson");
+            gradebookExporter.writeNdjson(assessmentId, new BufferedOutputStream(response.getOutputStream(), 64 * 1024));
+        }
+    }
+
+    private static ResponseEntity<?> eventQueueFull() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", "QUEUE_FULL"));
+    }
+
+    @GetMapping("/events/stats")
+    public GradeEventDispatcher.Stats eventStats() {
+        return eventDispatcher.stats();
+    }
+
+    @GetMapping("/events/analytics-feed")
+    public AnalyticsGradeFeed.Stats analyticsFeedStats() {
+        return analyticsFeed.stats();
+    }
+
+    @PostMapping("/regrade/{submissionId}/request")
+    public ResponseEntity<?> requestRegrade(@PathVariable String submissionId, @Valid @RequestBody RegradeRequestBody req) {
         String requestId = "rg-" + UUID.randomUUID();
         RegradeCase regrade = new RegradeCase(
                 requestId,
@@ -130,14 +388,17 @@ public class GradingController {
                 null,
                 null
         );
-        regrades.put(requestId, regrade);
+        GradeRecord grade = store.openRegrade(regrade);
+        if (grade == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "NOT_GRADED"));
+        }
 
         return ResponseEntity.status(HttpStatus.CREATED).body(toApiRegrade(regrade, grade));
     }
 
     @PostMapping("/regrade/{requestId}/decision")
     public ResponseEntity<?> decideRegrade(@PathVariable String requestId, @Valid @RequestBody RegradeDecisionBody req) {
-        RegradeCase current = regrades.get(requestId);
+        RegradeCase current = store.regrade(requestId);
         if (current == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "NOT_FOUND"));
         }
@@ -150,73 +411,233 @@ public class GradingController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "INVALID_DECISION"));
         }
 
-        GradeRecord grade = grades.get(current.submissionId());
-        if (grade == null) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "NOT_GRADED"));
-        }
-
-        GradeRecord updatedGrade = grade;
-        Integer overrideTotal = null;
-        if ("APPROVE".equals(normalizedDecision) && req.overrideTotal() != null) {
-            int normalizedTotal = Math.max(0, Math.min(100, req.overrideTotal()));
-            overrideTotal = normalizedTotal;
-            updatedGrade = new GradeRecord(
-                    grade.submissionId(),
-                    grade.breakdown(),
-                    normalizedTotal,
-                    grade.feedback(),
-                    "GRADED_OVERRIDDEN",
-                    Instant.now().toString()
-            );
-            grades.put(grade.submissionId(), updatedGrade);
-        }
-
-        RegradeCase decided = new RegradeCase(
-                current.requestId(),
-                current.submissionId(),
-                current.requestedBy(),
-                current.reason(),
-                "APPROVE".equals(normalizedDecision) ? "APPROVED" : "REJECTED",
-                current.requestedAt(),
-                req.moderatorId(),
-                req.note(),
-                Instant.now().toString(),
-                overrideTotal
-        );
-        regrades.put(requestId, decided);
-
-        return ResponseEntity.ok(toApiRegrade(decided, updatedGrade));
+        // The checks above are a fast path; the store re-checks PENDING inside the transition.
+        Integer overrideTotal = req.overrideTotal() == null ? null : Math.max(0, Math.min(100, req.overrideTotal()));
+        GradingStore.Decision decision = store.decide(requestId, "APPROVE".equals(normalizedDecision),
+                req.moderatorId(), req.note(), overrideTotal, Instant.now());
+        return switch (decision.outcome()) {
+            case APPLIED -> ResponseEntity.ok(toApiRegrade(decision.regrade(), decision.grade()));
+            case ALREADY_DECIDED -> ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "ALREADY_DECIDED"));
+            case NOT_GRADED -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "NOT_GRADED"));
+            case NOT_FOUND -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "NOT_FOUND"));
+        };
     }
 
     @GetMapping("/regrade/{requestId}")
     public ResponseEntity<?> getRegrade(@PathVariable String requestId) {
-        RegradeCase regrade = regrades.get(requestId);
+        RegradeCase regrade = store.regrade(requestId);
         if (regrade == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "NOT_FOUND"));
         }
-        GradeRecord grade = grades.get(regrade.submissionId());
+        GradeRecord grade = store.grade(regrade.submissionId());
         return ResponseEntity.ok(toApiRegrade(regrade, grade));
     }
 
-    private Map<String, Object> toApiRegrade(RegradeCase regrade, GradeRecord grade) {
+    /**
+     * Moderator queue. With {@code submissionId}, lists all of that submission's cases, or only
+     * those in {@code status} when given; otherwise pages through one status (PENDING by
+     * default), oldest request first.
+     */
+    @GetMapping("/regrades")
+    public ResponseEntity<?> listRegrades(@RequestParam(required = false) String status,
+                                          @RequestParam(required = false) String submissionId,
+                                          @RequestParam(required = false) String cursor,
+                                          @RequestParam(defaultValue = "20") int limit) {
+        String normalizedStatus = status == null ? null : status.trim().toUpperCase();
+        if (normalizedStatus != null && !REGRADE_STATUSES.contains(normalizedStatus)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "INVALID_STATUS"));
+        }
+        if (submissionId != null) {
+            GradeRecord grade = store.grade(submissionId);
+            List<ApiRegrade> items = store.regradesForSubmission(submissionId).stream()
+                    .filter(regrade -> normalizedStatus == null || regrade.status().equals(normalizedStatus))
+                    .map(regrade -> toApiRegrade(regrade, grade))
+                    .toList();
+            Map<String, Object> response = new HashMap<>();
+            response.put("items", items);
+            response.put("nextCursor", null);
+            return ResponseEntity.ok(response);
+        }
+        GradingStore.QueueKey after = parseCursor(cursor);
+        if (cursor != null && after == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "INVALID_CURSOR"));
+        }
+        GradingStore.Page page = store.pageByStatus(normalizedStatus == null ? "PENDING" : normalizedStatus, after,
+                Math.max(1, Math.min(100, limit)));
         Map<String, Object> response = new HashMap<>();
-        response.put("requestId", regrade.requestId());
-        response.put("submissionId", regrade.submissionId());
-        response.put("status", regrade.status());
-        response.put("requestedBy", regrade.requestedBy());
-        response.put("reason", regrade.reason());
-        response.put("requestedAt", regrade.requestedAt());
-        response.put("decidedBy", regrade.decidedBy());
-        response.put("decisionNote", regrade.decisionNote());
-        response.put("decidedAt", regrade.decidedAt());
-        response.put("overrideTotal", regrade.overrideTotal());
-        if (grade != null) {
-            response.put("currentGrade", Map.of(
-                    "total", grade.total(),
-                    "status", grade.status(),
-                    "updatedAt", grade.updatedAt()
-            ));
-        }
-        return response;
+        response.put("items", page.items().stream()
+                .map(regrade -> toApiRegrade(regrade, store.grade(regrade.submissionId())))
+                .toList());
+        response.put("nextCursor", page.nextCursor() == null ? null
+                : page.nextCursor().requestedAtNanos() + "-" + page.nextCursor().sequence());
+        return ResponseEntity.ok(response);
+    }
+
+    private GradingStore.QueueKey parseCursor(String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        int dash = cursor.indexOf('-');
+        try {
+            return dash < 0 ? null : new GradingStore.QueueKey(
+                    Long.parseLong(cursor.substring(0, dash)), Long.parseLong(cursor.substring(dash + 1)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private GradeRecord autoGrade(String submissionId, String assessmentId, List<Map<String, Object>> answers) {
+        ScoringPlan plan = assessmentId == null ? null : answerKeys.get(assessmentId);
+        if (plan != null) {
+            double[] points = new double[plan.questionCount()];
+            int total = plan.percent(plan.score(answers, points));
+            String[] questionIds = new String[points.length];
+            for (int q = 0; q < points.length; q++) {
+                questionIds[q] = plan.questionId(q);
+                points[q] = round2(points[q]);
+            }
+            return GradeRecord.of(submissionId, assessmentId, Rubric.of(questionIds), points, total,
+                    "Auto-graded against answer key", GradeStatus.GRADED, Instant.now());
+        }
+        int total = 50 + Math.abs(submissionId.hashCode() % 51);
+        return GradeRecord.of(submissionId, null, PLACEHOLDER_RUBRIC, new double[] {total}, total, "Auto-graded result",
+                GradeStatus.GRADED, Instant.now());
+    }
+
+    private static GradePublishedEvent toPublishedEvent(GradeRecord grade, String publishedAt) {
+        return new GradePublishedEvent(grade.submissionId(), grade.assessmentId(), grade.total(), grade.breakdown(), publishedAt);
+    }
+
+    private BatchItem parseBatchLine(int lineNumber, String line) {
+        AutoGradeBatchLine parsed;
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            parsed = node.isTextual()
+                    ? new AutoGradeBatchLine(node.asText(), null, null)
+                    : objectMapper.treeToValue(node, AutoGradeBatchLine.class);
+        } catch (IOException e) {
+            return new BatchItem(lineNumber, null, null, null, "INVALID_JSON");
+        }
+        if (parsed.submissionId() == null || parsed.submissionId().isBlank()) {
+            return new BatchItem(lineNumber, null, null, null, "MISSING_SUBMISSION_ID");
+        }
+        if (parsed.assessmentId() != null && !answerKeys.containsKey(parsed.assessmentId())) {
+            return new BatchItem(lineNumber, parsed.submissionId(), null, null, "ANSWER_KEY_NOT_FOUND");
+        }
+        return new BatchItem(lineNumber, parsed.submissionId(), parsed.assessmentId(), parsed.answers(), null);
+    }
+
+    private BatchRun startBatch(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType("application/x-ndjson");
+        return new BatchRun(response.getOutputStream());
+    }
+
+    private final class BatchRun {
+        private final OutputStream out;
+        private final long startedAt = System.nanoTime();
+        private final List<BatchItem> chunk = new ArrayList<>(BATCH_CHUNK_SIZE);
+        private int graded;
+        private int rejected;
+
+        private BatchRun(OutputStream out) {
+            this.out = out;
+        }
+
+        void add(BatchItem item) throws IOException {
+            chunk.add(item);
+            if (chunk.size() == BATCH_CHUNK_SIZE) {
+                flushChunk();
+            }
+        }
+
+        void finish() throws IOException {
+            flushChunk();
+            long elapsedNanos = System.nanoTime() - startedAt;
+            Map<String, Object> summary = new HashMap<>();
+            summary.put("type", "summary");
+            summary.put("graded", graded);
+            summary.put("rejected", rejected);
+            summary.put("elapsedMs", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+            summary.put("throughputPerSec", elapsedNanos == 0 ? 0.0 : round2(graded * 1e9 / elapsedNanos));
+            writeLine(out, summary);
+            out.flush();
+        }
+
+        private void flushChunk() throws IOException {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            List<Callable<GradeRecord>> tasks = new ArrayList<>(chunk.size());
+            for (BatchItem item : chunk) {
+                if (item.error() == null) {
+                    tasks.add(() -> autoGrade(item.submissionId(), item.assessmentId(), item.answers()));
+                }
+            }
+            List<Future<GradeRecord>> futures;
+            try {
+                futures = autoGradePool.invokeAll(tasks);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while grading batch", e);
+            }
+            // Results stay paired with their line, so a submission listed twice gets each line's
+            // own grade and is stored in line order.
+            GradeRecord[] results = new GradeRecord[chunk.size()];
+            List<GradeRecord> records = new ArrayList<>(tasks.size());
+            Iterator<Future<GradeRecord>> pending = futures.iterator();
+            for (int i = 0; i < results.length; i++) {
+                if (chunk.get(i).error() != null) {
+                    continue;
+                }
+                try {
+                    results[i] = pending.next().get();
+                    records.add(results[i]);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while grading batch", e);
+                } catch (ExecutionException e) {
+                    // autoGrade is pure; a failure here leaves the item reported as rejected below.
+                }
+            }
+            store.putGrades(records);
+            for (int i = 0; i < results.length; i++) {
+                BatchItem item = chunk.get(i);
+                GradeRecord record = results[i];
+                if (record != null) {
+                    graded++;
+                    writeLine(out, Map.of("type", "result", "line", item.line(), "submissionId", record.submissionId(),
+                            "status", record.status(), "total", record.total()));
+                } else {
+                    rejected++;
+                    writeLine(out, Map.of("type", "result", "line", item.line(), "status", "REJECTED",
+                            "error", item.error() == null ? "GRADING_FAILED" : item.error()));
+                }
+            }
+            out.flush();
+            chunk.clear();
+        }
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String error) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(objectMapper.writeValueAsBytes(Map.of("error", error)));
+    }
+
+    private void writeLine(OutputStream out, Object value) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(value));
+        out.write('\n');
+    }
+
+    private static double round2(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    private static ApiRegrade toApiRegrade(RegradeCase regrade, GradeRecord grade) {
+        return new ApiRegrade(regrade.requestId(), regrade.submissionId(), regrade.status(), regrade.requestedBy(),
+                regrade.reason(), regrade.requestedAt(), regrade.decidedBy(), regrade.decisionNote(), regrade.decidedAt(),
+                regrade.overrideTotal(),
+                grade == null ? null : new ApiRegrade.CurrentGrade(grade.total(), grade.status(), grade.updatedAt()));
     }
 }
@@ -0,0 +1,165 @@
+package com.edusync.grading.events;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffers publish events and hands them to every {@link GradeEventSink} from a single
+ * dispatcher thread. Callers submit whole batches; the dispatcher coalesces whatever is
+ * queued into sink calls of up to {@code grading.events.max-batch} events. The buffer is
+ * bounded in events, not batches, so a slow sink pushes back on publishers instead of growing
+ * the heap. A publisher waits at most {@code grading.events.offer-timeout} for room and is
+ * then turned away; a batch larger than the whole buffer is refused outright.
+ */
+@Component
+public class GradeEventDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(GradeEventDispatcher.class);
+
+    public record Stats(long submittedEvents, long rejectedEvents, long dispatchedEvents, long failedEvents, long sinkCalls,
+                        int queuedEvents) {}
+
+    private final List<GradeEventSink> sinks;
+    private final int maxBatch;
+    private final int bufferEvents;
+    private final long offerTimeoutNanos;
+    /** One permit per event of room left in the buffer; the dispatcher returns them once sinks are called. */
+    private final Semaphore room;
+    private final BlockingQueue<List<GradePublishedEvent>> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong submittedEvents = new AtomicLong();
+    private final AtomicLong rejectedEvents = new AtomicLong();
+    private Thread dispatcher;
+    private volatile boolean running;
+    private volatile long dispatchedEvents;
+    private volatile long failedEvents;
+    private volatile long sinkCalls;
+
+    public GradeEventDispatcher(List<GradeEventSink> sinks,
+                                @Value("${grading.events.buffer-events:65536}") int bufferEvents,
+                                @Value("${grading.events.max-batch:500}") int maxBatch,
+                                @Value("${grading.events.offer-timeout:PT2S}") Duration offerTimeout) {
+        this.sinks = List.copyOf(sinks);
+        this.maxBatch = Math.max(1, maxBatch);
+        this.bufferEvents = Math.max(1, bufferEvents);
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        this.room = new Semaphore(this.bufferEvents);
+    }
+
+    @PostConstruct
+    synchronized void start() {
+        running = true;
+        dispatcher = new Thread(this::drain, "grade-event-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Queues a batch whole, in chunks of at most max-batch events, waiting up to the offer
+     * timeout for room. Returns false, queueing nothing, when the buffer stays too full.
+     */
+    public boolean submit(List<GradePublishedEvent> events) {
+        if (events.isEmpty()) {
+            return true;
+        }
+        boolean admitted = false;
+        if (events.size() <= bufferEvents) {
+            try {
+                admitted = room.tryAcquire(events.size(), offerTimeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!admitted) {
+            rejectedEvents.addAndGet(events.size());
+            return false;
+        }
+        submittedEvents.addAndGet(events.size());
+        for (int from = 0; from < events.size(); from += maxBatch) {
+            queue.add(List.copyOf(events.subList(from, Math.min(events.size(), from + maxBatch))));
+        }
+        return true;
+    }
+
+    public Stats stats() {
+        return new Stats(submittedEvents.get(), rejectedEvents.get(), dispatchedEvents, failedEvents, sinkCalls,
+                bufferEvents - room.availablePermits());
+    }
+
+    @PreDestroy
+    synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            dispatcher.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        List<List<GradePublishedEvent>> batches = new ArrayList<>();
+        List<GradePublishedEvent> chunk = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                List<GradePublishedEvent> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batches.add(first);
+                queue.drainTo(batches);
+                for (List<GradePublishedEvent> batch : batches) {
+                    for (GradePublishedEvent event : batch) {
+                        chunk.add(event);
+                        if (chunk.size() == maxBatch) {
+                            dispatch(chunk);
+                        }
+                    }
+                }
+                dispatch(chunk);
+                batches.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void dispatch(List<GradePublishedEvent> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<GradePublishedEvent> batch = List.copyOf(chunk);
+        chunk.clear();
+        boolean failed = false;
+        for (GradeEventSink sink : sinks) {
+            try {
+                sink.publish(batch);
+            } catch (Exception e) {
+                failed = true;
+                log.warn("Grade event sink {} failed for {} events", sink.getClass().getSimpleName(), batch.size(), e);
+            }
+        }
+        sinkCalls++;
+        room.release(batch.size());
+        if (failed) {
+            failedEvents += batch.size();
+        } else {
+            dispatchedEvents += batch.size();
+        }
+    }
+}
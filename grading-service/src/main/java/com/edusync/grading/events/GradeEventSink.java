@@ -0,0 +1,9 @@
+package com.edusync.grading.events;
+
+import java.util.List;
+
+/** Downstream consumer of publish events. Called from the dispatcher thread only, one batch at a time. */
+public interface GradeEventSink {
+
+    void publish(List<GradePublishedEvent> batch) throws Exception;
+}
@@ -0,0 +1,12 @@
+package com.edusync.grading.events;
+
+import java.util.Map;
+
+public record GradePublishedEvent(
+        String submissionId,
+        String assessmentId,
+        int total,
+        Map<String, Object> breakdown,
+        String publishedAt
+) {
+}
@@ -0,0 +1,19 @@
+package com.edusync.grading.events;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/** Audit trail of published grades: one log line per dispatched batch. */
+@Component
+public class LoggingGradeEventSink implements GradeEventSink {
+
+    private static final Logger log = LoggerFactory.getLogger(LoggingGradeEventSink.class);
+
+    @Override
+    public void publish(List<GradePublishedEvent> batch) {
+        log.info("GRADE_PUBLISHED batch size={} first={}", batch.size(), batch.get(0).submissionId());
+    }
+}
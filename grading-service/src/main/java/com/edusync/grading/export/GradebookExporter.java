@@ -0,0 +1,170 @@
+package com.edusync.grading.export;
+
+import com.edusync.grading.store.GradeRecord;
+import com.edusync.grading.store.GradingStore;
+import com.edusync.grading.store.Rubric;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Writes the gradebook row by row straight from {@link GradingStore}, so memory use does
+ * not depend on the number of grades. CSV needs its breakdown columns up front; they are
+ * collected in a first pass that keeps only the distinct rubric keys.
+ */
+@Component
+public class GradebookExporter {
+
+    private static final int[] NO_COLUMNS = new int[0];
+    private static final String[] FIXED_COLUMNS = {"submissionId", "assessmentId", "total", "status", "updatedAt", "feedback"};
+
+    private final GradingStore store;
+    private final ObjectMapper objectMapper;
+
+    public GradebookExporter(GradingStore store, ObjectMapper objectMapper) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+    }
+
+    /** Returns the number of rows written. {@code assessmentId} may be null for every grade. */
+    public long writeCsv(String assessmentId, Writer out) throws IOException {
+        return writeCsv(assessmentId, out, new HashMap<>());
+    }
+
+    /**
+     * Rubrics are keyed by content, not instance: every manual grade carries its own copy, and
+     * the cache must hold one entry per distinct key list rather than one per grade.
+     */
+    long writeCsv(String assessmentId, Writer out, Map<Rubric, int[]> columnsByRubric) throws IOException {
+        // The first pass reads the keys of each distinct rubric once.
+        TreeSet<String> rubricKeys = new TreeSet<>();
+        store.forEachGrade(assessmentId, grade -> {
+            if (columnsByRubric.putIfAbsent(grade.rubric(), NO_COLUMNS) == null) {
+                for (int i = 0; i < grade.rubric().size(); i++) {
+                    rubricKeys.add(grade.rubric().key(i));
+                }
+            }
+        });
+        String[] rubric = rubricKeys.toArray(String[]::new);
+        columnsByRubric.replaceAll((keys, ignored) -> columnsOf(keys, rubric));
+
+        for (int i = 0; i < FIXED_COLUMNS.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(FIXED_COLUMNS[i]);
+        }
+        for (String key : rubric) {
+            out.write(',');
+            writeCsvField(out, "breakdown." + key);
+        }
+        out.write("\r\n");
+
+        long[] rows = new long[1];
+        try {
+            store.forEachGrade(assessmentId, grade -> {
+                try {
+                    int[] columns = columnsByRubric.computeIfAbsent(grade.rubric(), keys -> columnsOf(keys, rubric));
+                    writeCsvRow(out, grade, columns);
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+        return rows[0];
+    }
+
+    /** One JSON grade per line. Returns the number of rows written. */
+    public long writeNdjson(String assessmentId, OutputStream out) throws IOException {
+        long[] rows = new long[1];
+        SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out);
+        try {
+            store.forEachGrade(assessmentId, grade -> {
+                try {
+                    writer.write(grade);
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        if (rows[0] > 0) {
+            out.write('\n');
+        }
+        out.flush();
+        return rows[0];
+    }
+
+    /** For each CSV rubric column, the index of that key in {@code keys}, or -1. */
+    private static int[] columnsOf(Rubric keys, String[] rubric) {
+        int[] columns = new int[rubric.length];
+        for (int c = 0; c < rubric.length; c++) {
+            columns[c] = keys.indexOf(rubric[c]);
+        }
+        return columns;
+    }
+
+    private static void writeCsvRow(Writer out, GradeRecord grade, int[] columns) throws IOException {
+        writeCsvField(out, grade.submissionId());
+        out.write(',');
+        writeCsvField(out, grade.assessmentId());
+        out.write(',');
+        out.write(Integer.toString(grade.total()));
+        out.write(',');
+        out.write(grade.status().name());
+        out.write(',');
+        writeCsvField(out, grade.updatedAt());
+        out.write(',');
+        writeCsvField(out, grade.feedback());
+        for (int column : columns) {
+            out.write(',');
+            if (column >= 0 && grade.numeric()) {
+                double score = grade.score(column);
+                out.write(score == Math.rint(score) && Math.abs(score) < 0x1p53 ? Long.toString((long) score) : Double.toString(score));
+            } else if (column >= 0 && grade.value(column) != null) {
+                writeCsvField(out, grade.value(column).toString());
+            }
+        }
+        out.write("\r\n");
+    }
+
+    /** RFC 4180: quote only when needed, doubling embedded quotes. */
+    private static void writeCsvField(Writer out, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,15 @@
+package com.edusync.grading.runner;
+
+import java.util.List;
+
+/**
+ * One code-test run as seen by callers. {@code status} is QUEUED, RUNNING, DONE or FAILED
+ * (the runner itself failed and no grade was written); {@code outcome} is the sandbox verdict
+ * for a DONE job: OK, TIMEOUT or CRASHED.
+ */
+public record CodeJob(String jobId, String submissionId, String assessmentId, String status, String outcome,
+                      List<TestResult> results, Integer passed, Integer total, String queuedAt, String finishedAt,
+                      Long queueWaitMs, Long runMs) {
+
+    public record TestResult(String name, boolean passed, String error) {}
+}
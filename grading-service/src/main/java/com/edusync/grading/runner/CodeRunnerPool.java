@@ -0,0 +1,378 @@
+package com.edusync.grading.runner;
+
+import com.edusync.grading.store.GradeRecord;
+import com.edusync.grading.store.GradeStatus;
+import com.edusync.grading.store.GradingStore;
+import com.edusync.grading.store.Rubric;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Runs submitted code against instructor tests on a fixed pool of warm sandbox workers.
+ * Jobs wait in a bounded queue; when it is full {@link #submit} refuses the job instead of
+ * queueing without limit, so callers see backpressure. Each pool thread owns one
+ * {@link SandboxWorker} and writes the finished job's grade into {@link GradingStore}. Finished
+ * jobs stay visible through {@link #job} for {@code grading.runner.job-retention}, and at most
+ * {@code grading.runner.max-retained-jobs} of them are kept; the oldest go first.
+ *
+ * <p>Submitted code runs as {@code grading.runner.sandbox-uid}/{@code sandbox-gid} when set (as
+ * {@code nobody} when the service itself runs as root), with no capabilities, no sockets and an
+ * empty environment.
+ *
+ * <p>If the sandbox command cannot be started (for example no {@code python3} on the host)
+ * the pool stays {@linkplain #available() unavailable} and the service runs without it.
+ */
+@Component
+public class CodeRunnerPool {
+
+    private static final Logger log = LoggerFactory.getLogger(CodeRunnerPool.class);
+    private static final String HARNESS = "sandbox/python_worker.py";
+
+    public record Metrics(boolean available, int queueDepth, int queueCapacity, int workers, long workerStarts,
+                          long submitted, long rejected, long completed, long timedOut, long crashed, long failed,
+                          long p50QueueWaitMicros, long p99QueueWaitMicros, long p50RunMicros, long p99RunMicros) {}
+
+    private record Pending(CodeJob job, String source, CodeTestSuite suite, long enqueuedAtNanos) {}
+
+    private record Finished(String jobId, long finishedAtNanos) {}
+
+    private final GradingStore store;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final String interpreter;
+    private final int sandboxUid;
+    private final int sandboxGid;
+    private final int workerCount;
+    private final int queueCapacity;
+    private final long retentionNanos;
+    private final int maxRetainedJobs;
+    private final BlockingQueue<Pending> queue;
+    private final Map<String, CodeJob> jobs = new ConcurrentHashMap<>();
+    // Finished jobs in completion order, for eviction; guarded by itself.
+    private final ArrayDeque<Finished> finished = new ArrayDeque<>();
+    private final List<SandboxWorker> workers = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong crashed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLongArray queueWaitMicros = new AtomicLongArray(64);
+    private final AtomicLongArray runMicros = new AtomicLongArray(64);
+    private ScheduledExecutorService watchdog;
+    private Path harness;
+    private volatile boolean running;
+
+    public CodeRunnerPool(GradingStore store, ObjectMapper objectMapper,
+                          @Value("${grading.runner.enabled:true}") boolean enabled,
+                          @Value("${grading.runner.command:python3}") String interpreter,
+                          @Value("${grading.runner.sandbox-uid:-1}") int sandboxUid,
+                          @Value("${grading.runner.sandbox-gid:-1}") int sandboxGid,
+                          @Value("${grading.runner.workers:2}") int workers,
+                          @Value("${grading.runner.queue-capacity:256}") int queueCapacity,
+                          @Value("${grading.runner.job-retention:PT1H}") Duration jobRetention,
+                          @Value("${grading.runner.max-retained-jobs:10000}") int maxRetainedJobs) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.interpreter = interpreter;
+        this.sandboxUid = sandboxUid;
+        this.sandboxGid = sandboxGid;
+        this.workerCount = Math.max(1, workers);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.queue = new ArrayBlockingQueue<>(this.queueCapacity);
+        this.retentionNanos = jobRetention.toNanos();
+        this.maxRetainedJobs = Math.max(1, maxRetainedJobs);
+    }
+
+    /** Starts every worker up front so the first jobs do not pay for interpreter start-up. */
+    @PostConstruct
+    synchronized void start() {
+        if (!enabled) {
+            return;
+        }
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "code-runner-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            harness = extractHarness();
+            for (int i = 0; i < workerCount; i++) {
+                SandboxWorker worker = new SandboxWorker(List.of(interpreter, "-u", harness.toString(),
+                        "--sandbox-uid", Integer.toString(sandboxUid), "--sandbox-gid", Integer.toString(sandboxGid)), watchdog);
+                workers.add(worker);
+                worker.ensureStarted();
+            }
+        } catch (IOException e) {
+            log.warn("Code runner disabled: could not start sandbox worker with '{}'", interpreter, e);
+            close();
+            return;
+        }
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            SandboxWorker worker = workers.get(i);
+            Thread thread = new Thread(() -> drain(worker), "code-runner-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+    }
+
+    public boolean available() {
+        return running;
+    }
+
+    /**
+     * Queues a run of {@code source} against {@code suite} (already {@linkplain CodeTestSuite#validate validated}).
+     * Returns the queued job, or null when the queue is full.
+     */
+    public CodeJob submit(String submissionId, String assessmentId, String source, CodeTestSuite suite) {
+        if (!running) {
+            throw new IllegalStateException("Code runner is not available");
+        }
+        CodeJob job = new CodeJob("job-" + UUID.randomUUID(), submissionId, assessmentId, "QUEUED", null, null, null,
+                null, Instant.now().toString(), null, null, null);
+        jobs.put(job.jobId(), job);
+        if (!queue.offer(new Pending(job, source, suite, System.nanoTime()))) {
+            jobs.remove(job.jobId());
+            rejected.incrementAndGet();
+            return null;
+        }
+        submitted.incrementAndGet();
+        return job;
+    }
+
+    /** The queued, running or recently finished job, or null once it has been evicted. */
+    public CodeJob job(String jobId) {
+        evictFinished(System.nanoTime());
+        return jobs.get(jobId);
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    public Metrics metrics() {
+        long starts = 0;
+        synchronized (this) {
+            for (SandboxWorker worker : workers) {
+                starts += worker.starts();
+            }
+        }
+        return new Metrics(running, queue.size(), queueCapacity, workerCount, starts,
+                submitted.get(), rejected.get(), completed.get(), timedOut.get(), crashed.get(), failed.get(),
+                percentile(queueWaitMicros, 0.50), percentile(queueWaitMicros, 0.99),
+                percentile(runMicros, 0.50), percentile(runMicros, 0.99));
+    }
+
+    @PreDestroy
+    synchronized void close() {
+        running = false;
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        // Killing the harnesses also unblocks any thread waiting on a reply.
+        for (SandboxWorker worker : workers) {
+            worker.close();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        threads.clear();
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+        }
+        if (harness != null) {
+            try {
+                Files.deleteIfExists(harness);
+            } catch (IOException e) {
+                log.debug("Could not delete sandbox harness {}", harness, e);
+            }
+        }
+    }
+
+    private void drain(SandboxWorker worker) {
+        while (running) {
+            Pending pending;
+            try {
+                pending = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            long startedAt = System.nanoTime();
+            record(queueWaitMicros, startedAt - pending.enqueuedAtNanos());
+            CodeJob job = pending.job();
+            jobs.put(job.jobId(), new CodeJob(job.jobId(), job.submissionId(), job.assessmentId(), "RUNNING", null, null,
+                    null, null, job.queuedAt(), null, TimeUnit.NANOSECONDS.toMillis(startedAt - pending.enqueuedAtNanos()), null));
+            try {
+                JsonNode result = objectMapper.readTree(worker.run(jobLine(pending), pending.suite().timeLimitMs()));
+                finish(pending, result, startedAt);
+            } catch (IOException | RuntimeException e) {
+                failed.incrementAndGet();
+                log.warn("Code job {} for submission {} failed", job.jobId(), job.submissionId(), e);
+                complete(pending, "FAILED", null, null, null, null, startedAt);
+            }
+        }
+    }
+
+    private String jobLine(Pending pending) throws IOException {
+        CodeTestSuite suite = pending.suite();
+        List<Map<String, Object>> tests = new ArrayList<>(suite.tests().size());
+        for (CodeTestSuite.CodeTest test : suite.tests()) {
+            tests.add(Map.of("name", test.name(), "call", test.call(), "expected", test.expected()));
+        }
+        Map<String, Object> line = new HashMap<>();
+        line.put("id", pending.job().jobId());
+        line.put("source", pending.source());
+        line.put("tests", tests);
+        line.put("timeoutMs", suite.timeLimitMs());
+        line.put("memoryMb", suite.memoryMb());
+        return objectMapper.writeValueAsString(line);
+    }
+
+    /** Scores the harness verdict by test weight and writes it back as the submission's grade. */
+    private void finish(Pending pending, JsonNode result, long startedAt) {
+        String outcome = result.path("status").asText("CRASHED");
+        if ("SANDBOX_ERROR".equals(outcome)) {
+            // The limits could not be applied, so no submitted code ran; not the student's fault.
+            throw new IllegalStateException("Sandbox setup failed: " + result.path("error").asText());
+        }
+        CodeTestSuite suite = pending.suite();
+        Map<String, Boolean> passedByName = new HashMap<>();
+        Map<String, String> errorByName = new HashMap<>();
+        for (JsonNode test : result.path("tests")) {
+            passedByName.put(test.path("name").asText(), test.path("passed").asBoolean());
+            errorByName.put(test.path("name").asText(), test.path("error").isTextual() ? test.path("error").asText() : null);
+        }
+
+        List<CodeJob.TestResult> results = new ArrayList<>(suite.tests().size());
+        double[] scores = new double[suite.tests().size()];
+        double earned = 0;
+        int passed = 0;
+        for (int t = 0; t < scores.length; t++) {
+            CodeTestSuite.CodeTest test = suite.tests().get(t);
+            boolean ok = "OK".equals(outcome) && passedByName.getOrDefault(test.name(), false);
+            String error = "OK".equals(outcome) ? errorByName.get(test.name()) : outcome;
+            results.add(new CodeJob.TestResult(test.name(), ok, error));
+            scores[t] = ok ? test.weight() : 0.0;
+            if (ok) {
+                earned += test.weight();
+                passed++;
+            }
+        }
+        int total = (int) Math.round(100.0 * earned / suite.totalWeight());
+        String feedback = switch (outcome) {
+            case "OK" -> "Passed " + passed + "/" + suite.tests().size() + " tests";
+            case "TIMEOUT" -> "Time limit exceeded (" + suite.timeLimitMs() + " ms)";
+            default -> "Submission crashed before the tests completed";
+        };
+        store.putGrade(GradeRecord.of(pending.job().submissionId(), pending.job().assessmentId(), rubricOf(suite), scores,
+                total, feedback, GradeStatus.GRADED, Instant.now()));
+
+        switch (outcome) {
+            case "OK" -> completed.incrementAndGet();
+            case "TIMEOUT" -> timedOut.incrementAndGet();
+            default -> crashed.incrementAndGet();
+        }
+        complete(pending, "DONE", outcome, results, passed, total, startedAt);
+    }
+
+    private void complete(Pending pending, String status, String outcome, List<CodeJob.TestResult> results,
+                          Integer passed, Integer total, long startedAt) {
+        long finishedAt = System.nanoTime();
+        record(runMicros, finishedAt - startedAt);
+        CodeJob job = pending.job();
+        jobs.put(job.jobId(), new CodeJob(job.jobId(), job.submissionId(), job.assessmentId(), status, outcome,
+                results == null ? null : List.copyOf(results), passed, total, job.queuedAt(), Instant.now().toString(),
+                TimeUnit.NANOSECONDS.toMillis(startedAt - pending.enqueuedAtNanos()),
+                TimeUnit.NANOSECONDS.toMillis(finishedAt - startedAt)));
+        synchronized (finished) {
+            finished.addLast(new Finished(job.jobId(), finishedAt));
+        }
+        evictFinished(finishedAt);
+    }
+
+    private void evictFinished(long now) {
+        synchronized (finished) {
+            Finished oldest;
+            while ((oldest = finished.peekFirst()) != null
+                    && (finished.size() > maxRetainedJobs || now - oldest.finishedAtNanos() >= retentionNanos)) {
+                finished.pollFirst();
+                jobs.remove(oldest.jobId());
+            }
+        }
+    }
+
+    private static Rubric rubricOf(CodeTestSuite suite) {
+        return Rubric.of(suite.tests().stream().map(CodeTestSuite.CodeTest::name).toArray(String[]::new));
+    }
+
+    private static Path extractHarness() throws IOException {
+        Path file = Files.createTempFile("grading-sandbox-", ".py");
+        try (InputStream in = CodeRunnerPool.class.getClassLoader().getResourceAsStream(HARNESS)) {
+            if (in == null) {
+                throw new IOException("Missing resource " + HARNESS);
+            }
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+
+    private static void record(AtomicLongArray histogram, long nanos) {
+        long micros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos));
+        histogram.incrementAndGet(63 - Long.numberOfLeadingZeros(micros));
+    }
+
+    private static long percentile(AtomicLongArray histogram, double quantile) {
+        long total = 0;
+        for (int i = 0; i < histogram.length(); i++) {
+            total += histogram.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < histogram.length(); i++) {
+            seen += histogram.get(i);
+            if (seen >= rank) {
+                return (1L << (i + 1)) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
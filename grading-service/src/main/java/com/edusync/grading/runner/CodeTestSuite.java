@@ -0,0 +1,65 @@
+package com.edusync.grading.runner;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Instructor tests for a code assessment. Each test is a Python expression evaluated in the
+ * submission's namespace ({@code call}) and compared with {@code ==} against a literal
+ * ({@code expected}). Limits apply per job, to the whole suite.
+ */
+public record CodeTestSuite(List<CodeTest> tests, Integer timeLimitMs, Integer memoryMb) {
+
+    public record CodeTest(String name, String call, String expected, Double weight) {}
+
+    static final int DEFAULT_TIME_LIMIT_MS = 2_000;
+    static final int MAX_TIME_LIMIT_MS = 30_000;
+    static final int DEFAULT_MEMORY_MB = 256;
+    static final int MIN_MEMORY_MB = 32;
+    static final int MAX_MEMORY_MB = 2_048;
+
+    /** Checks the suite and fills in defaults; throws {@link IllegalArgumentException} on a bad suite. */
+    public static CodeTestSuite validate(CodeTestSuite suite) {
+        if (suite == null || suite.tests() == null || suite.tests().isEmpty()) {
+            throw new IllegalArgumentException("At least one test is required");
+        }
+        List<CodeTest> tests = new ArrayList<>(suite.tests().size());
+        Set<String> names = new HashSet<>();
+        for (CodeTest test : suite.tests()) {
+            if (test == null || isBlank(test.name()) || isBlank(test.call()) || isBlank(test.expected())) {
+                throw new IllegalArgumentException("Each test needs a name, call and expected value");
+            }
+            if (!names.add(test.name())) {
+                throw new IllegalArgumentException("Duplicate test name: " + test.name());
+            }
+            double weight = test.weight() == null ? 1.0 : test.weight();
+            if (!(weight > 0) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Weight must be positive: " + test.name());
+            }
+            tests.add(new CodeTest(test.name(), test.call(), test.expected(), weight));
+        }
+        int timeLimitMs = suite.timeLimitMs() == null ? DEFAULT_TIME_LIMIT_MS : suite.timeLimitMs();
+        if (timeLimitMs < 1 || timeLimitMs > MAX_TIME_LIMIT_MS) {
+            throw new IllegalArgumentException("timeLimitMs must be between 1 and " + MAX_TIME_LIMIT_MS);
+        }
+        int memoryMb = suite.memoryMb() == null ? DEFAULT_MEMORY_MB : suite.memoryMb();
+        if (memoryMb < MIN_MEMORY_MB || memoryMb > MAX_MEMORY_MB) {
+            throw new IllegalArgumentException("memoryMb must be between " + MIN_MEMORY_MB + " and " + MAX_MEMORY_MB);
+        }
+        return new CodeTestSuite(List.copyOf(tests), timeLimitMs, memoryMb);
+    }
+
+    double totalWeight() {
+        double total = 0;
+        for (CodeTest test : tests) {
+            total += test.weight();
+        }
+        return total;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
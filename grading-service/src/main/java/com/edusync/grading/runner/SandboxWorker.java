@@ -0,0 +1,98 @@
+package com.edusync.grading.runner;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One long-lived sandbox harness process, spoken to in JSON lines over stdin/stdout. The
+ * harness forks a limited child per job, so the interpreter start-up is paid once per
+ * worker. The harness starts with a minimal environment rather than the service's, so
+ * credentials passed to the JVM never reach submitted code. If the harness stops answering it is killed and started again on the next job.
+ * Not thread-safe; each pool thread owns one worker.
+ */
+final class SandboxWorker implements AutoCloseable {
+
+    private static final long STARTUP_TIMEOUT_MS = 10_000;
+    // Slack on top of the job's own limit before the harness itself is presumed stuck.
+    private static final long REPLY_GRACE_MS = 5_000;
+
+    private final List<String> command;
+    private final ScheduledExecutorService watchdog;
+    private Process process;
+    private BufferedWriter stdin;
+    private BufferedReader stdout;
+    // Written only by the owning worker thread; volatile so metrics() reads a current count.
+    private volatile int starts;
+
+    SandboxWorker(List<String> command, ScheduledExecutorService watchdog) {
+        this.command = List.copyOf(command);
+        this.watchdog = watchdog;
+    }
+
+    void ensureStarted() throws IOException {
+        if (process != null && process.isAlive()) {
+            return;
+        }
+        close();
+        ProcessBuilder builder = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT);
+        Map<String, String> environment = builder.environment();
+        environment.clear();
+        environment.put("PATH", "/usr/local/bin:/usr/bin:/bin");
+        environment.put("LANG", "C.UTF-8");
+        process = builder.start();
+        starts++;
+        stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        readLine(STARTUP_TIMEOUT_MS);
+    }
+
+    /** Sends one job line and returns the harness's result line. */
+    String run(String jobLine, long timeLimitMs) throws IOException {
+        ensureStarted();
+        try {
+            stdin.write(jobLine);
+            stdin.write('\n');
+            stdin.flush();
+            return readLine(timeLimitMs + REPLY_GRACE_MS);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    int starts() {
+        return starts;
+    }
+
+    @Override
+    public void close() {
+        if (process != null) {
+            process.destroyForcibly();
+            process = null;
+        }
+    }
+
+    private String readLine(long timeoutMs) throws IOException {
+        Process current = process;
+        ScheduledFuture<?> kill = watchdog.schedule(current::destroyForcibly, timeoutMs, TimeUnit.MILLISECONDS);
+        try {
+            String line = stdout.readLine();
+            if (line == null) {
+                close();
+                throw new IOException("Sandbox worker exited");
+            }
+            return line;
+        } finally {
+            kill.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.edusync.grading.scoring;
+
+import java.util.List;
+
+/**
+ * Answer key as uploaded by an instructor. It is only read once, by
+ * {@link ScoringPlan#compile(AnswerKey)}.
+ *
+ * <ul>
+ *   <li>{@code TEXT}: any of {@code answers}, compared ignoring case and extra whitespace</li>
+ *   <li>{@code CHOICE}: the single option id in {@code answers}</li>
+ *   <li>{@code MULTI_SELECT}: exactly the option ids in {@code answers}; with partial credit,
+ *       (correct picks - wrong picks) / correct options</li>
+ *   <li>{@code NUMERIC}: {@code numericAnswer} within {@code tolerance}</li>
+ *   <li>{@code KEYWORDS}: every keyword in {@code answers} appears in the response; with partial
+ *       credit, the fraction that appears</li>
+ * </ul>
+ */
+public record AnswerKey(List<Question> questions) {
+
+    public record Question(
+            String questionId,
+            String type,
+            List<String> answers,
+            Double numericAnswer,
+            Double tolerance,
+            Double weight,
+            Boolean partialCredit
+    ) {
+    }
+}
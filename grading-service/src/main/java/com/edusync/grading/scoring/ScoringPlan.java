@@ -0,0 +1,358 @@
+package com.edusync.grading.scoring;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable, pre-compiled form of an {@link AnswerKey}. Accepted answers are normalized
+ * and keywords lower-cased at compile time, so scoring a submission only walks its
+ * responses: no per-question strings, collections or boxed values are created.
+ */
+public final class ScoringPlan {
+
+    private static final int MAX_OPTIONS = 64;
+
+    private final String[] questionIds;
+    private final Map<String, Integer> positions;
+    private final Matcher[] matchers;
+    private final double[] weights;
+    private final double maxPoints;
+
+    private ScoringPlan(String[] questionIds, Matcher[] matchers, double[] weights) {
+        this.questionIds = questionIds;
+        this.matchers = matchers;
+        this.weights = weights;
+        this.positions = new HashMap<>(questionIds.length * 2);
+        double max = 0.0;
+        for (int i = 0; i < questionIds.length; i++) {
+            positions.put(questionIds[i], i);
+            max += weights[i];
+        }
+        this.maxPoints = max;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the key is empty, repeats a question or has a
+     *                                  question its type cannot be compiled from
+     */
+    public static ScoringPlan compile(AnswerKey key) {
+        if (key == null || key.questions() == null || key.questions().isEmpty()) {
+            throw new IllegalArgumentException("answer key has no questions");
+        }
+        int size = key.questions().size();
+        String[] ids = new String[size];
+        Matcher[] matchers = new Matcher[size];
+        double[] weights = new double[size];
+        for (int i = 0; i < size; i++) {
+            AnswerKey.Question question = key.questions().get(i);
+            if (question == null || question.questionId() == null || question.questionId().isBlank()) {
+                throw new IllegalArgumentException("question " + i + " has no questionId");
+            }
+            ids[i] = question.questionId();
+            for (int j = 0; j < i; j++) {
+                if (ids[j].equals(ids[i])) {
+                    throw new IllegalArgumentException("duplicate questionId " + ids[i]);
+                }
+            }
+            double weight = question.weight() == null ? 1.0 : question.weight();
+            if (!(weight > 0.0) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("question " + ids[i] + " needs a positive weight");
+            }
+            weights[i] = weight;
+            matchers[i] = compileMatcher(question);
+        }
+        return new ScoringPlan(ids, matchers, weights);
+    }
+
+    public int questionCount() {
+        return questionIds.length;
+    }
+
+    public String questionId(int position) {
+        return questionIds[position];
+    }
+
+    public double maxPoints() {
+        return maxPoints;
+    }
+
+    /**
+     * Scores {@code answers} (maps with {@code questionId} and {@code response}) into
+     * {@code pointsOut}, indexed like {@link #questionId(int)}, and returns the total points.
+     * Unanswered and unknown questions score zero; if a question is answered twice the last
+     * answer counts.
+     */
+    public double score(List<Map<String, Object>> answers, double[] pointsOut) {
+        Arrays.fill(pointsOut, 0, questionIds.length, 0.0);
+        if (answers != null) {
+            for (int a = 0, n = answers.size(); a < n; a++) {
+                Map<String, Object> answer = answers.get(a);
+                Object questionId = answer == null ? null : answer.get("questionId");
+                Integer position = questionId == null ? null : positions.get(questionId);
+                if (position != null) {
+                    int q = position;
+                    pointsOut[q] = weights[q] * matchers[q].credit(answer.get("response"));
+                }
+            }
+        }
+        double total = 0.0;
+        for (int q = 0; q < questionIds.length; q++) {
+            total += pointsOut[q];
+        }
+        return total;
+    }
+
+    /** Total points as a 0-100 percentage of {@link #maxPoints()}. */
+    public int percent(double points) {
+        return (int) Math.round(Math.max(0.0, Math.min(1.0, points / maxPoints)) * 100.0);
+    }
+
+    private static Matcher compileMatcher(AnswerKey.Question question) {
+        String type = question.type() == null ? "" : question.type().trim().toUpperCase(Locale.ROOT);
+        boolean partial = Boolean.TRUE.equals(question.partialCredit());
+        List<String> answers = question.answers() == null ? List.of() : question.answers();
+        switch (type) {
+            case "TEXT", "CHOICE" -> {
+                String[] accepted = answers.stream()
+                        .filter(answer -> answer != null && !answer.isBlank())
+                        .map(ScoringPlan::normalizeText)
+                        .distinct()
+                        .toArray(String[]::new);
+                if (accepted.length == 0 || ("CHOICE".equals(type) && accepted.length != 1)) {
+                    throw new IllegalArgumentException("question " + question.questionId()
+                            + ("CHOICE".equals(type) ? " needs exactly one correct option" : " needs at least one accepted answer"));
+                }
+                return new ExactMatcher(accepted);
+            }
+            case "MULTI_SELECT" -> {
+                String[] options = answers.stream()
+                        .filter(answer -> answer != null && !answer.isBlank())
+                        .map(ScoringPlan::normalizeText)
+                        .distinct()
+                        .toArray(String[]::new);
+                if (options.length == 0 || options.length > MAX_OPTIONS) {
+                    throw new IllegalArgumentException("question " + question.questionId()
+                            + " needs between 1 and " + MAX_OPTIONS + " correct options");
+                }
+                return new MultiSelectMatcher(options, partial);
+            }
+            case "NUMERIC" -> {
+                if (question.numericAnswer() == null || !Double.isFinite(question.numericAnswer())) {
+                    throw new IllegalArgumentException("question " + question.questionId() + " needs a numericAnswer");
+                }
+                double tolerance = question.tolerance() == null ? 0.0 : Math.abs(question.tolerance());
+                return new NumericMatcher(question.numericAnswer(), tolerance);
+            }
+            case "KEYWORDS" -> {
+                String[] keywords = answers.stream()
+                        .filter(answer -> answer != null && !answer.isBlank())
+                        .map(ScoringPlan::normalizeText)
+                        .distinct()
+                        .toArray(String[]::new);
+                if (keywords.length == 0) {
+                    throw new IllegalArgumentException("question " + question.questionId() + " needs at least one keyword");
+                }
+                return new KeywordMatcher(keywords, partial);
+            }
+            default -> throw new IllegalArgumentException("question " + question.questionId()
+                    + " has unsupported type '" + question.type() + "'");
+        }
+    }
+
+    /** Lower-cases, trims and collapses whitespace runs; the compile-time twin of {@link #equalsNormalized}. */
+    private static String normalizeText(String text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    normalized.append(' ');
+                    pendingSpace = false;
+                }
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        return normalized.toString();
+    }
+
+    private static boolean equalsNormalized(String expected, CharSequence response, int from, int to) {
+        int e = 0;
+        boolean pendingSpace = false;
+        for (int i = from; i < to; i++) {
+            char c = response.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = e > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                if (e >= expected.length() || expected.charAt(e) != ' ') {
+                    return false;
+                }
+                e++;
+                pendingSpace = false;
+            }
+            if (e >= expected.length() || expected.charAt(e) != Character.toLowerCase(c)) {
+                return false;
+            }
+            e++;
+        }
+        return e == expected.length();
+    }
+
+    /**
+     * Whether {@code text} contains the normalized {@code needle}, reading any whitespace run in
+     * the text as the single space {@link #normalizeText} leaves in the needle.
+     */
+    private static boolean containsNormalized(CharSequence text, String needle) {
+        for (int i = 0, n = text.length(); i < n; i++) {
+            if (matchesNormalizedAt(text, i, needle)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesNormalizedAt(CharSequence text, int from, String needle) {
+        int t = from;
+        for (int k = 0; k < needle.length(); k++) {
+            char expected = needle.charAt(k);
+            if (t >= text.length()) {
+                return false;
+            }
+            if (expected == ' ') {
+                if (!Character.isWhitespace(text.charAt(t))) {
+                    return false;
+                }
+                while (t < text.length() && Character.isWhitespace(text.charAt(t))) {
+                    t++;
+                }
+            } else if (Character.toLowerCase(text.charAt(t++)) != expected) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private interface Matcher {
+        /** Fraction of the question's weight earned, in [0, 1]. */
+        double credit(Object response);
+    }
+
+    private record ExactMatcher(String[] accepted) implements Matcher {
+        @Override
+        public double credit(Object response) {
+            if (!(response instanceof CharSequence text)) {
+                return 0.0;
+            }
+            for (String candidate : accepted) {
+                if (equalsNormalized(candidate, text, 0, text.length())) {
+                    return 1.0;
+                }
+            }
+            return 0.0;
+        }
+    }
+
+    private record MultiSelectMatcher(String[] options, boolean partial) implements Matcher {
+        @Override
+        public double credit(Object response) {
+            long picked = 0L;
+            int wrong = 0;
+            if (response instanceof List<?> selections) {
+                for (int i = 0, n = selections.size(); i < n; i++) {
+                    if (selections.get(i) instanceof CharSequence selection) {
+                        int option = indexOf(selection, 0, selection.length());
+                        if (option >= 0) {
+                            picked |= 1L << option;
+                        } else if (!isBlank(selection, 0, selection.length())) {
+                            wrong++;
+                        }
+                    }
+                }
+            } else if (response instanceof CharSequence selections) {
+                // Comma-separated option ids, e.g. "A, C".
+                int start = 0;
+                for (int i = 0; i <= selections.length(); i++) {
+                    if (i == selections.length() || selections.charAt(i) == ',') {
+                        int option = indexOf(selections, start, i);
+                        if (option >= 0) {
+                            picked |= 1L << option;
+                        } else if (!isBlank(selections, start, i)) {
+                            wrong++;
+                        }
+                        start = i + 1;
+                    }
+                }
+            } else {
+                return 0.0;
+            }
+            int correct = Long.bitCount(picked);
+            if (correct == options.length && wrong == 0) {
+                return 1.0;
+            }
+            return partial ? Math.max(0.0, (double) (correct - wrong) / options.length) : 0.0;
+        }
+
+        private int indexOf(CharSequence text, int from, int to) {
+            for (int o = 0; o < options.length; o++) {
+                if (equalsNormalized(options[o], text, from, to)) {
+                    return o;
+                }
+            }
+            return -1;
+        }
+
+        private static boolean isBlank(CharSequence text, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (!Character.isWhitespace(text.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private record NumericMatcher(double expected, double tolerance) implements Matcher {
+        @Override
+        public double credit(Object response) {
+            double value;
+            if (response instanceof Number number) {
+                value = number.doubleValue();
+            } else if (response instanceof String text) {
+                try {
+                    value = Double.parseDouble(text);
+                } catch (NumberFormatException e) {
+                    return 0.0;
+                }
+            } else {
+                return 0.0;
+            }
+            return Math.abs(value - expected) <= tolerance + 1e-9 ? 1.0 : 0.0;
+        }
+    }
+
+    private record KeywordMatcher(String[] keywords, boolean partial) implements Matcher {
+        @Override
+        public double credit(Object response) {
+            if (!(response instanceof String text)) {
+                return 0.0;
+            }
+            int found = 0;
+            for (String keyword : keywords) {
+                if (containsNormalized(text, keyword)) {
+                    found++;
+                }
+            }
+            if (found == keywords.length) {
+                return 1.0;
+            }
+            return partial ? (double) found / keywords.length : 0.0;
+        }
+    }
+}
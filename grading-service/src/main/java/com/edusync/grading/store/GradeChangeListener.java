@@ -0,0 +1,12 @@
+package com.edusync.grading.store;
+
+/**
+ * Told about every committed grade write, including regrade overrides. Called on the writing
+ * thread after the change is visible, so implementations must be quick and must not block.
+ */
+@FunctionalInterface
+public interface GradeChangeListener {
+
+    /** {@code previous} is null for a submission's first grade. */
+    void gradeChanged(GradeRecord previous, GradeRecord current);
+}
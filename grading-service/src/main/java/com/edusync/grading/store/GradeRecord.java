@@ -0,0 +1,212 @@
+package com.edusync.grading.store;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.time.Instant;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * One stored grade, laid out to stay small at millions of rows: the rubric keys are a shared
+ * {@link Rubric}, the scores a primitive array in rubric order, the timestamp epoch millis and
+ * the status an enum. {@link #breakdown()} is a read-only view over the scores, built without
+ * copying. A manual breakdown with values that are not numbers also keeps those values as
+ * given. Instances are immutable.
+ */
+@JsonPropertyOrder({"submissionId", "assessmentId", "breakdown", "total", "feedback", "status", "updatedAt"})
+public final class GradeRecord {
+
+    private final String submissionId;
+    private final String assessmentId;
+    private final Rubric rubric;
+    private final double[] scores;
+    // Breakdown values as submitted, in rubric order; null when every value is a number.
+    private final Object[] values;
+    private final int total;
+    private final String feedback;
+    private final GradeStatus status;
+    private final long updatedAtMillis;
+
+    private GradeRecord(String submissionId, String assessmentId, Rubric rubric, double[] scores, Object[] values,
+                        int total, String feedback, GradeStatus status, long updatedAtMillis) {
+        this.submissionId = submissionId;
+        this.assessmentId = assessmentId;
+        this.rubric = rubric;
+        this.scores = scores;
+        this.values = values;
+        this.total = total;
+        this.feedback = feedback;
+        this.status = status;
+        this.updatedAtMillis = updatedAtMillis;
+    }
+
+    /** {@code scores} is taken over, not copied, and is in {@code rubric} order. */
+    public static GradeRecord of(String submissionId, String assessmentId, Rubric rubric, double[] scores, int total,
+                                 String feedback, GradeStatus status, Instant updatedAt) {
+        if (rubric.size() != scores.length) {
+            throw new IllegalArgumentException("Expected " + rubric.size() + " scores, got " + scores.length);
+        }
+        return new GradeRecord(submissionId, assessmentId, rubric, scores, null, total, feedback, status,
+                updatedAt.toEpochMilli());
+    }
+
+    /**
+     * Builds a grade from a rubric-key to value map such as a manual breakdown, keeping the map's
+     * key order. Values that are not numbers are kept as given and score zero.
+     */
+    public static GradeRecord of(String submissionId, String assessmentId, Map<String, ?> breakdown, int total,
+                                 String feedback, GradeStatus status, Instant updatedAt) {
+        String[] keys = new String[breakdown.size()];
+        double[] scores = new double[keys.length];
+        Object[] values = new Object[keys.length];
+        boolean numeric = true;
+        int i = 0;
+        for (Map.Entry<String, ?> entry : breakdown.entrySet()) {
+            keys[i] = entry.getKey();
+            values[i] = entry.getValue();
+            if (entry.getValue() instanceof Number score) {
+                scores[i] = score.doubleValue();
+            } else {
+                numeric = false;
+            }
+            i++;
+        }
+        return new GradeRecord(submissionId, assessmentId, Rubric.copyOf(keys), scores, numeric ? null : values, total,
+                feedback, status, updatedAt.toEpochMilli());
+    }
+
+    /** The same grade with its total replaced by a moderator. */
+    public GradeRecord withOverride(int overrideTotal, Instant overriddenAt) {
+        return new GradeRecord(submissionId, assessmentId, rubric, scores, values, overrideTotal, feedback,
+                GradeStatus.GRADED_OVERRIDDEN, overriddenAt.toEpochMilli());
+    }
+
+    @JsonProperty
+    public String submissionId() {
+        return submissionId;
+    }
+
+    @JsonProperty
+    public String assessmentId() {
+        return assessmentId;
+    }
+
+    public Rubric rubric() {
+        return rubric;
+    }
+
+    /** Score at {@code index}; zero where the breakdown value was not a number. */
+    public double score(int index) {
+        return scores[index];
+    }
+
+    /** Breakdown value at {@code index}, as {@link #breakdown()} returns it. */
+    public Object value(int index) {
+        return values == null ? boxScore(scores[index]) : values[index];
+    }
+
+    /** True when every breakdown value is a number, so {@link #score} is the whole value. */
+    public boolean numeric() {
+        return values == null;
+    }
+
+    @JsonProperty
+    public int total() {
+        return total;
+    }
+
+    @JsonProperty
+    public String feedback() {
+        return feedback;
+    }
+
+    @JsonProperty
+    public GradeStatus status() {
+        return status;
+    }
+
+    public long updatedAtMillis() {
+        return updatedAtMillis;
+    }
+
+    @JsonProperty
+    public String updatedAt() {
+        return Instant.ofEpochMilli(updatedAtMillis).toString();
+    }
+
+    /**
+     * Rubric key to score; whole scores come back as {@link Long}, others as {@link Double}.
+     * Breakdowns holding values that are not numbers return every value as given.
+     */
+    @JsonProperty
+    public Map<String, Object> breakdown() {
+        return new Breakdown();
+    }
+
+    static Number boxScore(double score) {
+        return score == Math.rint(score) && Math.abs(score) < 0x1p53 ? (Number) (long) score : (Number) score;
+    }
+
+    @Override
+    public String toString() {
+        return "GradeRecord[submissionId=" + submissionId + ", assessmentId=" + assessmentId + ", rubric=" + rubric
+                + ", scores=" + Arrays.toString(scores) + ", total=" + total + ", status=" + status
+                + ", updatedAt=" + updatedAt() + "]";
+    }
+
+    private final class Breakdown extends AbstractMap<String, Object> {
+
+        @Override
+        public int size() {
+            return scores.length;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return rubric.indexOf(key) >= 0;
+        }
+
+        @Override
+        public Object get(Object key) {
+            int index = rubric.indexOf(key);
+            return index < 0 ? null : value(index);
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return scores.length;
+                }
+
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < scores.length;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (next >= scores.length) {
+                                throw new NoSuchElementException();
+                            }
+                            int index = next++;
+                            return new SimpleImmutableEntry<>(rubric.key(index), value(index));
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
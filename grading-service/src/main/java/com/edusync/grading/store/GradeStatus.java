@@ -0,0 +1,6 @@
+package com.edusync.grading.store;
+
+public enum GradeStatus {
+    GRADED,
+    GRADED_OVERRIDDEN
+}
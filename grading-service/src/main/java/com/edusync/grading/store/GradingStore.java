@@ -0,0 +1,296 @@
+package com.edusync.grading.store;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Grades and regrade cases, held per submission in one immutable {@link SubmissionState}
+ * behind an {@link AtomicReference}. Every change to a submission (a new grade, a new
+ * regrade request, a decision together with its grade override) is a single
+ * compare-and-set of that cell, so there is no global lock and no torn state.
+ *
+ * <p>Cases are also indexed by status, keyed by {@link QueueKey} (requestedAt, then open
+ * order), which doubles as the listing cursor. The status index is moved after each
+ * successful transition; listings re-check the live status, so a reader racing a decision
+ * may see a short page but never a case under the wrong status.
+ *
+ * <p>A grade write counts as in flight for its old and new assessment from just before its
+ * compare-and-set until the {@link GradeChangeListener} has returned, so a reader that copies
+ * an assessment's grades can tell whether one it saw has not been reported yet.
+ */
+@Component
+public class GradingStore {
+
+    public record SubmissionState(GradeRecord grade, Map<String, RegradeCase> regrades) {
+        private static final SubmissionState EMPTY = new SubmissionState(null, Map.of());
+    }
+
+    public enum Outcome { APPLIED, NOT_FOUND, NOT_GRADED, ALREADY_DECIDED }
+
+    public record Decision(Outcome outcome, RegradeCase regrade, GradeRecord grade) {}
+
+    public record QueueKey(long requestedAtNanos, long sequence) implements Comparable<QueueKey> {
+        private static final Comparator<QueueKey> ORDER =
+                Comparator.comparingLong(QueueKey::requestedAtNanos).thenComparingLong(QueueKey::sequence);
+
+        @Override
+        public int compareTo(QueueKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    public record Page(List<RegradeCase> items, QueueKey nextCursor) {}
+
+    private record CaseRef(String submissionId, QueueKey key) {}
+
+    private final Map<String, AtomicReference<SubmissionState>> submissions = new ConcurrentHashMap<>();
+    private final Map<String, CaseRef> casesByRequest = new ConcurrentHashMap<>();
+    private final Map<String, NavigableMap<QueueKey, String>> byStatus = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> byAssessment = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> writesInFlight = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final GradeChangeListener listener;
+
+    public GradingStore() {
+        this((previous, current) -> { });
+    }
+
+    @Autowired
+    public GradingStore(GradeChangeListener listener) {
+        this.listener = listener;
+    }
+
+    public GradeRecord grade(String submissionId) {
+        AtomicReference<SubmissionState> cell = submissions.get(submissionId);
+        return cell == null ? null : cell.get().grade();
+    }
+
+    public void putGrade(GradeRecord grade) {
+        AtomicReference<SubmissionState> cell = cell(grade.submissionId());
+        while (true) {
+            SubmissionState previous = cell.get();
+            String previousAssessmentId = previous.grade() == null ? null : previous.grade().assessmentId();
+            beginWrite(previousAssessmentId, grade.assessmentId());
+            try {
+                if (!cell.compareAndSet(previous, new SubmissionState(grade, previous.regrades()))) {
+                    continue;
+                }
+                if (grade.assessmentId() != null) {
+                    byAssessment.computeIfAbsent(grade.assessmentId(), ignored -> ConcurrentHashMap.newKeySet())
+                            .add(grade.submissionId());
+                }
+                listener.gradeChanged(previous.grade(), grade);
+                return;
+            } finally {
+                endWrite(previousAssessmentId, grade.assessmentId());
+            }
+        }
+    }
+
+    /** True while a grade write touching {@code assessmentId} has not yet been reported to the listener. */
+    public boolean writesInFlight(String assessmentId) {
+        AtomicInteger writes = writesInFlight.get(assessmentId);
+        return writes != null && writes.get() > 0;
+    }
+
+    public void putGrades(Collection<GradeRecord> grades) {
+        for (GradeRecord grade : grades) {
+            putGrade(grade);
+        }
+    }
+
+    /** Current grades recorded against {@code assessmentId}. */
+    public List<GradeRecord> gradesForAssessment(String assessmentId) {
+        List<GradeRecord> grades = new ArrayList<>();
+        forEachGrade(assessmentId, grades::add);
+        return grades;
+    }
+
+    /**
+     * Visits current grades, all of them or one assessment's, straight off the live maps
+     * without copying. Weakly consistent: grades written during the walk may or may not
+     * be seen.
+     */
+    public void forEachGrade(String assessmentId, Consumer<GradeRecord> action) {
+        if (assessmentId == null) {
+            for (AtomicReference<SubmissionState> cell : submissions.values()) {
+                GradeRecord grade = cell.get().grade();
+                if (grade != null) {
+                    action.accept(grade);
+                }
+            }
+            return;
+        }
+        Set<String> submissionIds = byAssessment.get(assessmentId);
+        if (submissionIds == null) {
+            return;
+        }
+        for (String submissionId : submissionIds) {
+            GradeRecord grade = grade(submissionId);
+            if (grade != null && assessmentId.equals(grade.assessmentId())) {
+                action.accept(grade);
+            }
+        }
+    }
+
+    public RegradeCase regrade(String requestId) {
+        CaseRef ref = casesByRequest.get(requestId);
+        AtomicReference<SubmissionState> cell = ref == null ? null : submissions.get(ref.submissionId());
+        return cell == null ? null : cell.get().regrades().get(requestId);
+    }
+
+    /** All cases for one submission, oldest request first. */
+    public List<RegradeCase> regradesForSubmission(String submissionId) {
+        AtomicReference<SubmissionState> cell = submissions.get(submissionId);
+        if (cell == null) {
+            return List.of();
+        }
+        List<RegradeCase> cases = new ArrayList<>(cell.get().regrades().values());
+        cases.sort(Comparator.comparing((RegradeCase regrade) -> casesByRequest.get(regrade.requestId()).key()));
+        return cases;
+    }
+
+    public Page pageByStatus(String status, QueueKey cursor, int limit) {
+        NavigableMap<QueueKey, String> index = byStatus.get(status);
+        if (index == null) {
+            return new Page(List.of(), null);
+        }
+        NavigableMap<QueueKey, String> tail = cursor == null ? index : index.tailMap(cursor, false);
+        List<RegradeCase> items = new ArrayList<>();
+        QueueKey last = null;
+        for (Map.Entry<QueueKey, String> entry : tail.entrySet()) {
+            if (items.size() >= limit) {
+                break;
+            }
+            RegradeCase regrade = regrade(entry.getValue());
+            if (regrade != null && status.equals(regrade.status())) {
+                items.add(regrade);
+                last = entry.getKey();
+            }
+        }
+        QueueKey nextCursor = items.size() == limit && index.higherKey(last) != null ? last : null;
+        return new Page(items, nextCursor);
+    }
+
+    /**
+     * Records a new PENDING case, atomically with the check that the submission has a grade.
+     * Returns the grade the case was opened against, or null if the submission is not graded.
+     */
+    public GradeRecord openRegrade(RegradeCase pending) {
+        AtomicReference<SubmissionState> cell = submissions.get(pending.submissionId());
+        if (cell == null) {
+            return null;
+        }
+        Instant requestedAt = Instant.parse(pending.requestedAt());
+        QueueKey key = new QueueKey(requestedAt.getEpochSecond() * 1_000_000_000L + requestedAt.getNano(),
+                sequence.incrementAndGet());
+        // Registered first so the case is resolvable as soon as it becomes visible in the cell.
+        casesByRequest.put(pending.requestId(), new CaseRef(pending.submissionId(), key));
+        while (true) {
+            SubmissionState current = cell.get();
+            if (current.grade() == null) {
+                casesByRequest.remove(pending.requestId());
+                return null;
+            }
+            Map<String, RegradeCase> regrades = new HashMap<>(current.regrades());
+            regrades.put(pending.requestId(), pending);
+            if (cell.compareAndSet(current, new SubmissionState(current.grade(), Map.copyOf(regrades)))) {
+                statusIndex(pending.status()).put(key, pending.requestId());
+                return current.grade();
+            }
+        }
+    }
+
+    /**
+     * Moves a PENDING case to APPROVED or REJECTED. An approval with {@code overrideTotal}
+     * replaces the grade in the same transition. Of several concurrent decisions on one
+     * case exactly one is APPLIED; the others see ALREADY_DECIDED.
+     */
+    public Decision decide(String requestId, boolean approve, String moderatorId, String note,
+                           Integer overrideTotal, Instant decidedAt) {
+        CaseRef ref = casesByRequest.get(requestId);
+        AtomicReference<SubmissionState> cell = ref == null ? null : submissions.get(ref.submissionId());
+        if (cell == null) {
+            return new Decision(Outcome.NOT_FOUND, null, null);
+        }
+        while (true) {
+            SubmissionState current = cell.get();
+            RegradeCase regrade = current.regrades().get(requestId);
+            if (regrade == null) {
+                return new Decision(Outcome.NOT_FOUND, null, null);
+            }
+            if (!"PENDING".equals(regrade.status())) {
+                return new Decision(Outcome.ALREADY_DECIDED, regrade, current.grade());
+            }
+            GradeRecord grade = current.grade();
+            if (grade == null) {
+                return new Decision(Outcome.NOT_GRADED, regrade, null);
+            }
+            Integer appliedOverride = approve ? overrideTotal : null;
+            if (appliedOverride != null) {
+                grade = grade.withOverride(appliedOverride, decidedAt);
+            }
+            RegradeCase decided = new RegradeCase(regrade.requestId(), regrade.submissionId(), regrade.requestedBy(),
+                    regrade.reason(), approve ? "APPROVED" : "REJECTED", regrade.requestedAt(), moderatorId, note,
+                    decidedAt.toString(), appliedOverride);
+            Map<String, RegradeCase> regrades = new HashMap<>(current.regrades());
+            regrades.put(requestId, decided);
+            String assessmentId = appliedOverride == null ? null : grade.assessmentId();
+            beginWrite(assessmentId, null);
+            try {
+                if (cell.compareAndSet(current, new SubmissionState(grade, Map.copyOf(regrades)))) {
+                    statusIndex(decided.status()).put(ref.key(), requestId);
+                    statusIndex(regrade.status()).remove(ref.key());
+                    if (appliedOverride != null) {
+                        listener.gradeChanged(current.grade(), grade);
+                    }
+                    return new Decision(Outcome.APPLIED, decided, grade);
+                }
+            } finally {
+                endWrite(assessmentId, null);
+            }
+        }
+    }
+
+    private void beginWrite(String previousAssessmentId, String assessmentId) {
+        if (previousAssessmentId != null) {
+            writesInFlight.computeIfAbsent(previousAssessmentId, ignored -> new AtomicInteger()).incrementAndGet();
+        }
+        if (assessmentId != null && !assessmentId.equals(previousAssessmentId)) {
+            writesInFlight.computeIfAbsent(assessmentId, ignored -> new AtomicInteger()).incrementAndGet();
+        }
+    }
+
+    private void endWrite(String previousAssessmentId, String assessmentId) {
+        if (previousAssessmentId != null) {
+            writesInFlight.get(previousAssessmentId).decrementAndGet();
+        }
+        if (assessmentId != null && !assessmentId.equals(previousAssessmentId)) {
+            writesInFlight.get(assessmentId).decrementAndGet();
+        }
+    }
+
+    private NavigableMap<QueueKey, String> statusIndex(String status) {
+        return byStatus.computeIfAbsent(status, ignored -> new ConcurrentSkipListMap<>());
+    }
+
+    private AtomicReference<SubmissionState> cell(String submissionId) {
+        return submissions.computeIfAbsent(submissionId, ignored -> new AtomicReference<>(SubmissionState.EMPTY));
+    }
+}
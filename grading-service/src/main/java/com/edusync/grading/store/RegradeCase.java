@@ -0,0 +1,15 @@
+package com.edusync.grading.store;
+
+public record RegradeCase(
+        String requestId,
+        String submissionId,
+        String requestedBy,
+        String reason,
+        String status,
+        String requestedAt,
+        String decidedBy,
+        String decisionNote,
+        String decidedAt,
+        Integer overrideTotal
+) {
+}
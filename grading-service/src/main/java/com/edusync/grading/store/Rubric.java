@@ -0,0 +1,73 @@
+package com.edusync.grading.store;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The ordered rubric keys of a grade breakdown. Rubrics built from compiled scoring plans and
+ * code suites are {@linkplain #of shared}: every grade with the same keys in the same order
+ * points at one instance and keeps only its scores, so a million grades of one assessment
+ * hold the key strings once. Keys that arrive with a single request, such as a manual grade's
+ * breakdown, go through {@link #copyOf} instead and never grow the shared table. Rubrics are
+ * equal when their keys are, so such copies can still be grouped by content.
+ */
+public final class Rubric {
+
+    private static final Map<List<String>, Rubric> SHARED = new ConcurrentHashMap<>();
+
+    private final String[] keys;
+    private final int hash;
+
+    private Rubric(String[] keys) {
+        this.keys = keys;
+        this.hash = Arrays.hashCode(keys);
+    }
+
+    /** The shared rubric for {@code keys}; only for plan and suite keys, which are few and long-lived. */
+    public static Rubric of(String... keys) {
+        List<String> list = List.of(keys);
+        Rubric rubric = SHARED.get(list);
+        return rubric != null ? rubric : SHARED.computeIfAbsent(list, ignored -> new Rubric(keys.clone()));
+    }
+
+    /** The shared rubric for {@code keys} if a plan or suite already registered one, otherwise a private copy. */
+    public static Rubric copyOf(String... keys) {
+        Rubric rubric = SHARED.get(List.of(keys));
+        return rubric != null ? rubric : new Rubric(keys.clone());
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public String key(int index) {
+        return keys[index];
+    }
+
+    /** Position of {@code key}, or -1. Rubrics are short, so this is a plain scan. */
+    public int indexOf(Object key) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof Rubric rubric && hash == rubric.hash && Arrays.equals(keys, rubric.keys);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(keys);
+    }
+}
@@ -0,0 +1,362 @@
+"""Warm sandbox worker for grading-service code tests.
+
+Reads one JSON job per line on stdin and writes one JSON result per line on stdout.
+The interpreter stays up between jobs, so process startup is paid once per worker
+rather than once per job.
+
+The worker is two processes. This one keeps each job's expected values and decides
+the verdict. A separate runner process, started once alongside it, never receives
+expected values and forks a limited child per job. The child only reports canonical,
+type-checked primitive values for each test call. Student code therefore cannot
+read the expected answers, forge a verdict, or pass a test with a custom __eq__.
+
+Before running submitted code, each child:
+- switches to the unprivileged sandbox uid/gid (--sandbox-uid/--sandbox-gid, or nobody when started as root);
+- drops every capability and sets no_new_privs;
+- blocks socket creation with a seccomp filter;
+- clears its environment;
+- runs from an empty per-job directory it cannot write to.
+"""
+import ctypes
+import json
+import os
+import platform
+import resource
+import select
+import shutil
+import signal
+import struct
+import subprocess
+import sys
+import tempfile
+import time
+
+MAX_RESULT_BYTES = 8 * 1024 * 1024
+MAX_VALUE_NODES = 100_000
+MAX_VALUE_DEPTH = 100
+
+
+NOBODY = 65534
+PR_SET_NO_NEW_PRIVS = 38
+PR_SET_SECCOMP = 22
+PR_CAP_AMBIENT = 47
+PR_CAP_AMBIENT_CLEAR_ALL = 4
+SECCOMP_MODE_FILTER = 2
+LINUX_CAPABILITY_VERSION_3 = 0x20080522
+# audit arch, socket, socketpair
+SYSCALLS = {
+    "x86_64": (0xC000003E, 41, 53),
+    "aarch64": (0xC00000B7, 198, 199),
+}
+
+
+class UnsupportedValue(Exception):
+    pass
+
+
+class SandboxError(Exception):
+    pass
+
+
+def canonical(value, budget=None, depth=0):
+    """A JSON-safe, tagged copy of a plain Python value; anything else is rejected.
+
+    Exact type checks, so subclasses with their own __eq__, __hash__ or __repr__ never
+    reach the comparison. Numbers share one tag, so 3 matches 3.0 as it did with ==.
+    """
+    if budget is None:
+        budget = [MAX_VALUE_NODES]
+    budget[0] -= 1
+    if budget[0] < 0 or depth > MAX_VALUE_DEPTH:
+        raise UnsupportedValue("value too large")
+    kind = type(value)
+    if value is None:
+        return ["none"]
+    if kind is bool:
+        return ["bool", value]
+    if kind is int or kind is float:
+        return ["num", value]
+    if kind is str:
+        return ["str", value]
+    if kind is list or kind is tuple:
+        return [kind.__name__, [canonical(item, budget, depth + 1) for item in value]]
+    if kind is set or kind is frozenset:
+        items = [canonical(item, budget, depth + 1) for item in value]
+        return ["set", sorted(items, key=_sort_key)]
+    if kind is dict:
+        pairs = [[canonical(k, budget, depth + 1), canonical(v, budget, depth + 1)] for k, v in value.items()]
+        return ["dict", sorted(pairs, key=_sort_key)]
+    raise UnsupportedValue(kind.__name__)
+
+
+def _sort_key(item):
+    return json.dumps(item, sort_keys=True)
+
+
+# ---------------------------------------------------------------------------
+# Runner process: forks one limited child per job. Never sees expected values.
+# ---------------------------------------------------------------------------
+
+def run_calls(job):
+    namespace = {"__name__": "submission"}
+    try:
+        exec(compile(job["source"], "submission.py", "exec"), namespace)
+    except BaseException as e:  # noqa: B902 - student code may raise anything
+        error = "LOAD_ERROR: " + type(e).__name__
+        return [{"name": t["name"], "error": error} for t in job["tests"]]
+    results = []
+    for test in job["tests"]:
+        try:
+            value = canonical(eval(test["call"], namespace))
+            results.append({"name": test["name"], "value": value})
+        except UnsupportedValue as e:
+            results.append({"name": test["name"], "error": "UNSUPPORTED_RESULT: " + str(e)})
+        except BaseException as e:  # noqa: B902
+            results.append({"name": test["name"], "error": type(e).__name__})
+    return results
+
+
+def _libc():
+    return ctypes.CDLL(None, use_errno=True)
+
+
+def _check(rc, what):
+    if rc != 0:
+        raise SandboxError(what + ": " + os.strerror(ctypes.get_errno()))
+
+
+def drop_privileges(libc, uid, gid):
+    if uid >= 0:
+        os.setgroups([])
+        os.setresgid(gid, gid, gid)
+        os.setresuid(uid, uid, uid)
+        if os.getresuid() != (uid, uid, uid) or os.getresgid() != (gid, gid, gid):
+            raise SandboxError("uid switch did not stick")
+    # Switching between non-root uids keeps file capabilities (setuid/setgid on the
+    # interpreter in the image), so clear them explicitly.
+    header = struct.pack("Ii", LINUX_CAPABILITY_VERSION_3, 0)
+    data = bytes(24)
+    _check(libc.capset(ctypes.c_char_p(header), ctypes.c_char_p(data)), "capset")
+    libc.prctl(PR_CAP_AMBIENT, PR_CAP_AMBIENT_CLEAR_ALL, 0, 0, 0)
+    _check(libc.prctl(PR_SET_NO_NEW_PRIVS, 1, 0, 0, 0), "no_new_privs")
+
+
+def block_sockets(libc):
+    arch = SYSCALLS.get(platform.machine())
+    if arch is None:
+        raise SandboxError("no seccomp filter for " + platform.machine())
+    audit_arch, socket_nr, socketpair_nr = arch
+    allow, kill, eacces = 0x7FFF0000, 0x80000000, 0x00050000 | 13
+    ld, jeq, jge, ret = 0x20, 0x15, 0x35, 0x06
+    program = [
+        (ld, 0, 0, 4),                 # seccomp_data.arch
+        (jeq, 1, 0, audit_arch),
+        (ret, 0, 0, kill),             # other ABIs (i386, ...) could bypass the numbers below
+        (ld, 0, 0, 0),                 # seccomp_data.nr
+        (jge, 3, 0, 0x40000000),       # x32 syscall numbers
+        (jeq, 2, 0, socket_nr),
+        (jeq, 1, 0, socketpair_nr),
+        (ret, 0, 0, allow),
+        (ret, 0, 0, eacces),
+    ]
+    filters = b"".join(struct.pack("HBBI", *insn) for insn in program)
+    buffer = ctypes.create_string_buffer(filters)
+    fprog = struct.pack("HP", len(program), ctypes.addressof(buffer))
+    _check(libc.prctl(PR_SET_SECCOMP, SECCOMP_MODE_FILTER, ctypes.c_char_p(fprog), 0, 0), "seccomp")
+
+
+def sandbox(workdir, uid, gid):
+    libc = _libc()
+    os.chdir(workdir)
+    drop_privileges(libc, uid, gid)
+    block_sockets(libc)
+
+
+def child(job, write_fd, workdir, uid, gid):
+    # Own process group, so anything the submission spawns is killed along with it.
+    os.setpgid(0, 0)
+    try:
+        sandbox(workdir, uid, gid)
+    except (OSError, SandboxError) as e:
+        os.write(write_fd, (json.dumps({"status": "SANDBOX_ERROR", "error": str(e), "tests": []}) + "\n").encode())
+        os._exit(0)
+    memory = job["memoryMb"] * 1024 * 1024
+    cpu = max(1, (job["timeoutMs"] + 999) // 1000)
+    resource.setrlimit(resource.RLIMIT_AS, (memory, memory))
+    resource.setrlimit(resource.RLIMIT_CPU, (cpu, cpu + 1))
+    resource.setrlimit(resource.RLIMIT_FSIZE, (0, 0))
+    resource.setrlimit(resource.RLIMIT_NPROC, (0, 0))
+    os.environ.clear()
+    devnull = os.open(os.devnull, os.O_RDWR)
+    for fd in (0, 1, 2):
+        os.dup2(devnull, fd)
+    os.closerange(3, write_fd)
+    os.closerange(write_fd + 1, resource.getrlimit(resource.RLIMIT_NOFILE)[0])
+    try:
+        payload = json.dumps({"status": "OK", "tests": run_calls(job)})
+    except BaseException as e:  # noqa: B902
+        payload = json.dumps({"status": "CRASHED", "error": type(e).__name__, "tests": []})
+    data = (payload + "\n").encode()
+    while data:
+        data = data[os.write(write_fd, data):]
+    os._exit(0)
+
+
+def run_job(job, uid, gid):
+    workdir = tempfile.mkdtemp(prefix="job-")
+    try:
+        return run_child(job, workdir, uid, gid)
+    finally:
+        shutil.rmtree(workdir, ignore_errors=True)
+
+
+def run_child(job, workdir, uid, gid):
+    read_fd, write_fd = os.pipe()
+    started = time.monotonic()
+    pid = os.fork()
+    if pid == 0:
+        os.close(read_fd)
+        child(job, write_fd, workdir, uid, gid)
+    os.close(write_fd)
+    deadline = started + job["timeoutMs"] / 1000.0
+    chunks = []
+    size = 0
+    timed_out = False
+    while True:
+        remaining = deadline - time.monotonic()
+        if remaining <= 0:
+            timed_out = True
+            break
+        ready, _, _ = select.select([read_fd], [], [], remaining)
+        if not ready:
+            continue
+        chunk = os.read(read_fd, 65536)
+        if not chunk:
+            break
+        chunks.append(chunk)
+        size += len(chunk)
+        if chunk.endswith(b"\n") or size > MAX_RESULT_BYTES:
+            break
+    os.close(read_fd)
+    try:
+        os.killpg(pid, signal.SIGKILL)
+    except (ProcessLookupError, PermissionError):
+        pass
+    _, status = os.waitpid(pid, 0)
+    elapsed_ms = int((time.monotonic() - started) * 1000)
+    if timed_out:
+        return {"status": "TIMEOUT", "tests": [], "elapsedMs": elapsed_ms}
+    output = b"".join(chunks)
+    result = None
+    if output.endswith(b"\n") and size <= MAX_RESULT_BYTES:
+        try:
+            result = json.loads(output.split(b"\n", 1)[0])
+        except ValueError:
+            result = None
+    if result is None:
+        if os.WIFSIGNALED(status) and os.WTERMSIG(status) == signal.SIGXCPU:
+            result = {"status": "TIMEOUT", "tests": []}
+        else:
+            result = {"status": "CRASHED", "tests": []}
+    result["elapsedMs"] = elapsed_ms
+    return result
+
+
+def sandbox_ids(argv):
+    uid = int(_arg(argv, "--sandbox-uid", "-1"))
+    gid = int(_arg(argv, "--sandbox-gid", "-1"))
+    if uid < 0 and os.geteuid() == 0:
+        uid = NOBODY
+    if uid >= 0 and gid < 0:
+        gid = uid
+    return uid, gid
+
+
+def _arg(argv, name, default):
+    return argv[argv.index(name) + 1] if name in argv else default
+
+
+def runner_main(argv):
+    uid, gid = sandbox_ids(argv)
+    for line in sys.stdin:
+        if not line.strip():
+            continue
+        job = json.loads(line)
+        result = run_job(job, uid, gid)
+        del job, line
+        sys.stdout.write(json.dumps(result) + "\n")
+        sys.stdout.flush()
+
+
+# ---------------------------------------------------------------------------
+# Verdict process: holds expected values and compares in trusted code.
+# ---------------------------------------------------------------------------
+
+def verdict(job, reply):
+    if type(reply) is dict and reply.get("status") == "SANDBOX_ERROR":
+        return {"status": "SANDBOX_ERROR", "error": str(reply.get("error"))[:200], "tests": []}
+    if type(reply) is not dict or reply.get("status") not in ("OK", "TIMEOUT", "CRASHED"):
+        return {"status": "CRASHED", "tests": []}
+    if reply["status"] != "OK":
+        return {"status": reply["status"], "tests": []}
+    reported = {}
+    for entry in reply.get("tests") if type(reply.get("tests")) is list else []:
+        if type(entry) is dict and type(entry.get("name")) is str:
+            reported[entry["name"]] = entry
+    tests = []
+    for test in job["tests"]:
+        entry = reported.get(test["name"])
+        if entry is None:
+            tests.append({"name": test["name"], "passed": False, "error": "NO_RESULT"})
+        elif "error" in entry:
+            error = entry["error"] if type(entry["error"]) is str else "ERROR"
+            tests.append({"name": test["name"], "passed": False, "error": error[:200]})
+        else:
+            try:
+                expected = canonical(eval(test["expected"], {"__builtins__": {}}))
+            except BaseException as e:  # noqa: B902 - a bad expected literal fails the test
+                tests.append({"name": test["name"], "passed": False, "error": "BAD_EXPECTED: " + type(e).__name__})
+                continue
+            # Both sides are plain json-decoded lists, strings and numbers here.
+            tests.append({"name": test["name"], "passed": entry.get("value") == expected, "error": None})
+    return {"status": "OK", "tests": tests}
+
+
+def main(argv):
+    runner = subprocess.Popen([sys.executable, "-u", os.path.abspath(__file__), "--runner"] + argv,
+                              stdin=subprocess.PIPE, stdout=subprocess.PIPE, text=True,
+                              env={"PATH": os.environ.get("PATH", "/usr/bin:/bin"), "LANG": "C.UTF-8"})
+    out = sys.stdout
+    out.write(json.dumps({"ready": True, "pid": os.getpid(), "runnerPid": runner.pid}) + "\n")
+    out.flush()
+    for line in sys.stdin:
+        if not line.strip():
+            continue
+        job = json.loads(line)
+        request = {
+            "source": job["source"],
+            "tests": [{"name": t["name"], "call": t["call"]} for t in job["tests"]],
+            "timeoutMs": job["timeoutMs"],
+            "memoryMb": job["memoryMb"],
+        }
+        runner.stdin.write(json.dumps(request) + "\n")
+        runner.stdin.flush()
+        reply_line = runner.stdout.readline()
+        if not reply_line:
+            sys.exit("sandbox runner exited")
+        try:
+            reply = json.loads(reply_line)
+        except ValueError:
+            reply = None
+        result = verdict(job, reply)
+        result["elapsedMs"] = reply.get("elapsedMs") if type(reply) is dict and type(reply.get("elapsedMs")) is int else None
+        result["id"] = job["id"]
+        out.write(json.dumps(result) + "\n")
+        out.flush()
+
+
+if __name__ == "__main__":
+    if "--runner" in sys.argv[1:]:
+        runner_main(sys.argv[1:])
+    else:
+        main(sys.argv[1:])
@@ -0,0 +1,312 @@
+package com.edusync.grading.analytics;
+
+import com.edusync.grading.store.GradeRecord;
+import com.edusync.grading.store.GradeStatus;
+import com.edusync.grading.store.GradingStore;
+import com.edusync.grading.store.RegradeCase;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalyticsGradeFeedTest {
+
+    private static final String TOKEN = "feed-token";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<JsonNode> received = new CopyOnWriteArrayList<>();
+    private final AtomicInteger courseLookups = new AtomicInteger();
+    private HttpServer server;
+    private AnalyticsGradeFeed feed;
+
+    @AfterEach
+    void tearDown() {
+        if (feed != null) {
+            feed.close();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void gradeWritesAndOverridesShouldReachAnalyticsWithTheirCourse() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/assessments/", exchange -> {
+            courseLookups.incrementAndGet();
+            String id = exchange.getRequestURI().getPath().substring("/assessments/".length());
+            if ("asm-1".equals(id)) {
+                respond(exchange, 200, "{\"id\":\"asm-1\",\"courseId\":\"course-1\"}");
+            } else {
+                respond(exchange, 404, "{\"error\":\"NOT_FOUND\"}");
+            }
+        });
+        server.createContext("/analytics/grade-events", exchange -> {
+            assertEquals(TOKEN, exchange.getRequestHeaders().getFirst("X-Service-Token"));
+            for (JsonNode event : objectMapper.readTree(exchange.getRequestBody()).get("events")) {
+                received.add(event);
+            }
+            respond(exchange, 202, "{}");
+        });
+        server.start();
+        GradingStore store = startFeed();
+        store.putGrade(grade("s1", "asm-1", 70));
+        store.putGrade(grade("s2", "asm-1", 88));
+        store.putGrade(grade("s3", "asm-other", 40));
+        // Unchanged regrading is not forwarded.
+        store.putGrade(grade("s2", "asm-1", 88));
+        store.openRegrade(new RegradeCase("rg-1", "s1", "student", "reason", "PENDING", Instant.now().toString(),
+                null, null, null, null));
+        store.decide("rg-1", true, "mod", null, 91, Instant.now());
+
+        for (int attempt = 0; attempt < 300 && feed.stats().sentChanges() < 4; attempt++) {
+            Thread.sleep(10);
+        }
+        assertEquals(4, received.size());
+        JsonNode override = received.stream().filter(event -> event.path("previousTotal").asInt() == 70).findFirst().orElseThrow();
+        assertEquals("s1", override.get("submissionId").asText());
+        assertEquals("asm-1", override.get("previousAssessmentId").asText());
+        assertEquals(91, override.get("total").asInt());
+        assertEquals("course-1", override.get("courseId").asText());
+        JsonNode other = received.stream().filter(event -> "s3".equals(event.get("submissionId").asText())).findFirst().orElseThrow();
+        assertTrue(other.get("courseId").isNull());
+        assertEquals(2, courseLookups.get(), "each assessment's course is looked up once");
+        assertEquals(4, feed.stats().sentChanges());
+    }
+
+    @Test
+    void unreachableAnalyticsShouldNotBlockGrading() {
+        feed = new AnalyticsGradeFeed(objectMapper, () -> null, true, "http://127.0.0.1:9", "http://127.0.0.1:9", TOKEN,
+                2, 500, 3, Duration.ofMillis(10), Duration.ofMillis(50));
+        GradingStore store = new GradingStore(feed);
+        for (int i = 0; i < 10; i++) {
+            store.putGrade(grade("s" + i, null, i));
+        }
+        // Not started, so nothing drains: two buffered, the rest dropped without blocking.
+        assertEquals(2, feed.stats().queuedChanges());
+        assertEquals(8, feed.stats().droppedChanges());
+    }
+
+    @Test
+    void refusedBatchesShouldBeRetriedWithBackoff() throws Exception {
+        AtomicInteger posts = new AtomicInteger();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/analytics/grade-events", exchange -> {
+            if (posts.incrementAndGet() <= 2) {
+                exchange.getRequestBody().readAllBytes();
+                respond(exchange, 503, "{}");
+                return;
+            }
+            for (JsonNode event : objectMapper.readTree(exchange.getRequestBody()).get("events")) {
+                received.add(event);
+            }
+            respond(exchange, 202, "{}");
+        });
+        server.start();
+        GradingStore store = startFeed();
+
+        store.putGrade(grade("s1", null, 70));
+        for (int attempt = 0; attempt < 300 && feed.stats().sentChanges() < 1; attempt++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, received.size());
+        assertEquals(3, posts.get());
+        assertEquals(2, feed.stats().retries());
+        assertEquals(0, feed.stats().failedChanges());
+        assertEquals(0, feed.stats().pendingResyncs());
+    }
+
+    @Test
+    void lostChangesShouldBeRepairedByResyncingTheAssessment() throws Exception {
+        AtomicInteger refusals = new AtomicInteger(4);
+        Map<String, JsonNode> replaced = new ConcurrentHashMap<>();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/assessments/", exchange ->
+                respond(exchange, 200, "{\"courseId\":\"course-1\"}"));
+        server.createContext("/analytics/grade-events", exchange -> {
+            JsonNode body = objectMapper.readTree(exchange.getRequestBody());
+            if (refusals.getAndDecrement() > 0) {
+                respond(exchange, 503, "{}");
+                return;
+            }
+            for (JsonNode event : body.get("events")) {
+                received.add(event);
+            }
+            respond(exchange, 202, "{}");
+        });
+        server.createContext("/analytics/grade-distributions/", exchange -> {
+            assertEquals("PUT", exchange.getRequestMethod());
+            assertEquals(TOKEN, exchange.getRequestHeaders().getFirst("X-Service-Token"));
+            String id = exchange.getRequestURI().getPath().substring("/analytics/grade-distributions/".length());
+            replaced.put(id, objectMapper.readTree(exchange.getRequestBody()));
+            respond(exchange, 200, "{}");
+        });
+        server.start();
+        GradingStore store = startFeed();
+
+        // Three attempts are refused, so the first batch is given up and its assessment resynced.
+        store.putGrade(grade("s1", "asm-1", 70));
+        store.putGrade(grade("s2", "asm-1", 55));
+        for (int attempt = 0; attempt < 300 && feed.stats().resyncs() < 1; attempt++) {
+            Thread.sleep(10);
+        }
+        assertTrue(feed.stats().failedChanges() >= 1);
+        JsonNode rebuilt = replaced.get("asm-1");
+        assertEquals("course-1", rebuilt.get("courseId").asText());
+        assertEquals(List.of(55, 70), sortedTotals(rebuilt));
+
+        // Later changes are sent as usual on top of the rebuilt histogram.
+        store.putGrade(grade("s1", "asm-1", 90));
+        for (int attempt = 0; attempt < 300 && received.isEmpty(); attempt++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, received.size());
+        assertEquals(70, received.get(0).get("previousTotal").asInt());
+        assertEquals(90, received.get(0).get("total").asInt());
+        assertEquals(0, feed.stats().pendingResyncs());
+    }
+
+    @Test
+    void resyncShouldNotCountAWriteThatIsStillBeingReported() throws Exception {
+        // Analytics' view of asm-1, built only from what the feed sends.
+        Map<Integer, Integer> histogram = new ConcurrentHashMap<>();
+        AtomicBoolean refuseEvents = new AtomicBoolean(true);
+        AtomicBoolean acceptResyncs = new AtomicBoolean(false);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/assessments/", exchange -> respond(exchange, 200, "{\"courseId\":\"course-1\"}"));
+        server.createContext("/analytics/grade-events", exchange -> {
+            JsonNode body = objectMapper.readTree(exchange.getRequestBody());
+            if (refuseEvents.get()) {
+                respond(exchange, 503, "{}");
+                return;
+            }
+            for (JsonNode event : body.get("events")) {
+                if ("asm-1".equals(event.path("previousAssessmentId").asText(null)) && event.hasNonNull("previousTotal")) {
+                    histogram.merge(event.get("previousTotal").asInt(), -1, Integer::sum);
+                }
+                if ("asm-1".equals(event.path("assessmentId").asText(null))) {
+                    histogram.merge(event.get("total").asInt(), 1, Integer::sum);
+                }
+            }
+            respond(exchange, 202, "{}");
+        });
+        server.createContext("/analytics/grade-distributions/", exchange -> {
+            JsonNode body = objectMapper.readTree(exchange.getRequestBody());
+            if (!acceptResyncs.get()) {
+                respond(exchange, 503, "{}");
+                return;
+            }
+            histogram.clear();
+            body.get("totals").forEach(total -> histogram.merge(total.asInt(), 1, Integer::sum));
+            respond(exchange, 200, "{}");
+        });
+        server.start();
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        CountDownLatch reporting = new CountDownLatch(1);
+        CountDownLatch report = new CountDownLatch(1);
+        AtomicBoolean holdReports = new AtomicBoolean(false);
+        GradingStore store = new GradingStore((previous, current) -> {
+            if (holdReports.get()) {
+                reporting.countDown();
+                try {
+                    report.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            feed.gradeChanged(previous, current);
+        });
+        feed = new AnalyticsGradeFeed(objectMapper, () -> store, true, base, base, TOKEN, 1024, 500, 3,
+                Duration.ofMillis(10), Duration.ofMillis(50));
+        feed.start();
+
+        // The first change is refused until given up, so asm-1 waits for a resync.
+        store.putGrade(grade("s1", "asm-1", 70));
+        for (int attempt = 0; attempt < 300 && feed.stats().pendingResyncs() < 1; attempt++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, feed.stats().pendingResyncs());
+        refuseEvents.set(false);
+
+        // The second write is in the store but not yet reported while resyncs are retried.
+        holdReports.set(true);
+        Thread writer = new Thread(() -> store.putGrade(grade("s2", "asm-1", 55)));
+        writer.start();
+        assertTrue(reporting.await(5, TimeUnit.SECONDS));
+        acceptResyncs.set(true);
+        Thread.sleep(300);
+        holdReports.set(false);
+        report.countDown();
+        writer.join();
+
+        for (int attempt = 0; attempt < 300
+                && (feed.stats().pendingResyncs() > 0 || feed.stats().queuedChanges() > 0); attempt++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        assertEquals(0, feed.stats().pendingResyncs());
+        assertEquals(Map.of(55, 1, 70, 1), Map.copyOf(histogram));
+    }
+
+    @Test
+    void droppedChangesShouldMarkTheirAssessmentsForResync() {
+        feed = new AnalyticsGradeFeed(objectMapper, () -> null, true, "http://127.0.0.1:9", "http://127.0.0.1:9", TOKEN,
+                1, 500, 3, Duration.ofMillis(10), Duration.ofMillis(50));
+        GradingStore store = new GradingStore(feed);
+        store.putGrade(grade("s1", "asm-1", 10));
+        store.putGrade(grade("s2", "asm-2", 20));
+        store.putGrade(grade("s3", "asm-3", 30));
+        assertEquals(2, feed.stats().droppedChanges());
+        assertEquals(2, feed.stats().pendingResyncs());
+    }
+
+    /** Starts a feed sending to the test server, retrying each batch three times. */
+    private GradingStore startFeed() {
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        GradingStore[] store = new GradingStore[1];
+        feed = new AnalyticsGradeFeed(objectMapper, () -> store[0], true, base, base + "/", TOKEN, 1024, 500, 3,
+                Duration.ofMillis(10), Duration.ofMillis(50));
+        store[0] = new GradingStore(feed);
+        feed.start();
+        return store[0];
+    }
+
+    private static List<Integer> sortedTotals(JsonNode body) {
+        List<Integer> totals = new ArrayList<>();
+        body.get("totals").forEach(total -> totals.add(total.asInt()));
+        totals.sort(null);
+        return totals;
+    }
+
+    private static GradeRecord grade(String submissionId, String assessmentId, int total) {
+        return GradeRecord.of(submissionId, assessmentId, Map.of("q1", total), total, null, GradeStatus.GRADED, Instant.now());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
@@ -7,15 +7,22 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@SpringBootTest
+@SpringBootTest(properties = "grading.analytics.enabled=false")
 @AutoConfigureMockMvc
 class GradingControllerTest {
 
@@ -63,4 +70,287 @@ class GradingControllerTest {
                 .andExpect(jsonPath("$.status").value("APPROVED"))
                 .andExpect(jsonPath("$.currentGrade.total").value(82));
     }
+
+    @Test
+    void autoBatchShouldStreamPerItemResultsAndStoreGrades() throws Exception {
+        String body = mockMvc.perform(post("/grading/auto/batch")
+                        .contentType("application/x-ndjson")
+                        .content("\"sub-b1\"\n{\"submissionId\":\"sub-b2\"}\n\n{not json\n{}\n"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.strip().split("\n");
+        assertEquals(5, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals("sub-b1", first.get("submissionId").asText());
+        assertEquals("GRADED", first.get("status").asText());
+        assertEquals("INVALID_JSON", objectMapper.readTree(lines[2]).get("error").asText());
+        assertEquals("MISSING_SUBMISSION_ID", objectMapper.readTree(lines[3]).get("error").asText());
+        JsonNode summary = objectMapper.readTree(lines[4]);
+        assertEquals(2, summary.get("graded").asInt());
+        assertEquals(2, summary.get("rejected").asInt());
+
+        mockMvc.perform(post("/grading/sub-b2/publish"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.score.total").value(objectMapper.readTree(lines[1]).get("total").asInt()));
+
+        String jsonBody = mockMvc.perform(post("/grading/auto/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"submissionIds\":[\"sub-b3\",\"sub-b4\",\"sub-b5\"]}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] jsonLines = jsonBody.strip().split("\n");
+        assertEquals(4, jsonLines.length);
+        assertEquals(3, objectMapper.readTree(jsonLines[3]).get("graded").asInt());
+    }
+
+    @Test
+    void autoBatchShouldGradeARepeatedSubmissionOncePerLine() throws Exception {
+        mockMvc.perform(put("/grading/assessments/{assessmentId}/answer-key", "exam-dup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"questions\":[{\"questionId\":\"q1\",\"type\":\"CHOICE\",\"answers\":[\"B\"]}]}"))
+                .andExpect(status().isOk());
+
+        String body = mockMvc.perform(post("/grading/auto/batch")
+                        .contentType("application/x-ndjson")
+                        .content("""
+                                {"submissionId":"sub-dup","assessmentId":"exam-dup","answers":[{"questionId":"q1","response":"B"}]}
+                                {"submissionId":"sub-dup","assessmentId":"exam-dup","answers":[{"questionId":"q1","response":"A"}]}
+                                """))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.strip().split("\n");
+        assertEquals(3, lines.length);
+        assertEquals(100, objectMapper.readTree(lines[0]).get("total").asInt());
+        assertEquals(0, objectMapper.readTree(lines[1]).get("total").asInt());
+        assertEquals(2, objectMapper.readTree(lines[2]).get("graded").asInt());
+
+        mockMvc.perform(post("/grading/sub-dup/publish"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.score.total").value(0));
+    }
+
+    @Test
+    void autoShouldScoreAgainstCompiledAnswerKey() throws Exception {
+        mockMvc.perform(put("/grading/assessments/{assessmentId}/answer-key", "exam-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"questions":[
+                                  {"questionId":"q1","type":"CHOICE","answers":["B"]},
+                                  {"questionId":"q2","type":"NUMERIC","numericAnswer":9.81,"tolerance":0.05,"weight":3}
+                                ]}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.questions").value(2))
+                .andExpect(jsonPath("$.maxPoints").value(4.0));
+
+        mockMvc.perform(post("/grading/auto/sub-key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"assessmentId":"exam-1","answers":[
+                                  {"questionId":"q1","response":"A"},
+                                  {"questionId":"q2","response":"9.8"}
+                                ]}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.score.total").value(75))
+                .andExpect(jsonPath("$.score.breakdown.q1").value(0.0))
+                .andExpect(jsonPath("$.score.breakdown.q2").value(3.0));
+
+        mockMvc.perform(post("/grading/auto/sub-key-2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"assessmentId\":\"exam-unknown\",\"answers\":[]}"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("ANSWER_KEY_NOT_FOUND"));
+
+        mockMvc.perform(put("/grading/assessments/{assessmentId}/answer-key", "exam-2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"questions\":[{\"questionId\":\"q1\",\"type\":\"ESSAY\"}]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("INVALID_ANSWER_KEY"));
+    }
+
+    @Test
+    void regradeQueueShouldPageByStatusInRequestOrder() throws Exception {
+        List<String> requestIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/grading/auto/sub-queue-{i}", i)).andExpect(status().isOk());
+            MvcResult opened = mockMvc.perform(post("/grading/regrade/sub-queue-{i}/request", i)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"requestedBy\":\"u-student\",\"reason\":\"Rubric\"}"))
+                    .andExpect(status().isCreated())
+                    .andReturn();
+            requestIds.add(objectMapper.readTree(opened.getResponse().getContentAsString()).get("requestId").asText());
+        }
+
+        mockMvc.perform(post("/grading/regrade/{requestId}/decision", requestIds.get(1))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"moderatorId\":\"u-mod\",\"decision\":\"APPROVE\",\"overrideTotal\":90}"))
+                .andExpect(status().isOk());
+
+        assertEquals(List.of(requestIds.get(0), requestIds.get(2)), listAll("PENDING", "sub-queue-"));
+        assertEquals(List.of(requestIds.get(1)), listAll("APPROVED", "sub-queue-"));
+
+        mockMvc.perform(get("/grading/regrades").param("submissionId", "sub-queue-1").param("status", "APPROVED"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].requestId").value(requestIds.get(1)))
+                .andExpect(jsonPath("$.items[0].currentGrade.total").value(90));
+        // Without a status, a submission's cases are listed whatever their state.
+        mockMvc.perform(get("/grading/regrades").param("submissionId", "sub-queue-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].requestId").value(requestIds.get(1)));
+        mockMvc.perform(get("/grading/regrades").param("submissionId", "sub-queue-1").param("status", "PENDING"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").isEmpty());
+        mockMvc.perform(get("/grading/regrades").param("cursor", "oops"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private List<String> listAll(String status, String submissionPrefix) throws Exception {
+        List<String> requestIds = new ArrayList<>();
+        String cursor = null;
+        do {
+            MockHttpServletRequestBuilder request = get("/grading/regrades").param("status", status).param("limit", "1");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            JsonNode page = objectMapper.readTree(mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            for (JsonNode item : page.get("items")) {
+                if (item.get("submissionId").asText().startsWith(submissionPrefix)) {
+                    requestIds.add(item.get("requestId").asText());
+                }
+            }
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+        } while (cursor != null);
+        return requestIds;
+    }
+
+    @Test
+    void bulkPublishShouldQueueOneBatchPerAssessment() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/grading/manual/sub-pub-{i}", i)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"breakdown\":{\"q1\":70},\"assessmentId\":\"asm-pub\"}"))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(post("/grading/publish")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"assessmentId\":\"asm-pub\"}"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.published").value(3));
+
+        mockMvc.perform(post("/grading/publish")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"submissionIds\":[\"sub-pub-0\",\"sub-pub-missing\"]}"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.published").value(1))
+                .andExpect(jsonPath("$.notGraded[0]").value("sub-pub-missing"));
+
+        mockMvc.perform(post("/grading/publish")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/grading/events/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.submittedEvents").isNumber());
+    }
+
+    @Test
+    void exportShouldStreamGradebookAsCsv() throws Exception {
+        mockMvc.perform(post("/grading/manual/sub-export-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"breakdown\":{\"essay\":18,\"quiz\":7},\"assessmentId\":\"asm-export\"}"))
+                .andExpect(status().isOk());
+
+        String csv = mockMvc.perform(get("/grading/export").param("assessmentId", "asm-export"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = csv.split("\r\n");
+        assertEquals("submissionId,assessmentId,total,status,updatedAt,feedback,breakdown.essay,breakdown.quiz", lines[0]);
+        assertEquals(2, lines.length);
+
+        mockMvc.perform(get("/grading/export").param("format", "xlsx"))
+                .andExpect(status().isBadRequest());
+
+        // Values that are not numbers are kept as given and count as zero; key order is kept too.
+        mockMvc.perform(post("/grading/manual/sub-export-2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"breakdown\":{\"quiz\":7,\"essay\":\"great\",\"bonus\":null},\"assessmentId\":\"asm-export\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.score.total").value(7));
+        String published = mockMvc.perform(post("/grading/sub-export-2/publish"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(published.contains("\"breakdown\":{\"quiz\":7,\"essay\":\"great\",\"bonus\":null}"), published);
+        csv = mockMvc.perform(get("/grading/export").param("assessmentId", "asm-export"))
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(csv.contains(",7,great\r\n") || csv.contains(",great,7\r\n"), csv);
+    }
+
+    @Test
+    void codeRunShouldQueueJobAndWriteGrade() throws Exception {
+        mockMvc.perform(post("/grading/code/sub-code-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"assessmentId\":\"asm-code\",\"source\":\"\"}"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("CODE_TESTS_NOT_FOUND"));
+
+        mockMvc.perform(put("/grading/assessments/asm-code/code-tests")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"tests":[{"name":"adds","call":"add(2, 3)","expected":"5"},
+                                          {"name":"negatives","call":"add(-2, -3)","expected":"-5","weight":3}],
+                                 "timeLimitMs":1000}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tests").value(2))
+                .andExpect(jsonPath("$.memoryMb").value(256));
+        mockMvc.perform(put("/grading/assessments/asm-bad/code-tests")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"tests\":[]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("INVALID_CODE_TESTS"));
+
+        MvcResult queued = mockMvc.perform(post("/grading/code/sub-code-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"assessmentId\":\"asm-code\",\"source\":\"def add(a, b):\\n    return abs(a) + b\\n\"}"))
+                .andReturn();
+        if (queued.getResponse().getStatus() == 503) {
+            // No python3 on this host; the runner reports itself unavailable.
+            assertEquals("RUNNER_UNAVAILABLE", objectMapper.readTree(queued.getResponse().getContentAsString()).get("error").asText());
+            return;
+        }
+        assertEquals(202, queued.getResponse().getStatus());
+        String jobId = objectMapper.readTree(queued.getResponse().getContentAsString()).get("jobId").asText();
+
+        JsonNode job = null;
+        for (int attempt = 0; attempt < 500; attempt++) {
+            job = objectMapper.readTree(mockMvc.perform(get("/grading/code/jobs/{jobId}", jobId))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            if ("DONE".equals(job.get("status").asText())) {
+                break;
+            }
+            Thread.sleep(10);
+        }
+        assertEquals("DONE", job.get("status").asText());
+        assertEquals(1, job.get("passed").asInt());
+        assertEquals(25, job.get("total").asInt());
+
+        mockMvc.perform(post("/grading/regrade/sub-code-1/request")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"requestedBy\":\"u-student\",\"reason\":\"Negative inputs\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.currentGrade.total").value(25));
+        mockMvc.perform(get("/grading/code/metrics"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completed").isNumber())
+                .andExpect(jsonPath("$.queueCapacity").value(256));
+    }
 }
@@ -0,0 +1,94 @@
+package com.edusync.grading.events;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GradeEventDispatcherTest {
+
+    @Test
+    void dispatcherShouldCoalesceQueuedBatchesUpToMaxBatch() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> sinkBatchSizes = Collections.synchronizedList(new ArrayList<>());
+        GradeEventDispatcher dispatcher = new GradeEventDispatcher(List.of(batch -> {
+            release.await();
+            sinkBatchSizes.add(batch.size());
+        }), 1024, 500, Duration.ofSeconds(2));
+        dispatcher.start();
+        try {
+            for (int b = 0; b < 6; b++) {
+                dispatcher.submit(events(b, 150));
+            }
+            release.countDown();
+            for (int attempt = 0; attempt < 200 && dispatcher.stats().dispatchedEvents() < 900; attempt++) {
+                Thread.sleep(10);
+            }
+
+            GradeEventDispatcher.Stats stats = dispatcher.stats();
+            assertEquals(900, stats.submittedEvents());
+            assertEquals(900, stats.dispatchedEvents());
+            assertEquals(900, sinkBatchSizes.stream().mapToInt(Integer::intValue).sum());
+            assertTrue(sinkBatchSizes.stream().allMatch(size -> size <= 500));
+            // The first batch is held by the sink while the other five queue up and get coalesced.
+            assertTrue(stats.sinkCalls() < 6, "expected coalesced sink calls, got " + sinkBatchSizes);
+        } finally {
+            dispatcher.close();
+        }
+    }
+
+    @Test
+    void fullBufferShouldRejectAfterTheOfferTimeoutInsteadOfBlocking() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> sinkBatchSizes = Collections.synchronizedList(new ArrayList<>());
+        GradeEventDispatcher dispatcher = new GradeEventDispatcher(List.of(batch -> {
+            release.await();
+            sinkBatchSizes.add(batch.size());
+        }), 300, 100, Duration.ofMillis(50));
+        dispatcher.start();
+        try {
+            // One submit is split into sink-sized chunks and counts every event against the buffer.
+            assertTrue(dispatcher.submit(events(0, 250)));
+            long startedAt = System.nanoTime();
+            assertFalse(dispatcher.submit(events(1, 100)));
+            assertTrue(System.nanoTime() - startedAt < TimeUnit.SECONDS.toNanos(1), "should not block past the timeout");
+            assertTrue(dispatcher.submit(events(2, 50)));
+            assertFalse(dispatcher.submit(events(3, 1)));
+            // Larger than the whole buffer: refused without waiting for room that cannot come.
+            assertFalse(dispatcher.submit(events(4, 301)));
+
+            GradeEventDispatcher.Stats full = dispatcher.stats();
+            assertEquals(300, full.submittedEvents());
+            assertEquals(402, full.rejectedEvents());
+            assertEquals(300, full.queuedEvents());
+
+            release.countDown();
+            for (int attempt = 0; attempt < 200 && dispatcher.stats().dispatchedEvents() < 300; attempt++) {
+                Thread.sleep(10);
+            }
+            assertEquals(300, dispatcher.stats().dispatchedEvents());
+            assertEquals(0, dispatcher.stats().queuedEvents());
+            assertTrue(sinkBatchSizes.stream().allMatch(size -> size <= 100), String.valueOf(sinkBatchSizes));
+            assertTrue(dispatcher.submit(events(5, 300)));
+        } finally {
+            dispatcher.close();
+        }
+    }
+
+    private static List<GradePublishedEvent> events(int batch, int size) {
+        List<GradePublishedEvent> events = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            events.add(new GradePublishedEvent("sub-" + batch + "-" + i, "asm-1", 80, Map.of(), "t0"));
+        }
+        return events;
+    }
+}
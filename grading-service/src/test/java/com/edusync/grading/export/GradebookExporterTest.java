@@ -0,0 +1,87 @@
+package com.edusync.grading.export;
+
+import com.edusync.grading.store.GradeRecord;
+import com.edusync.grading.store.GradeStatus;
+import com.edusync.grading.store.GradingStore;
+import com.edusync.grading.store.Rubric;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GradebookExporterTest {
+
+    private static final Instant T1 = Instant.parse("2026-01-01T00:00:00Z");
+    private static final Instant T2 = Instant.parse("2026-01-01T00:00:01.250Z");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void csvShouldHaveOneColumnPerRubricKeyAndEscapeFields() throws Exception {
+        GradingStore store = new GradingStore();
+        store.putGrade(GradeRecord.of("s1", "asm-1", Map.of("q1", 2.0, "q2", 1.5), 75, "Good, \"mostly\"", GradeStatus.GRADED, T1));
+        store.putGrade(GradeRecord.of("s2", "asm-1", Map.of("q3", 4), 40, null, GradeStatus.GRADED, T2));
+        store.putGrade(GradeRecord.of("s3", "asm-2", Map.of("q9", 1), 10, "other", GradeStatus.GRADED, T2));
+        GradebookExporter exporter = new GradebookExporter(store, objectMapper);
+
+        StringWriter out = new StringWriter();
+        assertEquals(2, exporter.writeCsv("asm-1", out));
+
+        String[] lines = out.toString().split("\r\n");
+        assertEquals("submissionId,assessmentId,total,status,updatedAt,feedback,breakdown.q1,breakdown.q2,breakdown.q3", lines[0]);
+        assertEquals(Set.of(
+                "s1,asm-1,75,GRADED,2026-01-01T00:00:00Z,\"Good, \"\"mostly\"\"\",2,1.5,",
+                "s2,asm-1,40,GRADED,2026-01-01T00:00:01.250Z,,,,4"
+        ), new TreeSet<>(Set.of(lines[1], lines[2])));
+        assertEquals(3, lines.length);
+    }
+
+    @Test
+    void csvColumnCacheShouldNotGrowWithManualGrades() throws Exception {
+        GradingStore store = new GradingStore();
+        for (int i = 0; i < 5_000; i++) {
+            // Fresh maps as they arrive from request bodies; each grade gets its own rubric copy.
+            Map<String, Object> breakdown = new LinkedHashMap<>();
+            breakdown.put(new String("essay"), i % 20);
+            if (i % 2 == 0) {
+                breakdown.put(new String("style"), 3);
+            }
+            store.putGrade(GradeRecord.of("s" + i, "asm-manual", breakdown, i % 20, null, GradeStatus.GRADED, T1));
+        }
+        Map<Rubric, int[]> columnsByRubric = new HashMap<>();
+        StringWriter out = new StringWriter();
+
+        assertEquals(5_000, new GradebookExporter(store, objectMapper).writeCsv("asm-manual", out, columnsByRubric));
+        assertEquals(2, columnsByRubric.size());
+        assertTrue(out.toString().startsWith("submissionId,assessmentId,total,status,updatedAt,feedback,breakdown.essay,breakdown.style\r\n"));
+    }
+
+    @Test
+    void ndjsonShouldWriteOneGradePerLine() throws Exception {
+        GradingStore store = new GradingStore();
+        for (int i = 0; i < 1_000; i++) {
+            store.putGrade(GradeRecord.of("s" + i, null, Map.of("auto", i % 100), i % 100, "ok", GradeStatus.GRADED, T1));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(1_000, new GradebookExporter(store, objectMapper).writeNdjson(null, out));
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(1_000, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals(first.get("total").asInt(), first.get("breakdown").get("auto").asInt());
+        assertEquals("GRADED", first.get("status").asText());
+        assertEquals("2026-01-01T00:00:00Z", first.get("updatedAt").asText());
+    }
+}
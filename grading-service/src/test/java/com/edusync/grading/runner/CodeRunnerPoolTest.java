@@ -0,0 +1,229 @@
+package com.edusync.grading.runner;
+
+import com.edusync.grading.store.GradeRecord;
+import com.edusync.grading.store.GradingStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class CodeRunnerPoolTest {
+
+    private static final CodeTestSuite ADD_SUITE = CodeTestSuite.validate(new CodeTestSuite(List.of(
+            new CodeTestSuite.CodeTest("small", "add(1, 2)", "3", null),
+            new CodeTestSuite.CodeTest("strings", "add('a', 'b')", "'ab'", 3.0)
+    ), 1_000, 128));
+
+    private final GradingStore store = new GradingStore();
+    private CodeRunnerPool pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void jobsShouldBeGradedByWeightOnReusedWorkers() throws Exception {
+        pool = start(2, 16);
+        CodeJob pass = pool.submit("sub-pass", "a-code", "def add(a, b):\n    return a + b\n", ADD_SUITE);
+        CodeJob partial = pool.submit("sub-partial", "a-code", "def add(a, b):\n    return a + b if isinstance(a, int) else None\n", ADD_SUITE);
+        CodeJob broken = pool.submit("sub-broken", "a-code", "def add(a, b) return", ADD_SUITE);
+
+        assertEquals("OK", await(pass).outcome());
+        assertEquals(100, store.grade("sub-pass").total());
+        CodeJob partialDone = await(partial);
+        assertEquals(1, partialDone.passed());
+        assertEquals(25, store.grade("sub-partial").total());
+        GradeRecord brokenGrade = store.grade(await(broken).submissionId());
+        assertEquals(0, brokenGrade.total());
+        assertEquals("a-code", brokenGrade.assessmentId());
+        assertTrue(await(broken).results().get(0).error().startsWith("LOAD_ERROR"));
+
+        for (int i = 0; i < 10; i++) {
+            await(pool.submit("sub-" + i, "a-code", "def add(a, b):\n    return a + b\n", ADD_SUITE));
+        }
+        CodeRunnerPool.Metrics metrics = pool.metrics();
+        assertEquals(13, metrics.completed());
+        // Jobs are forked from the warm workers; no interpreter was started per job.
+        assertEquals(2, metrics.workerStarts());
+        assertTrue(metrics.p50RunMicros() > 0);
+    }
+
+    @Test
+    void limitsShouldStopRunawayCodeWithoutLosingTheWorker() throws Exception {
+        pool = start(1, 16);
+        CodeJob spin = await(pool.submit("sub-spin", "a-code", "while True:\n    pass\n", ADD_SUITE));
+        assertEquals("TIMEOUT", spin.outcome());
+        assertEquals(0, store.grade("sub-spin").total());
+
+        CodeJob hog = await(pool.submit("sub-hog", "a-code", "blob = bytearray(1024 * 1024 * 1024)\n", ADD_SUITE));
+        assertEquals(0, hog.passed());
+        assertEquals(0, store.grade("sub-hog").total());
+
+        CodeJob exit = await(pool.submit("sub-exit", "a-code", "import os\nos._exit(1)\n", ADD_SUITE));
+        assertEquals("CRASHED", exit.outcome());
+
+        CodeJob after = await(pool.submit("sub-after", "a-code", "def add(a, b):\n    return a + b\n", ADD_SUITE));
+        assertEquals("OK", after.outcome());
+        assertEquals(1, pool.metrics().workerStarts());
+        assertEquals(1, pool.metrics().timedOut());
+    }
+
+    @Test
+    void submissionsShouldNotBeAbleToFakeAPass() throws Exception {
+        pool = start(1, 16);
+        String alwaysEqual = "class Anything:\n    def __eq__(self, other):\n        return True\n"
+                + "def add(a, b):\n    return Anything()\n";
+        String equalString = "class Loose(str):\n    def __eq__(self, other):\n        return True\n"
+                + "def add(a, b):\n    return Loose('?')\n";
+        // Looks for the expected answers anywhere in the process and returns them.
+        String snoop = "import gc, sys\n"
+                + "def add(a, b):\n"
+                + "    for obj in gc.get_objects():\n"
+                + "        if isinstance(obj, dict) and 'expected' in obj:\n"
+                + "            return eval(obj['expected'])\n"
+                + "    frame = sys._getframe()\n"
+                + "    while frame:\n"
+                + "        for value in frame.f_locals.values():\n"
+                + "            if isinstance(value, dict) and 'tests' in value:\n"
+                + "                return eval(value['tests'][0].get('expected', 'None'))\n"
+                + "        frame = frame.f_back\n"
+                + "    return None\n";
+        // Writes a passing verdict to every descriptor it can reach, then exits.
+        String forge = "import os\n"
+                + "line = b'{\"status\": \"OK\", \"tests\": [{\"name\": \"small\", \"passed\": true}, "
+                + "{\"name\": \"strings\", \"passed\": true}]}\\n'\n"
+                + "for fd in range(3, 64):\n"
+                + "    try:\n"
+                + "        os.write(fd, line)\n"
+                + "    except OSError:\n"
+                + "        pass\n"
+                + "os._exit(0)\n";
+
+        for (String[] attempt : new String[][]{{"sub-eq", alwaysEqual}, {"sub-str", equalString},
+                {"sub-snoop", snoop}, {"sub-forge", forge}}) {
+            CodeJob done = await(pool.submit(attempt[0], "a-code", attempt[1], ADD_SUITE));
+            assertEquals(0, done.passed(), attempt[0]);
+            assertEquals(0, store.grade(attempt[0]).total(), attempt[0]);
+        }
+        CodeJob unsupported = await(pool.submit("sub-eq2", "a-code", alwaysEqual, ADD_SUITE));
+        assertTrue(unsupported.results().get(0).error().startsWith("UNSUPPORTED_RESULT"));
+
+        CodeJob honest = await(pool.submit("sub-honest", "a-code", "def add(a, b):\n    return a + b\n", ADD_SUITE));
+        assertEquals(2, honest.passed());
+    }
+
+    @Test
+    void submittedCodeShouldRunUnprivilegedWithoutEnvironmentOrNetwork() throws Exception {
+        pool = start(1, 16);
+        CodeTestSuite probes = CodeTestSuite.validate(new CodeTestSuite(List.of(
+                new CodeTestSuite.CodeTest("env", "env()", "{}", null),
+                new CodeTestSuite.CodeTest("root", "root()", "False", null),
+                new CodeTestSuite.CodeTest("socket", "connect()", "'PermissionError'", null)
+        ), 1_000, 128));
+        String source = "import os, socket\n"
+                + "def env():\n    return dict(os.environ)\n"
+                + "def root():\n    return os.getuid() == 0 or os.geteuid() == 0\n"
+                + "def connect():\n"
+                + "    try:\n"
+                + "        socket.create_connection(('127.0.0.1', 9007), timeout=0.2)\n"
+                + "        return 'connected'\n"
+                + "    except OSError as e:\n"
+                + "        return type(e).__name__\n";
+
+        CodeJob done = await(pool.submit("sub-probe", "a-code", source, probes));
+        assertEquals("OK", done.outcome());
+        assertEquals(3, done.passed(), String.valueOf(done.results()));
+    }
+
+    @Test
+    void fullQueueShouldRejectInsteadOfGrowing() {
+        pool = start(1, 2);
+        CodeTestSuite slow = CodeTestSuite.validate(new CodeTestSuite(ADD_SUITE.tests(), 2_000, 128));
+        int accepted = 0;
+        int refused = 0;
+        for (int i = 0; i < 10; i++) {
+            if (pool.submit("sub-q" + i, "a-code", "while True:\n    pass\n", slow) == null) {
+                refused++;
+            } else {
+                accepted++;
+            }
+        }
+        // One job running plus two queued at most.
+        assertTrue(accepted <= 3, "accepted " + accepted);
+        assertEquals(10 - accepted, refused);
+        assertEquals(refused, pool.metrics().rejected());
+        assertTrue(pool.metrics().queueDepth() <= 2);
+    }
+
+    @Test
+    void finishedJobsShouldBeEvictedBySizeAndAge() throws Exception {
+        pool = start(1, 16, Duration.ofMillis(300), 3);
+        String source = "def add(a, b):\n    return a + b\n";
+        List<CodeJob> done = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            done.add(await(pool.submit("sub-e" + i, "a-code", source, ADD_SUITE)));
+        }
+        // Only the three most recent are kept; grades are unaffected.
+        assertNull(pool.job(done.get(0).jobId()));
+        assertNull(pool.job(done.get(1).jobId()));
+        assertNotNull(pool.job(done.get(4).jobId()));
+        assertEquals(100, store.grade("sub-e0").total());
+
+        Thread.sleep(400);
+        assertNull(pool.job(done.get(4).jobId()));
+    }
+
+    @Test
+    void suiteValidationShouldRejectBadTests() {
+        assertThrows(IllegalArgumentException.class, () -> CodeTestSuite.validate(new CodeTestSuite(List.of(), null, null)));
+        assertThrows(IllegalArgumentException.class, () -> CodeTestSuite.validate(single("", null, null)));
+        assertThrows(IllegalArgumentException.class, () -> CodeTestSuite.validate(single("1", -1.0, null)));
+        assertThrows(IllegalArgumentException.class, () -> CodeTestSuite.validate(single("1", null, 60_000)));
+        CodeTestSuite defaults = CodeTestSuite.validate(single("1", null, null));
+        assertEquals(CodeTestSuite.DEFAULT_TIME_LIMIT_MS, defaults.timeLimitMs());
+        assertEquals(CodeTestSuite.DEFAULT_MEMORY_MB, defaults.memoryMb());
+        assertEquals(1.0, defaults.tests().get(0).weight());
+    }
+
+    private static CodeTestSuite single(String expected, Double weight, Integer timeLimitMs) {
+        return new CodeTestSuite(List.of(new CodeTestSuite.CodeTest("t", "f()", expected, weight)), timeLimitMs, null);
+    }
+
+    private CodeRunnerPool start(int workers, int capacity) {
+        return start(workers, capacity, Duration.ofHours(1), 10_000);
+    }
+
+    private CodeRunnerPool start(int workers, int capacity, Duration retention, int maxRetained) {
+        CodeRunnerPool started = new CodeRunnerPool(store, new ObjectMapper(), true, "python3", -1, -1, workers, capacity,
+                retention, maxRetained);
+        started.start();
+        assumeTrue(started.available(), "python3 is required for sandbox tests");
+        return started;
+    }
+
+    private CodeJob await(CodeJob queued) throws InterruptedException {
+        assertNotNull(queued);
+        for (int attempt = 0; attempt < 500; attempt++) {
+            CodeJob job = pool.job(queued.jobId());
+            if ("DONE".equals(job.status()) || "FAILED".equals(job.status())) {
+                assertEquals("DONE", job.status());
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("job did not finish: " + pool.job(queued.jobId()));
+    }
+}
@@ -0,0 +1,70 @@
+package com.edusync.grading.scoring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Single-threaded throughput check for {@link ScoringPlan#score}: submissions graded per
+ * second on one core for a 40-question mixed exam. Not part of the test run; after
+ * {@code mvn -pl grading-service test-compile} run it with
+ * {@code java -cp grading-service/target/classes:grading-service/target/test-classes com.edusync.grading.scoring.ScoringPlanBenchmark}.
+ */
+public final class ScoringPlanBenchmark {
+
+    private static final int QUESTIONS = 40;
+    private static final int SUBMISSIONS = 10_000;
+
+    private ScoringPlanBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        SplittableRandom random = new SplittableRandom(42);
+        List<AnswerKey.Question> questions = new ArrayList<>();
+        for (int q = 0; q < QUESTIONS; q++) {
+            String id = "q" + q;
+            questions.add(switch (q % 4) {
+                case 0 -> new AnswerKey.Question(id, "CHOICE", List.of("C"), null, null, null, null);
+                case 1 -> new AnswerKey.Question(id, "MULTI_SELECT", List.of("A", "C"), null, null, 2.0, true);
+                case 2 -> new AnswerKey.Question(id, "NUMERIC", null, 42.0, 0.5, null, null);
+                default -> new AnswerKey.Question(id, "KEYWORDS", List.of("invariant", "loop"), null, null, 2.0, true);
+            });
+        }
+        ScoringPlan plan = ScoringPlan.compile(new AnswerKey(questions));
+
+        List<List<Map<String, Object>>> submissions = new ArrayList<>(SUBMISSIONS);
+        for (int s = 0; s < SUBMISSIONS; s++) {
+            List<Map<String, Object>> answers = new ArrayList<>(QUESTIONS);
+            for (int q = 0; q < QUESTIONS; q++) {
+                boolean right = random.nextInt(4) != 0;
+                Object response = switch (q % 4) {
+                    case 0 -> right ? "C" : "B";
+                    case 1 -> right ? List.of("A", "C") : List.of("A", "B");
+                    case 2 -> right ? "42.2" : "40";
+                    default -> right ? "The loop invariant holds on entry" : "It terminates";
+                };
+                answers.add(Map.of("questionId", "q" + q, "response", response));
+            }
+            submissions.add(answers);
+        }
+
+        double[] points = new double[plan.questionCount()];
+        double sink = 0.0;
+        for (int round = 0; round < 5; round++) {
+            for (List<Map<String, Object>> answers : submissions) {
+                sink += plan.score(answers, points);
+            }
+        }
+        int rounds = 20;
+        long startedAt = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (List<Map<String, Object>> answers : submissions) {
+                sink += plan.score(answers, points);
+            }
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        System.out.printf("%d questions: %.0f submissions/s on one core (checksum %.1f)%n",
+                QUESTIONS, rounds * (double) SUBMISSIONS / seconds, sink);
+    }
+}
@@ -0,0 +1,88 @@
+package com.edusync.grading.scoring;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ScoringPlanTest {
+
+    private static final ScoringPlan PLAN = ScoringPlan.compile(new AnswerKey(List.of(
+            new AnswerKey.Question("q1", "TEXT", List.of("Depth First  Search", "DFS"), null, null, 2.0, null),
+            new AnswerKey.Question("q2", "CHOICE", List.of("B"), null, null, null, null),
+            new AnswerKey.Question("q3", "MULTI_SELECT", List.of("A", "C", "D"), null, null, 3.0, true),
+            new AnswerKey.Question("q4", "NUMERIC", null, 3.14, 0.01, null, null),
+            new AnswerKey.Question("q5", "KEYWORDS", List.of("stack", "LIFO"), null, null, 2.0, true)
+    )));
+
+    @Test
+    void scoreShouldApplyMatchersWeightsAndPartialCredit() {
+        double[] points = new double[PLAN.questionCount()];
+        double total = PLAN.score(List.of(
+                Map.of("questionId", "q1", "response", "  depth first\tsearch "),
+                Map.of("questionId", "q2", "response", "b"),
+                Map.of("questionId", "q3", "response", List.of("A", "C", "E")),
+                Map.of("questionId", "q4", "response", "3.145"),
+                Map.of("questionId", "q5", "response", "A Stack pops the newest item"),
+                Map.of("questionId", "unknown", "response", "ignored")
+        ), points);
+
+        assertArrayEquals(new double[] {2.0, 1.0, 1.0, 1.0, 1.0}, points, 1e-9);
+        assertEquals(6.0, total, 1e-9);
+        assertEquals(9.0, PLAN.maxPoints(), 1e-9);
+        assertEquals(67, PLAN.percent(total));
+    }
+
+    @Test
+    void scoreShouldGiveZeroForMissingOrWrongAnswers() {
+        double[] points = new double[PLAN.questionCount()];
+        double total = PLAN.score(List.of(
+                Map.of("questionId", "q1", "response", "breadth first search"),
+                Map.of("questionId", "q3", "response", "A, C, D"),
+                Map.of("questionId", "q4", "response", 2)
+        ), points);
+
+        assertArrayEquals(new double[] {0.0, 0.0, 3.0, 0.0, 0.0}, points, 1e-9);
+        assertEquals(3.0, total, 1e-9);
+    }
+
+    @Test
+    void multiSelectShouldMatchOptionsWrittenWithExtraWhitespace() {
+        ScoringPlan plan = ScoringPlan.compile(new AnswerKey(List.of(
+                new AnswerKey.Question("q1", "MULTI_SELECT", List.of("Binary  Search", "hash\ttable"), null, null, null, false))));
+        double[] points = new double[plan.questionCount()];
+
+        plan.score(List.of(Map.of("questionId", "q1", "response", "binary search, Hash Table")), points);
+
+        assertArrayEquals(new double[] {1.0}, points, 1e-9);
+    }
+
+    @Test
+    void keywordsShouldMatchAcrossAnyWhitespaceRun() {
+        ScoringPlan plan = ScoringPlan.compile(new AnswerKey(List.of(
+                new AnswerKey.Question("q1", "KEYWORDS", List.of("machine learning"), null, null, null, null))));
+        double[] points = new double[plan.questionCount()];
+
+        for (String response : List.of("Machine  learning", "uses machine\nlearning models", "MACHINE\t LEARNING")) {
+            plan.score(List.of(Map.of("questionId", "q1", "response", response)), points);
+            assertArrayEquals(new double[] {1.0}, points, 1e-9, response);
+        }
+        plan.score(List.of(Map.of("questionId", "q1", "response", "machinelearning")), points);
+        assertArrayEquals(new double[] {0.0}, points, 1e-9);
+    }
+
+    @Test
+    void compileShouldRejectInvalidKeys() {
+        assertThrows(IllegalArgumentException.class, () -> ScoringPlan.compile(new AnswerKey(List.of())));
+        assertThrows(IllegalArgumentException.class, () -> ScoringPlan.compile(new AnswerKey(List.of(
+                new AnswerKey.Question("q1", "ESSAY", List.of("x"), null, null, null, null)))));
+        assertThrows(IllegalArgumentException.class, () -> ScoringPlan.compile(new AnswerKey(List.of(
+                new AnswerKey.Question("q1", "CHOICE", List.of("A", "B"), null, null, null, null)))));
+        assertThrows(IllegalArgumentException.class, () -> ScoringPlan.compile(new AnswerKey(List.of(
+                new AnswerKey.Question("q1", "NUMERIC", null, null, null, null, null)))));
+    }
+}
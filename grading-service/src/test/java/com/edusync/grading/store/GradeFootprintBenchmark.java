@@ -0,0 +1,57 @@
+package com.edusync.grading.store;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Retained heap of a {@link GradingStore} holding N grades with a five-key rubric spread over
+ * 50 assessments, measured as used heap after full GCs. {@code plan} grades share one rubric,
+ * as auto-graded ones do; {@code manual} grades arrive as request maps with their own keys.
+ * Not part of the test run; after {@code mvn -pl grading-service test-compile} run it with
+ * {@code java -Xmx2g -cp grading-service/target/classes:grading-service/target/test-classes:$(cat cp.txt) com.edusync.grading.store.GradeFootprintBenchmark [grades] [plan|manual]}
+ * where {@code cp.txt} comes from {@code mvn -pl grading-service dependency:build-classpath -Dmdep.outputFile=cp.txt}.
+ */
+public final class GradeFootprintBenchmark {
+
+    private GradeFootprintBenchmark() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int grades = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        boolean manual = args.length > 1 && "manual".equals(args[1]);
+        Rubric plan = manual ? null : Rubric.of("q1", "q2", "q3", "essay", "style");
+        long before = usedHeap();
+        GradingStore store = new GradingStore();
+        for (int i = 0; i < grades; i++) {
+            String assessmentId = new String("asm-" + (i % 50));
+            if (manual) {
+                // Fresh map and strings per grade, as they arrive from request bodies.
+                Map<String, Object> breakdown = new LinkedHashMap<>();
+                breakdown.put(new String("q1"), i % 10);
+                breakdown.put(new String("q2"), (i * 7) % 10);
+                breakdown.put(new String("q3"), 5);
+                breakdown.put(new String("essay"), i % 30);
+                breakdown.put(new String("style"), 2);
+                store.putGrade(GradeRecord.of("sub-" + i, assessmentId, breakdown, 42, "Graded by hand",
+                        GradeStatus.GRADED, Instant.now()));
+            } else {
+                double[] scores = {i % 10, (i * 7) % 10, 5, i % 30, 2};
+                store.putGrade(GradeRecord.of("sub-" + i, assessmentId, plan, scores, 42, "Auto-graded result",
+                        GradeStatus.GRADED, Instant.now()));
+            }
+        }
+        long retained = usedHeap() - before;
+        System.out.printf("%d %s grades: %.1f MB retained, %.0f bytes/grade (%s)%n", grades, manual ? "manual" : "plan",
+                retained / 1e6, retained / (double) grades, store.grade("sub-0").status());
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
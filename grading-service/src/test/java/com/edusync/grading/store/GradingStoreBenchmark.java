@@ -0,0 +1,76 @@
+package com.edusync.grading.store;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Regrade open + decide throughput with every thread hammering one submission (worst-case
+ * CAS contention) versus spread across many. Not part of the test run; after
+ * {@code mvn -pl grading-service test-compile} run it with
+ * {@code java -cp grading-service/target/classes:grading-service/target/test-classes com.edusync.grading.store.GradingStoreBenchmark [threads]}.
+ */
+public final class GradingStoreBenchmark {
+
+    // Each submission's state is copied on write, so the hot case keeps its case count modest.
+    private static final int HOT_OPS_PER_THREAD = 2_000;
+    private static final int SPREAD_OPS_PER_THREAD = 50_000;
+
+    private GradingStoreBenchmark() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        for (int warmup = 0; warmup < 2; warmup++) {
+            run(threads, 1, HOT_OPS_PER_THREAD);
+            run(threads, 1024, SPREAD_OPS_PER_THREAD);
+        }
+        report("hot (1 submission)", threads, HOT_OPS_PER_THREAD, run(threads, 1, HOT_OPS_PER_THREAD));
+        report("spread (1024 submissions)", threads, SPREAD_OPS_PER_THREAD, run(threads, 1024, SPREAD_OPS_PER_THREAD));
+    }
+
+    private static void report(String label, int threads, int opsPerThread, long[] result) {
+        double seconds = result[0] / 1e9;
+        System.out.printf("%-26s %d threads: %.0f decisions/s, %d decided twice%n",
+                label, threads, threads * (double) opsPerThread / seconds, result[1]);
+    }
+
+    private static long[] run(int threads, int submissions, int opsPerThread) throws InterruptedException {
+        GradingStore store = new GradingStore();
+        for (int s = 0; s < submissions; s++) {
+            store.putGrade(GradeRecord.of("sub-" + s, null, Map.of(), 50, "", GradeStatus.GRADED, Instant.now()));
+        }
+        AtomicInteger nextRequest = new AtomicInteger();
+        AtomicLong doubleDecisions = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < opsPerThread; i++) {
+                        int n = nextRequest.getAndIncrement();
+                        String requestId = "rg-" + n;
+                        store.openRegrade(GradingStoreTest.pending(requestId, "sub-" + (n % submissions)));
+                        store.decide(requestId, true, "mod", null, n % 101, Instant.now());
+                        // A second moderator racing on the same case must always lose.
+                        if (store.decide(requestId, false, "mod-2", null, null, Instant.now()).outcome() == GradingStore.Outcome.APPLIED) {
+                            doubleDecisions.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            worker.start();
+        }
+        long startedAt = System.nanoTime();
+        start.countDown();
+        done.await();
+        return new long[] {System.nanoTime() - startedAt, doubleDecisions.get()};
+    }
+}
@@ -0,0 +1,109 @@
+package com.edusync.grading.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class GradingStoreTest {
+
+    private static final int MODERATORS = 8;
+
+    @Test
+    void concurrentDecisionsShouldApplyExactlyOnce() throws Exception {
+        GradingStore store = new GradingStore();
+        ExecutorService pool = Executors.newFixedThreadPool(MODERATORS);
+        try {
+            for (int round = 0; round < 200; round++) {
+                String submissionId = "sub-" + (round % 4);
+                store.putGrade(GradeRecord.of(submissionId, null, Map.of(), 50, "", GradeStatus.GRADED, Instant.now()));
+                String requestId = "rg-" + round;
+                assertNotNull(store.openRegrade(pending(requestId, submissionId)));
+
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<GradingStore.Decision>> decisions = new ArrayList<>();
+                for (int m = 0; m < MODERATORS; m++) {
+                    int override = 60 + m;
+                    boolean approve = m % 2 == 0;
+                    decisions.add(pool.submit(() -> {
+                        start.await();
+                        return store.decide(requestId, approve, "mod-" + override, null, override, Instant.now());
+                    }));
+                }
+                start.countDown();
+
+                GradingStore.Decision winner = null;
+                int applied = 0;
+                for (Future<GradingStore.Decision> future : decisions) {
+                    GradingStore.Decision decision = future.get();
+                    if (decision.outcome() == GradingStore.Outcome.APPLIED) {
+                        applied++;
+                        winner = decision;
+                    } else {
+                        assertEquals(GradingStore.Outcome.ALREADY_DECIDED, decision.outcome());
+                    }
+                }
+                assertEquals(1, applied);
+                RegradeCase stored = store.regrade(requestId);
+                assertEquals(winner.regrade(), stored);
+                GradeRecord grade = store.grade(submissionId);
+                if ("APPROVED".equals(stored.status())) {
+                    assertEquals(stored.overrideTotal().intValue(), grade.total());
+                    assertEquals(GradeStatus.GRADED_OVERRIDDEN, grade.status());
+                } else {
+                    assertNull(stored.overrideTotal());
+                    assertEquals(50, grade.total());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void openRegradeShouldRequireAGrade() {
+        GradingStore store = new GradingStore();
+        assertNull(store.openRegrade(pending("rg-x", "sub-missing")));
+        assertNull(store.regrade("rg-x"));
+        assertEquals(GradingStore.Outcome.NOT_FOUND, store.decide("rg-x", true, "mod", null, null, Instant.now()).outcome());
+    }
+
+    @Test
+    void manualBreakdownsShouldNotGrowTheSharedRubrics() {
+        Map<String, Object> breakdown = new LinkedHashMap<>();
+        breakdown.put("zeta-" + Instant.now().toEpochMilli(), 3);
+        breakdown.put("alpha", "see comments");
+        GradeRecord first = GradeRecord.of("m1", "asm", breakdown, 3, null, GradeStatus.GRADED, Instant.now());
+        GradeRecord second = GradeRecord.of("m2", "asm", breakdown, 3, null, GradeStatus.GRADED, Instant.now());
+
+        assertNotSame(first.rubric(), second.rubric());
+        assertEquals(List.copyOf(breakdown.keySet()), List.copyOf(first.breakdown().keySet()));
+        assertEquals("see comments", first.breakdown().get("alpha"));
+        assertEquals(0.0, first.score(1));
+
+        // Keys already shared by a plan or suite are reused rather than copied.
+        Rubric plan = Rubric.of("plan-q1", "plan-q2");
+        Map<String, Object> planKeys = new LinkedHashMap<>();
+        planKeys.put("plan-q1", 1);
+        planKeys.put("plan-q2", 2);
+        assertSame(plan, GradeRecord.of("m3", "asm", planKeys, 3, null, GradeStatus.GRADED, Instant.now()).rubric());
+    }
+
+    static RegradeCase pending(String requestId, String submissionId) {
+        return new RegradeCase(requestId, submissionId, "student", "reason", "PENDING", Instant.now().toString(),
+                null, null, null, null);
+    }
+}
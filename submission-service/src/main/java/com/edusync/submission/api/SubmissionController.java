@@ -1,59 +1,145 @@
 package com.edusync.submission.api;
 
+import com.edusync.submission.similarity.AllPairsSimilarity;
+import com.edusync.submission.service.SubmissionService;
+import com.edusync.submission.similarity.SimilarityMode;
+import com.edusync.submission.store.Attachment;
+import com.edusync.submission.store.AttachmentStore;
+import com.edusync.submission.store.Submission;
+import com.edusync.submission.store.SubmissionLog;
+import com.edusync.submission.store.SubmissionStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/submissions")
 public class SubmissionController {
 
-    private final Map<String, Submission> store = new ConcurrentHashMap<>();
+    private static final int BULK_BATCH_SIZE = 256;
+
+    private final SubmissionStore store;
+    private final SubmissionService submissionService;
+    private final AttachmentStore attachmentStore;
+    /** Own pool, so a long similarity report does not hold up common-pool work. */
+    private final ForkJoinPool similarityPool = new ForkJoinPool();
+    private final AllPairsSimilarity allPairs = new AllPairsSimilarity(similarityPool);
+    private final Map<String, AtomicBoolean> runningReports = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper;
+
+    public SubmissionController(SubmissionStore store, SubmissionService submissionService,
+                                AttachmentStore attachmentStore, ObjectMapper objectMapper) {
+        this.store = store;
+        this.submissionService = submissionService;
+        this.attachmentStore = attachmentStore;
+        this.objectMapper = objectMapper;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        similarityPool.shutdownNow();
+    }
 
     @GetMapping("/health")
     public Map<String, Object> health() {
         return Map.of("status", "UP", "timestamp", Instant.now().toString());
     }
 
-    public record CreateSubmissionRequest(@NotBlank String assessmentId, List<Map<String, Object>> answers) {}
-
-    private record Submission(
-            String id,
-            String assessmentId,
-            String userId,
-            List<Map<String, Object>> answers,
-            String status,
-            String createdAt,
-            String normalizedAnswerText
-    ) {
-    }
+    public record CreateSubmissionRequest(@NotBlank String assessmentId, List<Map<String, Object>> answers, String similarityMode) {}
 
     @PostMapping
     public ResponseEntity<?> create(@Valid @RequestBody CreateSubmissionRequest req,
                                     @RequestHeader(value = "X-User-Id", required = false) String userId) {
         if (userId == null) return ResponseEntity.status(401).body(Map.of("error","UNAUTHENTICATED"));
-        String id = UUID.randomUUID().toString();
-        List<Map<String, Object>> answers = req.answers() == null ? List.of() : req.answers();
-        Submission s = new Submission(
-                id,
-                req.assessmentId(),
-                userId,
-                answers,
-                "SUBMITTED",
-                Instant.now().toString(),
-                normalize(extractText(answers))
-        );
-        store.put(id, s);
+        SimilarityMode mode = parseMode(req.similarityMode());
+        if (mode == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "INVALID_SIMILARITY_MODE"));
+        }
+        Submission s;
+        try {
+            s = submissionService.create(new SubmissionService.NewSubmission(req.assessmentId(), userId, req.answers(), mode)).join();
+        } catch (CompletionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", "STORAGE_UNAVAILABLE"));
+        }
         return ResponseEntity.status(HttpStatus.CREATED).body(toApiResponse(s));
     }
 
+    public record BulkSubmissionLine(String assessmentId, String userId, List<Map<String, Object>> answers, String similarityMode) {}
+
+    private record BulkItem(int line, SubmissionService.NewSubmission submission, String error) {}
+
+    @PostMapping(value = "/bulk", consumes = "application/x-ndjson", produces = "application/x-ndjson")
+    public void bulkCreate(@RequestHeader(value = "X-User-Id", required = false) String userId,
+                           @RequestHeader(value = "X-User-Roles", required = false) String rolesHeader,
+                           HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        if (userId == null) {
+            writeError(response, HttpStatus.UNAUTHORIZED, "UNAUTHENTICATED");
+            return;
+        }
+        // Only staff may import submissions on behalf of other users.
+        boolean isAdminOrInstructor = rolesHeader != null && (rolesHeader.contains("ADMIN") || rolesHeader.contains("INSTRUCTOR"));
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType("application/x-ndjson");
+        long startedAt = System.nanoTime();
+        OutputStream out = response.getOutputStream();
+        int[] totals = new int[2];
+        List<BulkItem> batch = new ArrayList<>(BULK_BATCH_SIZE);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))) {
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                batch.add(parseBulkLine(lineNumber, line, userId, isAdminOrInstructor));
+                if (batch.size() == BULK_BATCH_SIZE) {
+                    ingestBatch(batch, out, totals);
+                }
+            }
+        }
+        ingestBatch(batch, out, totals);
+        writeLine(out, Map.of(
+                "type", "summary",
+                "created", totals[0],
+                "rejected", totals[1],
+                "elapsedMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)
+        ));
+        out.flush();
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<?> get(@PathVariable String id) {
         Submission s = store.get(id);
@@ -61,6 +147,71 @@ public class SubmissionController {
         return ResponseEntity.ok(toApiResponse(s));
     }
 
+    @PostMapping(value = "/{id}/attachments", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> uploadAttachmentPart(@PathVariable String id,
+                                                  @RequestParam("file") MultipartFile file,
+                                                  @RequestHeader(value = "X-User-Id", required = false) String userId) throws IOException {
+        // The container spools multipart bodies to disk; we stream the part from there.
+        try (InputStream in = file.getInputStream()) {
+            return storeAttachment(id, userId, file.getOriginalFilename(), file.getContentType(), in);
+        }
+    }
+
+    @PostMapping("/{id}/attachments")
+    public ResponseEntity<?> uploadAttachment(@PathVariable String id,
+                                              @RequestParam(required = false) String filename,
+                                              @RequestHeader(value = "X-User-Id", required = false) String userId,
+                                              HttpServletRequest request) throws IOException {
+        return storeAttachment(id, userId, filename, request.getContentType(), request.getInputStream());
+    }
+
+    @GetMapping("/{id}/attachments/{attachmentId}")
+    public void downloadAttachment(@PathVariable String id,
+                                   @PathVariable String attachmentId,
+                                   HttpServletResponse response) throws IOException {
+        Submission s = store.get(id);
+        Attachment attachment = s == null ? null : s.attachments().stream()
+                .filter(candidate -> candidate.id().equals(attachmentId))
+                .findFirst()
+                .orElse(null);
+        if (attachment == null || !attachmentStore.exists(attachment.sha256())) {
+            writeError(response, HttpStatus.NOT_FOUND, "NOT_FOUND");
+            return;
+        }
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(attachment.contentType());
+        response.setContentLengthLong(attachment.sizeBytes());
+        response.setHeader(HttpHeaders.ETAG, "\"" + attachment.sha256() + "\"");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(attachment.filename(), StandardCharsets.UTF_8)
+                .build()
+                .toString());
+        attachmentStore.transferTo(attachment.sha256(), Channels.newChannel(response.getOutputStream()));
+        response.flushBuffer();
+    }
+
+    @GetMapping("/assessments/{assessmentId}")
+    public ResponseEntity<?> listByAssessment(@PathVariable String assessmentId,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(defaultValue = "20") int limit) {
+        Long after = parseCursor(cursor);
+        if (cursor != null && after == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "INVALID_CURSOR"));
+        }
+        return ResponseEntity.ok(toApiPage(store.pageByAssessment(assessmentId, after, clampLimit(limit))));
+    }
+
+    @GetMapping("/users/{userId}")
+    public ResponseEntity<?> listByUser(@PathVariable String userId,
+                                        @RequestParam(required = false) String cursor,
+                                        @RequestParam(defaultValue = "20") int limit) {
+        Long after = parseCursor(cursor);
+        if (cursor != null && after == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "INVALID_CURSOR"));
+        }
+        return ResponseEntity.ok(toApiPage(store.pageByUser(userId, after, clampLimit(limit))));
+    }
+
     @GetMapping("/{id}/similarity")
     public ResponseEntity<?> similarity(@PathVariable String id) {
         Submission target = store.get(id);
@@ -68,22 +219,17 @@ public class SubmissionController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "NOT_FOUND"));
         }
 
-        List<Submission> candidates = store.values().stream()
-                .filter(s -> !Objects.equals(s.id(), target.id()))
-                .filter(s -> Objects.equals(s.assessmentId(), target.assessmentId()))
-                .toList();
+        SubmissionService.SimilarityResult result = submissionService.similarity(target);
+        int totalSubmissions = Math.max(0, store.countByAssessment(target.assessmentId()) - 1);
 
-        List<Map<String, Object>> matches = candidates.stream()
+        List<Map<String, Object>> matches = result.matches().stream()
                 .map(candidate -> {
-                    double score = jaccard(target.normalizedAnswerText(), candidate.normalizedAnswerText());
                     Map<String, Object> match = new HashMap<>();
-                    match.put("submissionId", candidate.id());
-                    match.put("userId", candidate.userId());
-                    match.put("similarityScore", round2(score));
+                    match.put("submissionId", candidate.submission().id());
+                    match.put("userId", candidate.submission().userId());
+                    match.put("similarityScore", round2(candidate.score()));
                     return match;
                 })
-                .sorted((a, b) -> Double.compare((double) b.get("similarityScore"), (double) a.get("similarityScore")))
-                .limit(5)
                 .collect(Collectors.toList());
 
         double maxSimilarity = matches.isEmpty() ? 0.0 : (double) matches.get(0).get("similarityScore");
@@ -92,88 +238,271 @@ public class SubmissionController {
         return ResponseEntity.ok(Map.of(
                 "submissionId", target.id(),
                 "assessmentId", target.assessmentId(),
+                "mode", target.similarityMode().name(),
+                "pending", result.pending(),
                 "riskLevel", riskLevel,
                 "maxSimilarity", round2(maxSimilarity),
-                "comparedSubmissions", candidates.size(),
+                "comparedSubmissions", result.comparedSubmissions(),
+                "totalSubmissions", totalSubmissions,
                 "matches", matches
         ));
     }
 
-    private Map<String, Object> toApiResponse(Submission s) {
-        return Map.of(
-                "id", s.id(),
-                "assessmentId", s.assessmentId(),
-                "userId", s.userId(),
-                "answers", s.answers(),
-                "status", s.status(),
-                "createdAt", s.createdAt()
-        );
+    @GetMapping("/storage/stats")
+    public SubmissionLog.Stats storageStats() {
+        return submissionService.storageStats();
     }
 
-    private String extractText(List<Map<String, Object>> answers) {
-        StringBuilder sb = new StringBuilder();
-        for (Map<String, Object> answer : answers) {
-            appendValue(sb, answer);
-            sb.append(' ');
+    public record SimilarityReportRequest(Double threshold) {}
+
+    @PostMapping(value = "/assessments/{assessmentId}/similarity-report", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> similarityReport(@PathVariable String assessmentId,
+                                                                  @RequestBody(required = false) SimilarityReportRequest req) {
+        double threshold = req == null || req.threshold() == null ? 0.45 : Math.max(0.05, Math.min(1.0, req.threshold()));
+        List<Submission> submissions = store.findByAssessment(assessmentId).stream()
+                .sorted(Comparator.comparingInt(s -> s.answerTokens().length))
+                .toList();
+        String reportId = "sr-" + UUID.randomUUID();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        runningReports.put(reportId, cancelled);
+
+        StreamingResponseBody body = out -> {
+            try {
+                writeSimilarityReport(out, reportId, assessmentId, threshold, submissions, cancelled);
+            } finally {
+                runningReports.remove(reportId);
+            }
+        };
+        return ResponseEntity.ok()
+                .header("X-Report-Id", reportId)
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    @DeleteMapping("/similarity-reports/{reportId}")
+    public ResponseEntity<?> cancelSimilarityReport(@PathVariable String reportId) {
+        AtomicBoolean cancelled = runningReports.get(reportId);
+        if (cancelled == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "NOT_FOUND"));
         }
-        return sb.toString();
+        cancelled.set(true);
+        return ResponseEntity.accepted().body(Map.of("reportId", reportId, "status", "CANCELLING"));
     }
 
-    private void appendValue(StringBuilder sb, Object value) {
-        if (value == null) {
-            return;
+    private void writeSimilarityReport(OutputStream out, String reportId, String assessmentId, double threshold,
+                                       List<Submission> submissions, AtomicBoolean cancelled) throws IOException {
+        long startedAt = System.nanoTime();
+        int[][] tokenSets = new int[submissions.size()][];
+        for (int i = 0; i < tokenSets.length; i++) {
+            tokenSets[i] = submissions.get(i).answerTokens();
         }
-        if (value instanceof String text) {
-            sb.append(text).append(' ');
-            return;
+        BlockingQueue<AllPairsSimilarity.Pair> found = new LinkedBlockingQueue<>();
+        List<AllPairsSimilarity.Pair> pairs = new ArrayList<>();
+        ForkJoinTask<Void> task = allPairs.submit(tokenSets, threshold, found::add, cancelled::get);
+        try {
+            while (!task.isDone() || !found.isEmpty()) {
+                AllPairsSimilarity.Pair pair = found.poll(50, TimeUnit.MILLISECONDS);
+                if (pair == null) {
+                    out.flush();
+                    continue;
+                }
+                pairs.add(pair);
+                writeLine(out, Map.of(
+                        "type", "pair",
+                        "left", submissions.get(pair.left()).id(),
+                        "right", submissions.get(pair.right()).id(),
+                        "similarityScore", round2(pair.score())
+                ));
+            }
+        } catch (IOException | InterruptedException e) {
+            cancelled.set(true);
+            task.cancel(true);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw e instanceof IOException io ? io : new IOException(e);
         }
-        if (value instanceof Number number) {
-            sb.append(number).append(' ');
-            return;
+
+        if (!cancelled.get()) {
+            int clusterId = 0;
+            for (int[] cluster : AllPairsSimilarity.clusters(submissions.size(), pairs)) {
+                List<Map<String, Object>> members = new ArrayList<>();
+                for (int index : cluster) {
+                    Submission s = submissions.get(index);
+                    members.add(Map.of("submissionId", s.id(), "userId", s.userId()));
+                }
+                writeLine(out, Map.of(
+                        "type", "cluster",
+                        "clusterId", ++clusterId,
+                        "size", cluster.length,
+                        "submissions", members
+                ));
+            }
+        }
+
+        writeLine(out, Map.of(
+                "type", "summary",
+                "reportId", reportId,
+                "assessmentId", assessmentId,
+                "threshold", threshold,
+                "submissions", submissions.size(),
+                "pairs", pairs.size(),
+                "status", cancelled.get() ? "CANCELLED" : "COMPLETED",
+                "elapsedMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)
+        ));
+        out.flush();
+    }
+
+    private ResponseEntity<?> storeAttachment(String id, String userId, String filename, String contentType,
+                                              InputStream body) throws IOException {
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "UNAUTHENTICATED"));
+        }
+        Submission s = store.get(id);
+        if (s == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "NOT_FOUND"));
+        }
+        if (!userId.equals(s.userId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "FORBIDDEN"));
+        }
+        AttachmentStore.StoredBlob blob;
+        try {
+            blob = attachmentStore.write(Channels.newChannel(body));
+        } catch (AttachmentStore.TooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error", "ATTACHMENT_TOO_LARGE"));
         }
-        if (value instanceof Map<?, ?> map) {
-            for (Object nested : map.values()) {
-                appendValue(sb, nested);
+        Attachment attachment = new Attachment(
+                "att-" + UUID.randomUUID(),
+                filename == null || filename.isBlank() ? "attachment" : filename.trim(),
+                contentType == null || contentType.isBlank() ? MediaType.APPLICATION_OCTET_STREAM_VALUE : contentType,
+                blob.sizeBytes(),
+                blob.sha256(),
+                Instant.now().toString()
+        );
+        try {
+            if (submissionService.attach(id, attachment) == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "NOT_FOUND"));
             }
+        } catch (CompletionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", "STORAGE_UNAVAILABLE"));
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(Map.of(
+                "submissionId", id,
+                "attachment", attachment,
+                "deduplicated", blob.deduplicated()
+        ));
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String error) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(objectMapper.writeValueAsBytes(Map.of("error", error)));
+    }
+
+    private BulkItem parseBulkLine(int lineNumber, String line, String defaultUserId, boolean mayActForOthers) {
+        BulkSubmissionLine parsed;
+        try {
+            parsed = objectMapper.readValue(line, BulkSubmissionLine.class);
+        } catch (IOException e) {
+            return new BulkItem(lineNumber, null, "INVALID_JSON");
+        }
+        if (parsed.assessmentId() == null || parsed.assessmentId().isBlank()) {
+            return new BulkItem(lineNumber, null, "MISSING_ASSESSMENT_ID");
+        }
+        SimilarityMode mode = parseMode(parsed.similarityMode());
+        if (mode == null) {
+            return new BulkItem(lineNumber, null, "INVALID_SIMILARITY_MODE");
+        }
+        String owner = parsed.userId() == null || parsed.userId().isBlank() ? defaultUserId : parsed.userId();
+        if (!owner.equals(defaultUserId) && !mayActForOthers) {
+            return new BulkItem(lineNumber, null, "USER_OVERRIDE_FORBIDDEN");
+        }
+        return new BulkItem(lineNumber, new SubmissionService.NewSubmission(parsed.assessmentId(), owner, parsed.answers(), mode), null);
+    }
+
+    private void ingestBatch(List<BulkItem> batch, OutputStream out, int[] totals) throws IOException {
+        if (batch.isEmpty()) {
             return;
         }
-        if (value instanceof Collection<?> collection) {
-            for (Object nested : collection) {
-                appendValue(sb, nested);
+        List<BulkItem> accepted = batch.stream().filter(item -> item.error() == null).toList();
+        List<CompletableFuture<Submission>> created = submissionService.createAll(
+                accepted.stream().map(BulkItem::submission).toList());
+        Map<Integer, CompletableFuture<Submission>> byLine = new HashMap<>();
+        for (int i = 0; i < accepted.size(); i++) {
+            byLine.put(accepted.get(i).line(), created.get(i));
+        }
+        for (BulkItem item : batch) {
+            CompletableFuture<Submission> future = byLine.get(item.line());
+            String error = item.error();
+            Submission submission = null;
+            if (future != null) {
+                try {
+                    submission = future.join();
+                } catch (CompletionException e) {
+                    error = "STORAGE_UNAVAILABLE";
+                }
+            }
+            if (submission != null) {
+                totals[0]++;
+                writeLine(out, Map.of("type", "result", "line", item.line(), "status", "CREATED", "id", submission.id()));
+            } else {
+                totals[1]++;
+                writeLine(out, Map.of("type", "result", "line", item.line(), "status", "REJECTED", "error", error));
             }
-            return;
         }
-        sb.append(String.valueOf(value)).append(' ');
+        out.flush();
+        batch.clear();
     }
 
-    private String normalize(String text) {
-        return text.toLowerCase(Locale.ROOT)
-                .replaceAll("[^a-z0-9\\s]", " ")
-                .replaceAll("\\s+", " ")
-                .trim();
+    private void writeLine(OutputStream out, Object value) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(value));
+        out.write('\n');
     }
 
-    private double jaccard(String left, String right) {
-        if (left.isBlank() || right.isBlank()) {
-            return 0.0;
+    private Map<String, Object> toApiResponse(Submission s) {
+        return Map.of(
+                "id", s.id(),
+                "assessmentId", s.assessmentId(),
+                "userId", s.userId(),
+                "answers", s.answers(),
+                "similarityMode", s.similarityMode().name(),
+                "attachments", s.attachments(),
+                "status", s.status(),
+                "createdAt", s.createdAt()
+        );
+    }
+
+    private SimilarityMode parseMode(String mode) {
+        if (mode == null || mode.isBlank()) {
+            return SimilarityMode.TEXT;
+        }
+        try {
+            return SimilarityMode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
         }
-        Set<String> leftSet = Arrays.stream(left.split(" "))
-                .filter(token -> !token.isBlank())
-                .collect(Collectors.toSet());
-        Set<String> rightSet = Arrays.stream(right.split(" "))
-                .filter(token -> !token.isBlank())
-                .collect(Collectors.toSet());
-        if (leftSet.isEmpty() || rightSet.isEmpty()) {
-            return 0.0;
+    }
+
+    private Map<String, Object> toApiPage(SubmissionStore.Page page) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("items", page.items().stream().map(this::toApiResponse).toList());
+        response.put("nextCursor", page.nextCursor() == null ? null : Long.toString(page.nextCursor()));
+        return response;
+    }
+
+    private Long parseCursor(String cursor) {
+        if (cursor == null) {
+            return null;
         }
-        Set<String> intersection = new HashSet<>(leftSet);
-        intersection.retainAll(rightSet);
-        Set<String> union = new HashSet<>(leftSet);
-        union.addAll(rightSet);
-        if (union.isEmpty()) {
-            return 0.0;
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            return null;
         }
-        return (double) intersection.size() / union.size();
+    }
+
+    private int clampLimit(int limit) {
+        return Math.max(1, Math.min(100, limit));
     }
 
     private double round2(double value) {
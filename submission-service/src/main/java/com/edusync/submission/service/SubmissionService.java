@@ -0,0 +1,231 @@
+package com.edusync.submission.service;
+
+import com.edusync.submission.similarity.AnswerNormalizer;
+import com.edusync.submission.similarity.CodeFingerprinter;
+import com.edusync.submission.similarity.FingerprintIndex;
+import com.edusync.submission.similarity.MinHashLshIndex;
+import com.edusync.submission.similarity.SimilarityMode;
+import com.edusync.submission.similarity.TokenDictionary;
+import com.edusync.submission.similarity.TokenSets;
+import com.edusync.submission.similarity.TopMatches;
+import com.edusync.submission.store.Attachment;
+import com.edusync.submission.store.Submission;
+import com.edusync.submission.store.SubmissionLog;
+import com.edusync.submission.store.SubmissionStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Builds submissions (normalized token IDs, MinHash signature and, for code answers,
+ * winnowing fingerprints), makes them durable through the {@link SubmissionLog} and
+ * keeps the similarity indexes in step with the store. Each new submission is scored
+ * once in the background against the ones scored before it; both sides of every pair
+ * keep a bounded top-{@value #TOP_MATCHES} list, so reading similarity is a lookup.
+ */
+@Service
+public class SubmissionService {
+
+    public static final int TOP_MATCHES = 5;
+
+    private final SubmissionStore store;
+    private final SubmissionLog submissionLog;
+    private final TokenDictionary tokenDictionary = new TokenDictionary();
+    private final MinHashLshIndex lshIndex = new MinHashLshIndex();
+    private final FingerprintIndex fingerprintIndex = new FingerprintIndex();
+    private final Map<String, TopMatches> topMatches = new ConcurrentHashMap<>();
+    // A single scorer thread is what makes "scored before it" well defined: every pair
+    // is compared exactly once, by whichever submission is scored second.
+    private final ExecutorService scorer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "submission-similarity-scorer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SubmissionService(SubmissionStore store, SubmissionLog submissionLog) {
+        this.store = store;
+        this.submissionLog = submissionLog;
+    }
+
+    @PostConstruct
+    void recover() {
+        submissionLog.open(entry -> {
+            if (entry.attachment() != null) {
+                Submission current = store.get(entry.id());
+                if (current != null) {
+                    store.put(current.withAttachment(entry.attachment()));
+                }
+                return;
+            }
+            Submission restored = build(entry.id(), entry.sequence(), entry.assessmentId(), entry.userId(),
+                    entry.answers(), entry.status(), entry.createdAt(), entry.similarityMode(),
+                    entry.attachments() == null ? List.of() : entry.attachments());
+            store.advanceSequence(entry.sequence());
+            store.put(restored);
+            index(restored);
+            scheduleScoring(restored);
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scorer.shutdownNow();
+        submissionLog.close();
+    }
+
+    public record NewSubmission(String assessmentId, String userId, List<Map<String, Object>> answers,
+                                SimilarityMode similarityMode) {}
+
+    public record Match(Submission submission, double score) {}
+
+    public record SimilarityResult(List<Match> matches, int comparedSubmissions, boolean pending) {}
+
+    public CompletableFuture<Submission> create(NewSubmission request) {
+        return persist(prepare(request));
+    }
+
+    /**
+     * Normalizes and tokenizes the batch in parallel, then hands every submission to the
+     * log at once so they share group commits. Futures are returned in input order.
+     */
+    public List<CompletableFuture<Submission>> createAll(List<NewSubmission> batch) {
+        return batch.parallelStream()
+                .map(this::prepare)
+                .toList()
+                .stream()
+                .map(this::persist)
+                .toList();
+    }
+
+    /**
+     * Returns the cached closest matches for {@code target}. {@code pending} is true until
+     * the target itself has been scored against the submissions that arrived before it.
+     */
+    public SimilarityResult similarity(Submission target) {
+        TopMatches cached = topMatches.get(target.id());
+        if (cached == null) {
+            return new SimilarityResult(List.of(), 0, true);
+        }
+        List<Match> matches = new ArrayList<>(TOP_MATCHES);
+        for (TopMatches.Entry entry : cached.snapshot()) {
+            Submission other = store.get(entry.submissionId());
+            if (other != null) {
+                matches.add(new Match(other, entry.score()));
+            }
+        }
+        return new SimilarityResult(matches, cached.compared(), cached.pending());
+    }
+
+    /**
+     * Adds attachment metadata to a submission and waits for it to be logged. Only the
+     * attachment goes into the log; the log's writer applies it to the stored submission,
+     * in log order, so concurrent uploads cannot drop each other. Returns null if the
+     * submission does not exist.
+     */
+    public Submission attach(String submissionId, Attachment attachment) {
+        if (store.get(submissionId) == null) {
+            return null;
+        }
+        return submissionLog.appendAttachment(submissionId, attachment).join();
+    }
+
+    public SubmissionLog.Stats storageStats() {
+        return submissionLog.stats();
+    }
+
+    /** The sequence is left at 0; the log assigns it in commit order. */
+    private Submission prepare(NewSubmission request) {
+        return build(
+                UUID.randomUUID().toString(),
+                0,
+                request.assessmentId(),
+                request.userId(),
+                request.answers() == null ? List.of() : request.answers(),
+                "SUBMITTED",
+                Instant.now().toString(),
+                request.similarityMode(),
+                List.of()
+        );
+    }
+
+    private CompletableFuture<Submission> persist(Submission submission) {
+        return submissionLog.append(submission)
+                .thenApply(stored -> {
+                    index(stored);
+                    scheduleScoring(stored);
+                    return stored;
+                });
+    }
+
+    private void index(Submission submission) {
+        lshIndex.add(submission.assessmentId(), submission.id(), submission.minHashSignature());
+        if (submission.similarityMode() == SimilarityMode.CODE) {
+            fingerprintIndex.add(submission.assessmentId(), submission.id(), submission.codeFingerprints());
+        }
+    }
+
+    private void scheduleScoring(Submission submission) {
+        TopMatches matches = new TopMatches(TOP_MATCHES);
+        if (topMatches.putIfAbsent(submission.id(), matches) == null) {
+            scorer.execute(() -> score(submission, matches));
+        }
+    }
+
+    /**
+     * Text answers are compared by token Jaccard over LSH candidates; code answers by
+     * fingerprint Jaccard over submissions found through the fingerprint index. Every
+     * submission is in the LSH index, so text scoring skips code candidates whose token
+     * scores would otherwise land in their matches. Candidates still waiting for their own
+     * turn are skipped; they will score this one instead.
+     */
+    private void score(Submission target, TopMatches targetMatches) {
+        if (target.similarityMode() == SimilarityMode.CODE) {
+            Map<String, Integer> shared = fingerprintIndex.sharedCounts(
+                    target.assessmentId(), target.id(), target.codeFingerprints());
+            for (Map.Entry<String, Integer> candidate : shared.entrySet()) {
+                Submission other = store.get(candidate.getKey());
+                if (other != null) {
+                    int union = target.codeFingerprints().length + other.codeFingerprints().length - candidate.getValue();
+                    record(target, targetMatches, other, (double) candidate.getValue() / union);
+                }
+            }
+        } else {
+            for (String id : lshIndex.candidates(target.assessmentId(), target.id(), target.minHashSignature())) {
+                Submission other = store.get(id);
+                if (other != null && other.similarityMode() == target.similarityMode()) {
+                    record(target, targetMatches, other, TokenSets.jaccard(target.answerTokens(), other.answerTokens()));
+                }
+            }
+        }
+        targetMatches.markScored();
+    }
+
+    private void record(Submission target, TopMatches targetMatches, Submission other, double score) {
+        TopMatches otherMatches = topMatches.get(other.id());
+        if (otherMatches == null || otherMatches.pending()) {
+            return;
+        }
+        targetMatches.offer(other.id(), score);
+        otherMatches.offer(target.id(), score);
+    }
+
+    private Submission build(String id, long sequence, String assessmentId, String userId,
+                             List<Map<String, Object>> answers, String status, String createdAt,
+                             SimilarityMode mode, List<Attachment> attachments) {
+        int[] tokens = AnswerNormalizer.encode(answers, tokenDictionary);
+        SimilarityMode similarityMode = mode == null ? SimilarityMode.TEXT : mode;
+        int[] fingerprints = similarityMode == SimilarityMode.CODE ? CodeFingerprinter.fingerprint(answers) : new int[0];
+        return new Submission(id, sequence, assessmentId, userId, answers, status, createdAt,
+                tokens, lshIndex.signature(tokens), similarityMode, fingerprints, attachments);
+    }
+}
@@ -0,0 +1,125 @@
+package com.edusync.submission.similarity;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Parallel all-pairs Jaccard over token-ID sets. Inputs are ordered by set size so
+ * each row can stop as soon as the size ratio alone rules out the threshold.
+ */
+public class AllPairsSimilarity {
+
+    private static final int LEAF_ROWS = 8;
+
+    public record Pair(int left, int right, double score) {}
+
+    private final ForkJoinPool pool;
+
+    public AllPairsSimilarity(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * {@code sortedTokenSets} must be ordered by ascending length. Pairs are reported
+     * by position in that array as soon as they are found.
+     */
+    public ForkJoinTask<Void> submit(int[][] sortedTokenSets, double threshold, Consumer<Pair> sink, BooleanSupplier cancelled) {
+        return pool.submit(new RowRange(sortedTokenSets, threshold, sink, cancelled, 0, sortedTokenSets.length));
+    }
+
+    public static List<int[]> clusters(int size, List<Pair> pairs) {
+        int[] parent = new int[size];
+        for (int i = 0; i < size; i++) {
+            parent[i] = i;
+        }
+        for (Pair pair : pairs) {
+            int a = find(parent, pair.left());
+            int b = find(parent, pair.right());
+            if (a != b) {
+                parent[Math.max(a, b)] = Math.min(a, b);
+            }
+        }
+        Map<Integer, List<Integer>> groups = new HashMap<>();
+        for (Pair pair : pairs) {
+            groups.computeIfAbsent(find(parent, pair.left()), ignored -> new ArrayList<>());
+        }
+        for (int i = 0; i < size; i++) {
+            List<Integer> group = groups.get(find(parent, i));
+            if (group != null) {
+                group.add(i);
+            }
+        }
+        List<int[]> clusters = new ArrayList<>();
+        for (List<Integer> group : groups.values()) {
+            clusters.add(group.stream().mapToInt(Integer::intValue).toArray());
+        }
+        clusters.sort(Comparator.comparingInt((int[] c) -> c.length).reversed());
+        return clusters;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static final class RowRange extends RecursiveAction {
+        private final int[][] sets;
+        private final double threshold;
+        private final Consumer<Pair> sink;
+        private final BooleanSupplier cancelled;
+        private final int from;
+        private final int to;
+
+        private RowRange(int[][] sets, double threshold, Consumer<Pair> sink, BooleanSupplier cancelled, int from, int to) {
+            this.sets = sets;
+            this.threshold = threshold;
+            this.sink = sink;
+            this.cancelled = cancelled;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_ROWS) {
+                int mid = (from + to) >>> 1;
+                invokeAll(
+                        new RowRange(sets, threshold, sink, cancelled, from, mid),
+                        new RowRange(sets, threshold, sink, cancelled, mid, to)
+                );
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                if (cancelled.getAsBoolean()) {
+                    return;
+                }
+                int[] left = sets[i];
+                if (left.length == 0) {
+                    continue;
+                }
+                double maxRightSize = left.length / threshold + 1e-9;
+                for (int j = i + 1; j < sets.length; j++) {
+                    int[] right = sets[j];
+                    if (right.length > maxRightSize) {
+                        break;
+                    }
+                    double score = TokenSets.jaccard(left, right);
+                    if (score >= threshold) {
+                        sink.accept(new Pair(i, j, score));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.edusync.submission.similarity;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single-pass answer normalizer. Walks the answers structure and writes lower-case
+ * {@code [a-z0-9]} tokens separated by single spaces into a per-thread buffer.
+ *
+ * <p>Output is identical to lower-casing the space-joined answer text with
+ * {@code Locale.ROOT}, replacing {@code [^a-z0-9\s]} with spaces, collapsing
+ * whitespace runs and trimming. The only non-ASCII characters whose root-locale
+ * lower case contains ASCII letters are U+0130 (to "i" plus a combining dot,
+ * which is a separator) and U+212A (to "k"); both are special-cased below.
+ */
+public final class AnswerNormalizer {
+
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    private AnswerNormalizer() {
+    }
+
+    public static String normalize(List<Map<String, Object>> answers) {
+        StringBuilder buffer = fill(answers);
+        String normalized = buffer.toString();
+        release(buffer);
+        return normalized;
+    }
+
+    public static int[] encode(List<Map<String, Object>> answers, TokenDictionary dictionary) {
+        StringBuilder buffer = fill(answers);
+        int[] tokens = dictionary.encode(buffer);
+        release(buffer);
+        return tokens;
+    }
+
+    private static StringBuilder fill(List<Map<String, Object>> answers) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        for (Map<String, Object> answer : answers) {
+            walk(buffer, answer);
+        }
+        return buffer;
+    }
+
+    private static void release(StringBuilder buffer) {
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFER.remove();
+        }
+    }
+
+    private static void walk(StringBuilder buffer, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof CharSequence text) {
+            emit(buffer, text);
+            return;
+        }
+        if (value instanceof Map<?, ?> map) {
+            for (Object nested : map.values()) {
+                walk(buffer, nested);
+            }
+            return;
+        }
+        if (value instanceof Collection<?> collection) {
+            for (Object nested : collection) {
+                walk(buffer, nested);
+            }
+            return;
+        }
+        emit(buffer, String.valueOf(value));
+    }
+
+    private static void emit(StringBuilder buffer, CharSequence text) {
+        // Each value ends in a separator, so a token never continues across values.
+        boolean inToken = false;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            char mapped;
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                mapped = c;
+            } else if (c >= 'A' && c <= 'Z') {
+                mapped = (char) (c + ('a' - 'A'));
+            } else if (c == '\u212A') {
+                mapped = 'k';
+            } else if (c == '\u0130') {
+                append(buffer, 'i', inToken);
+                inToken = false;
+                continue;
+            } else {
+                inToken = false;
+                continue;
+            }
+            append(buffer, mapped, inToken);
+            inToken = true;
+        }
+    }
+
+    private static void append(StringBuilder buffer, char c, boolean inToken) {
+        if (!inToken && buffer.length() > 0) {
+            buffer.append(' ');
+        }
+        buffer.append(c);
+    }
+}
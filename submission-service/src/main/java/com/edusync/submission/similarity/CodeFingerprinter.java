@@ -0,0 +1,159 @@
+package com.edusync.submission.similarity;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * MOSS-style winnowing over a lexed token stream. Identifiers, literals, whitespace and
+ * comments are normalized away before hashing, so renaming variables or reformatting a
+ * copy does not change its fingerprints.
+ */
+public final class CodeFingerprinter {
+
+    public static final int K = 5;
+    public static final int WINDOW = 4;
+
+    private static final long BASE = 0x100000001B3L;
+    private static final Set<String> KEYWORDS = Set.of(
+            "abstract", "and", "as", "break", "case", "catch", "class", "const", "continue", "def", "default",
+            "do", "elif", "else", "enum", "except", "extends", "false", "final", "finally", "for", "from",
+            "function", "if", "implements", "import", "in", "interface", "is", "lambda", "let", "new", "none",
+            "not", "null", "or", "pass", "private", "protected", "public", "raise", "return", "static", "struct",
+            "super", "switch", "this", "throw", "throws", "true", "try", "var", "void", "while", "with", "yield",
+            "int", "long", "double", "float", "boolean", "char", "string", "bool"
+    );
+
+    private CodeFingerprinter() {
+    }
+
+    public static int[] fingerprint(List<Map<String, Object>> answers) {
+        StringBuilder source = new StringBuilder();
+        collectText(source, answers);
+        return fingerprint(source);
+    }
+
+    public static int[] fingerprint(CharSequence source) {
+        long[] tokens = lex(source);
+        if (tokens.length < K) {
+            return tokens.length == 0 ? new int[0] : new int[]{(int) mix(kgram(tokens, 0, tokens.length))};
+        }
+        int grams = tokens.length - K + 1;
+        long[] hashes = new long[grams];
+        long power = 1;
+        for (int i = 0; i < K - 1; i++) {
+            power *= BASE;
+        }
+        long rolling = kgram(tokens, 0, K);
+        hashes[0] = mix(rolling);
+        for (int i = 1; i < grams; i++) {
+            rolling = (rolling - tokens[i - 1] * power) * BASE + tokens[i + K - 1];
+            hashes[i] = mix(rolling);
+        }
+        return winnow(hashes);
+    }
+
+    private static int[] winnow(long[] hashes) {
+        int window = Math.min(WINDOW, hashes.length);
+        int[] selected = new int[hashes.length];
+        int count = 0;
+        int lastPicked = -1;
+        for (int start = 0; start + window <= hashes.length; start++) {
+            int min = start;
+            for (int i = start + 1; i < start + window; i++) {
+                if (hashes[i] <= hashes[min]) {
+                    min = i;
+                }
+            }
+            if (min != lastPicked) {
+                selected[count++] = (int) hashes[min];
+                lastPicked = min;
+            }
+        }
+        return TokenSets.sortedDistinct(selected, count);
+    }
+
+    private static long kgram(long[] tokens, int from, int to) {
+        long hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = hash * BASE + tokens[i];
+        }
+        return hash;
+    }
+
+    private static long[] lex(CharSequence source) {
+        long[] tokens = new long[64];
+        int count = 0;
+        int length = source.length();
+        int i = 0;
+        while (i < length) {
+            char c = source.charAt(i);
+            int start = i;
+            long token;
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            } else if (c == '/' && i + 1 < length && source.charAt(i + 1) == '/' || c == '#') {
+                while (i < length && source.charAt(i) != '\n') {
+                    i++;
+                }
+                continue;
+            } else if (c == '/' && i + 1 < length && source.charAt(i + 1) == '*') {
+                i += 2;
+                while (i + 1 < length && !(source.charAt(i) == '*' && source.charAt(i + 1) == '/')) {
+                    i++;
+                }
+                i = Math.min(length, i + 2);
+                continue;
+            } else if (c == '"' || c == '\'' || c == '`') {
+                i++;
+                while (i < length && source.charAt(i) != c) {
+                    i += source.charAt(i) == '\\' ? 2 : 1;
+                }
+                i = Math.min(length, i + 1);
+                token = 'S';
+            } else if (Character.isDigit(c)) {
+                while (i < length && (Character.isLetterOrDigit(source.charAt(i)) || source.charAt(i) == '.' || source.charAt(i) == '_')) {
+                    i++;
+                }
+                token = 'N';
+            } else if (Character.isJavaIdentifierStart(c)) {
+                while (i < length && Character.isJavaIdentifierPart(source.charAt(i))) {
+                    i++;
+                }
+                String word = source.subSequence(start, i).toString();
+                token = KEYWORDS.contains(word) ? word.hashCode() & 0xFFFFFFFFL | (1L << 32) : 'V';
+            } else {
+                i++;
+                token = c;
+            }
+            if (count == tokens.length) {
+                tokens = Arrays.copyOf(tokens, count * 2);
+            }
+            tokens[count++] = token;
+        }
+        return Arrays.copyOf(tokens, count);
+    }
+
+    private static void collectText(StringBuilder source, Object value) {
+        if (value instanceof CharSequence text) {
+            source.append(text).append('\n');
+        } else if (value instanceof Map<?, ?> map) {
+            for (Object nested : map.values()) {
+                collectText(source, nested);
+            }
+        } else if (value instanceof Collection<?> collection) {
+            for (Object nested : collection) {
+                collectText(source, nested);
+            }
+        }
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+}
@@ -0,0 +1,52 @@
+package com.edusync.submission.similarity;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-assessment inverted index from winnowing fingerprint to submission IDs.
+ * Fingerprints shared by more than {@link #MAX_POSTINGS} submissions are treated as
+ * starter/boilerplate code and ignored at query time.
+ */
+public class FingerprintIndex {
+
+    public static final int MAX_POSTINGS = 500;
+
+    private final Map<String, Map<Integer, Set<String>>> assessments = new ConcurrentHashMap<>();
+
+    public void add(String assessmentId, String submissionId, int[] fingerprints) {
+        if (fingerprints.length == 0) {
+            return;
+        }
+        Map<Integer, Set<String>> postings = assessments.computeIfAbsent(assessmentId, ignored -> new ConcurrentHashMap<>());
+        for (int fingerprint : fingerprints) {
+            postings.computeIfAbsent(fingerprint, ignored -> ConcurrentHashMap.newKeySet()).add(submissionId);
+        }
+    }
+
+    /**
+     * Returns, for every other submission sharing at least one fingerprint, how many
+     * fingerprints it shares with {@code fingerprints}.
+     */
+    public Map<String, Integer> sharedCounts(String assessmentId, String submissionId, int[] fingerprints) {
+        Map<String, Integer> shared = new HashMap<>();
+        Map<Integer, Set<String>> postings = assessments.get(assessmentId);
+        if (postings == null) {
+            return shared;
+        }
+        for (int fingerprint : fingerprints) {
+            Set<String> owners = postings.get(fingerprint);
+            if (owners == null || owners.size() > MAX_POSTINGS) {
+                continue;
+            }
+            for (String owner : owners) {
+                if (!owner.equals(submissionId)) {
+                    shared.merge(owner, 1, Integer::sum);
+                }
+            }
+        }
+        return shared;
+    }
+}
@@ -0,0 +1,104 @@
+package com.edusync.submission.similarity;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Banded MinHash index, one bucket table per assessment.
+ * 32 bands of 4 rows put the candidate threshold at roughly 0.42 Jaccard,
+ * just under the MEDIUM risk cut-off used by the similarity endpoint.
+ */
+public class MinHashLshIndex {
+
+    public static final int BANDS = 32;
+    public static final int ROWS = 4;
+    public static final int SIGNATURE_LENGTH = BANDS * ROWS;
+
+    private static final long SEED = 0x5EED_ED05_1C0FL;
+
+    private final long[] hashSeeds = new long[SIGNATURE_LENGTH];
+    private final Map<String, AssessmentBuckets> assessments = new ConcurrentHashMap<>();
+
+    public MinHashLshIndex() {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            hashSeeds[i] = random.nextLong();
+        }
+    }
+
+    public int[] signature(int[] tokenIds) {
+        if (tokenIds.length == 0) {
+            return new int[0];
+        }
+        int[] signature = new int[SIGNATURE_LENGTH];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int tokenId : tokenIds) {
+            long base = tokenId;
+            for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+                int h = (int) mix(base ^ hashSeeds[i]);
+                if (h < signature[i]) {
+                    signature[i] = h;
+                }
+            }
+        }
+        return signature;
+    }
+
+    public void add(String assessmentId, String submissionId, int[] signature) {
+        if (signature.length != SIGNATURE_LENGTH) {
+            return;
+        }
+        AssessmentBuckets buckets = assessments.computeIfAbsent(assessmentId, ignored -> new AssessmentBuckets());
+        for (int band = 0; band < BANDS; band++) {
+            buckets.bands[band]
+                    .computeIfAbsent(bandKey(signature, band), ignored -> ConcurrentHashMap.newKeySet())
+                    .add(submissionId);
+        }
+    }
+
+    public Set<String> candidates(String assessmentId, String submissionId, int[] signature) {
+        AssessmentBuckets buckets = assessments.get(assessmentId);
+        Set<String> candidates = new HashSet<>();
+        if (buckets == null || signature.length != SIGNATURE_LENGTH) {
+            return candidates;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            Set<String> bucket = buckets.bands[band].get(bandKey(signature, band));
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+        candidates.remove(submissionId);
+        return candidates;
+    }
+
+    private static long bandKey(int[] signature, int band) {
+        long key = band;
+        int offset = band * ROWS;
+        for (int row = 0; row < ROWS; row++) {
+            key = key * 0x9E3779B97F4A7C15L + signature[offset + row];
+        }
+        return mix(key);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    private static final class AssessmentBuckets {
+        @SuppressWarnings("unchecked")
+        private final Map<Long, Set<String>>[] bands = new Map[BANDS];
+
+        private AssessmentBuckets() {
+            for (int band = 0; band < BANDS; band++) {
+                bands[band] = new ConcurrentHashMap<>();
+            }
+        }
+    }
+}
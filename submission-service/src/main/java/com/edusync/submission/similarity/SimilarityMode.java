@@ -0,0 +1,6 @@
+package com.edusync.submission.similarity;
+
+public enum SimilarityMode {
+    TEXT,
+    CODE
+}
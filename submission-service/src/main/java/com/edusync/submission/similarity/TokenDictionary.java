@@ -0,0 +1,54 @@
+package com.edusync.submission.similarity;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared token -> int ID dictionary. Submissions keep their answer tokens as
+ * sorted, de-duplicated ID arrays so set operations become merge walks.
+ */
+public class TokenDictionary {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    public int[] encode(CharSequence normalizedText) {
+        int length = normalizedText.length();
+        if (length == 0) {
+            return EMPTY;
+        }
+        int[] buffer = new int[8];
+        int count = 0;
+        int start = 0;
+        while (start < length) {
+            int end = start;
+            while (end < length && normalizedText.charAt(end) != ' ') {
+                end++;
+            }
+            if (end > start) {
+                if (count == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, count * 2);
+                }
+                buffer[count++] = idOf(normalizedText.subSequence(start, end).toString());
+            }
+            start = end + 1;
+        }
+        return TokenSets.sortedDistinct(buffer, count);
+    }
+
+    public int idOf(String token) {
+        Integer id = ids.get(token);
+        if (id != null) {
+            return id;
+        }
+        return ids.computeIfAbsent(token, ignored -> nextId.getAndIncrement());
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
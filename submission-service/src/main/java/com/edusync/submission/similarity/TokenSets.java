@@ -0,0 +1,55 @@
+package com.edusync.submission.similarity;
+
+import java.util.Arrays;
+
+/**
+ * Allocation-free set arithmetic over sorted, de-duplicated token ID arrays.
+ */
+public final class TokenSets {
+
+    private TokenSets() {
+    }
+
+    public static int[] sortedDistinct(int[] values, int count) {
+        if (count == 0) {
+            return new int[0];
+        }
+        Arrays.sort(values, 0, count);
+        int distinct = 1;
+        for (int i = 1; i < count; i++) {
+            if (values[i] != values[distinct - 1]) {
+                values[distinct++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, distinct);
+    }
+
+    public static int intersectionSize(int[] left, int[] right) {
+        int i = 0;
+        int j = 0;
+        int shared = 0;
+        while (i < left.length && j < right.length) {
+            int a = left[i];
+            int b = right[j];
+            if (a == b) {
+                shared++;
+                i++;
+                j++;
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return shared;
+    }
+
+    public static double jaccard(int[] left, int[] right) {
+        if (left.length == 0 || right.length == 0) {
+            return 0.0;
+        }
+        int shared = intersectionSize(left, right);
+        int union = left.length + right.length - shared;
+        return (double) shared / union;
+    }
+}
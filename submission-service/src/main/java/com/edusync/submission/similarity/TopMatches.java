@@ -0,0 +1,54 @@
+package com.edusync.submission.similarity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded, best-first list of the closest matches seen for one submission. Each pair
+ * is scored once, when the later of the two arrives, and offered to both sides.
+ */
+public class TopMatches {
+
+    public record Entry(String submissionId, double score) {}
+
+    private final int capacity;
+    private final List<Entry> entries;
+    private int compared;
+    private volatile boolean pending = true;
+
+    public TopMatches(int capacity) {
+        this.capacity = capacity;
+        this.entries = new ArrayList<>(capacity + 1);
+    }
+
+    public synchronized void offer(String submissionId, double score) {
+        compared++;
+        if (entries.size() == capacity && entries.get(capacity - 1).score() >= score) {
+            return;
+        }
+        int at = 0;
+        while (at < entries.size() && entries.get(at).score() >= score) {
+            at++;
+        }
+        entries.add(at, new Entry(submissionId, score));
+        if (entries.size() > capacity) {
+            entries.remove(capacity);
+        }
+    }
+
+    public synchronized List<Entry> snapshot() {
+        return List.copyOf(entries);
+    }
+
+    public synchronized int compared() {
+        return compared;
+    }
+
+    public boolean pending() {
+        return pending;
+    }
+
+    public void markScored() {
+        pending = false;
+    }
+}
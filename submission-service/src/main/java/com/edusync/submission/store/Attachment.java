@@ -0,0 +1,11 @@
+package com.edusync.submission.store;
+
+public record Attachment(
+        String id,
+        String filename,
+        String contentType,
+        long sizeBytes,
+        String sha256,
+        String uploadedAt
+) {
+}
@@ -0,0 +1,121 @@
+package com.edusync.submission.store;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Content-addressed blob storage for submission attachments. Uploads are streamed
+ * through a direct buffer into a temp file while the SHA-256 is computed, then moved
+ * to {@code blobs/<sha256>}; identical uploads share one blob.
+ */
+@Component
+public class AttachmentStore {
+
+    public record StoredBlob(String sha256, long sizeBytes, boolean deduplicated) {}
+
+    public static class TooLargeException extends IOException {
+        public TooLargeException(long limit) {
+            super("Attachment exceeds " + limit + " bytes");
+        }
+    }
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final Path blobs;
+    private final Path incoming;
+    private final long maxBytes;
+
+    public AttachmentStore(@Value("${submission.attachments.dir:${submission.storage.dir:data/submission-service}/attachments}") String directory,
+                           @Value("${submission.attachments.max-bytes:104857600}") long maxBytes) {
+        Path root = Path.of(directory);
+        this.blobs = root.resolve("blobs");
+        this.incoming = root.resolve("incoming");
+        this.maxBytes = maxBytes;
+    }
+
+    public StoredBlob write(ReadableByteChannel source) throws IOException {
+        Files.createDirectories(blobs);
+        Files.createDirectories(incoming);
+        Path temp = Files.createTempFile(incoming, "upload-", ".part");
+        try {
+            MessageDigest digest = sha256();
+            long size = 0;
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            try (FileChannel target = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (source.read(buffer) >= 0) {
+                    buffer.flip();
+                    size += buffer.remaining();
+                    if (size > maxBytes) {
+                        throw new TooLargeException(maxBytes);
+                    }
+                    digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        target.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                target.force(false);
+            }
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            Path blob = blobs.resolve(sha256);
+            boolean deduplicated = Files.exists(blob);
+            if (!deduplicated) {
+                try {
+                    Files.move(temp, blob, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    deduplicated = true;
+                }
+            }
+            return new StoredBlob(sha256, size, deduplicated);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Copies the blob to {@code target} with {@link FileChannel#transferTo}, letting the
+     * kernel move the bytes when the target is a file or socket channel.
+     */
+    public void transferTo(String sha256, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(blob(sha256), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+        }
+    }
+
+    public boolean exists(String sha256) {
+        return Files.exists(blob(sha256));
+    }
+
+    private Path blob(String sha256) {
+        if (!sha256.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Invalid blob id");
+        }
+        return blobs.resolve(sha256);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.edusync.submission.store;
+
+import com.edusync.submission.similarity.SimilarityMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public record Submission(
+        String id,
+        long sequence,
+        String assessmentId,
+        String userId,
+        List<Map<String, Object>> answers,
+        String status,
+        String createdAt,
+        int[] answerTokens,
+        int[] minHashSignature,
+        SimilarityMode similarityMode,
+        int[] codeFingerprints,
+        List<Attachment> attachments
+) {
+
+    /** The same submission with the listing sequence the log assigned it. */
+    public Submission withSequence(long assigned) {
+        return new Submission(id, assigned, assessmentId, userId, answers, status, createdAt, answerTokens,
+                minHashSignature, similarityMode, codeFingerprints, attachments);
+    }
+
+    /** The same submission with {@code attachment} added after the existing ones. */
+    public Submission withAttachment(Attachment attachment) {
+        List<Attachment> updated = new ArrayList<>(attachments.size() + 1);
+        updated.addAll(attachments);
+        updated.add(attachment);
+        return new Submission(id, sequence, assessmentId, userId, answers, status, createdAt, answerTokens,
+                minHashSignature, similarityMode, codeFingerprints, List.copyOf(updated));
+    }
+}
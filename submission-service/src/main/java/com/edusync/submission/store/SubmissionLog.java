@@ -0,0 +1,497 @@
+package com.edusync.submission.store;
+
+import com.edusync.submission.similarity.SimilarityMode;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, group-committed log of submission writes with periodic snapshots.
+ *
+ * <p>A single writer thread drains queued appends, writes them as one batch and
+ * fsyncs once per batch before applying them to the in-memory store. New submissions
+ * get their listing sequence from the writer as they are framed, so they become visible
+ * in sequence order and a listing cursor never passes one still in flight. Every
+ * {@code snapshotEvery} records the writer rolls to a new segment and a background
+ * thread writes a snapshot of the store as of that roll; older snapshots and
+ * segments are deleted once the new snapshot is durable. Recovery memory-maps the
+ * newest snapshot and replays only the segments written after it.
+ *
+ * <p>A batch whose write or fsync fails is cut back out of the segment before the
+ * next batch is written, so a torn frame never hides later records from replay; if
+ * the cut itself fails the writer moves on to a new segment.
+ *
+ * <p>Files share one framing: {@code [int length][int crc32c][json entry]}. An entry is
+ * either a whole submission or, when {@link Entry#attachment()} is set, one attachment to
+ * add to the submission {@link Entry#id()} that an earlier entry recorded.
+ */
+@Component
+public class SubmissionLog {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionLog.class);
+    private static final Pattern SEGMENT = Pattern.compile("wal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT = Pattern.compile("snapshot-(\\d+)\\.bin");
+    private static final int HEADER_BYTES = 8;
+    private static final long MAP_WINDOW = 1L << 30;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Entry(
+            String id,
+            long sequence,
+            String assessmentId,
+            String userId,
+            List<Map<String, Object>> answers,
+            String status,
+            String createdAt,
+            SimilarityMode similarityMode,
+            List<Attachment> attachments,
+            Attachment attachment
+    ) {
+        static Entry attachment(String submissionId, Attachment attachment) {
+            return new Entry(submissionId, 0, null, null, null, null, null, null, null, attachment);
+        }
+    }
+
+    public record Stats(boolean enabled, long recoveredRecords, long recoveryMillis, long appendedRecords,
+                        long batches, long p50CommitMicros, long p99CommitMicros) {}
+
+    // Either a whole submission, or an attachment for the stored submission attachTo.
+    private record Pending(Submission submission, String attachTo, Attachment attachment, long enqueuedAt,
+                           CompletableFuture<Submission> done) {}
+
+    private final SubmissionStore store;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Path directory;
+    private final int maxBatch;
+    private final long snapshotEvery;
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService snapshotter = Executors.newSingleThreadExecutor(daemon("submission-snapshot"));
+    private final AtomicLongArray commitMicros = new AtomicLongArray(64);
+    private Thread writer;
+    private volatile boolean running;
+    private FileChannel segment;
+    private long segmentNumber;
+    private long sinceSnapshot;
+    private volatile long recoveredRecords;
+    private volatile long recoveryMillis;
+    private volatile long appendedRecords;
+    private volatile long batches;
+
+    public SubmissionLog(SubmissionStore store,
+                         ObjectMapper objectMapper,
+                         @Value("${submission.storage.enabled:true}") boolean enabled,
+                         @Value("${submission.storage.dir:data/submission-service}") String directory,
+                         @Value("${submission.storage.max-batch:512}") int maxBatch,
+                         @Value("${submission.storage.snapshot-every:50000}") long snapshotEvery) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.maxBatch = Math.max(1, maxBatch);
+        this.snapshotEvery = Math.max(1, snapshotEvery);
+    }
+
+    /**
+     * Replays the newest snapshot and the segments after it into {@code restore},
+     * then opens a fresh segment and starts the writer thread.
+     */
+    public synchronized void open(Consumer<Entry> restore) {
+        if (!enabled || running) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            TreeMap<Long, Path> snapshots = list(SNAPSHOT);
+            TreeMap<Long, Path> segments = list(SEGMENT);
+            long replayFrom = 0;
+            long records = 0;
+            if (!snapshots.isEmpty()) {
+                replayFrom = snapshots.lastKey();
+                records += replay(snapshots.lastEntry().getValue(), restore);
+            }
+            for (Path path : segments.tailMap(replayFrom, true).values()) {
+                records += replay(path, restore);
+            }
+            segmentNumber = Math.max(replayFrom, segments.isEmpty() ? 0 : segments.lastKey()) + 1;
+            segment = openSegment(segmentNumber);
+            recoveredRecords = records;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot recover submission log from " + directory, e);
+        }
+        recoveryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        log.info("Recovered {} submission records from {} in {} ms", recoveredRecords, directory, recoveryMillis);
+
+        running = true;
+        writer = daemon("submission-log-writer").newThread(this::drain);
+        writer.start();
+    }
+
+    /**
+     * Completes once the submission is durable and visible in the store, with the sequence
+     * number it was given in log order; any sequence already on {@code submission} is ignored.
+     */
+    public CompletableFuture<Submission> append(Submission submission) {
+        if (!enabled) {
+            synchronized (queue) {
+                Submission numbered = submission.withSequence(store.nextSequence());
+                store.put(numbered);
+                return CompletableFuture.completedFuture(numbered);
+            }
+        }
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Submission log is not open"));
+        }
+        return enqueue(new Pending(submission, null, null, System.nanoTime(), new CompletableFuture<>()));
+    }
+
+    /**
+     * Logs one attachment for an existing submission. Completes with the updated submission
+     * once it is durable and visible in the store, or with null if the submission is unknown.
+     * Attachments are applied by the writer in log order, so concurrent ones are all kept.
+     */
+    public CompletableFuture<Submission> appendAttachment(String submissionId, Attachment attachment) {
+        if (!enabled) {
+            synchronized (queue) {
+                return CompletableFuture.completedFuture(applyAttachment(submissionId, attachment));
+            }
+        }
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Submission log is not open"));
+        }
+        return enqueue(new Pending(null, submissionId, attachment, System.nanoTime(), new CompletableFuture<>()));
+    }
+
+    private CompletableFuture<Submission> enqueue(Pending pending) {
+        queue.add(pending);
+        return pending.done();
+    }
+
+    private Submission applyAttachment(String submissionId, Attachment attachment) {
+        Submission current = store.get(submissionId);
+        if (current == null) {
+            return null;
+        }
+        Submission updated = current.withAttachment(attachment);
+        store.put(updated);
+        return updated;
+    }
+
+    public Stats stats() {
+        return new Stats(enabled, recoveredRecords, recoveryMillis, appendedRecords, batches,
+                percentile(0.50), percentile(0.99));
+    }
+
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+            snapshotter.shutdown();
+            snapshotter.awaitTermination(30, TimeUnit.SECONDS);
+            if (segment != null) {
+                segment.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.warn("Failed to close submission log segment", e);
+        }
+    }
+
+    private void drain() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                buffer = writeBatch(batch, buffer);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.error("Submission log write failed for {} records", batch.size(), e);
+                for (Pending pending : batch) {
+                    pending.done().completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private ByteBuffer writeBatch(List<Pending> batch, ByteBuffer buffer) throws IOException {
+        if (segment == null || !segment.isOpen()) {
+            segment = openSegment(++segmentNumber);
+        }
+        long start = segment.size();
+        buffer.clear();
+        Submission[] numbered = new Submission[batch.size()];
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                Pending pending = batch.get(i);
+                Entry entry;
+                if (pending.attachment() != null) {
+                    entry = Entry.attachment(pending.attachTo(), pending.attachment());
+                } else {
+                    // Numbers burnt by a failed batch are simply never listed.
+                    numbered[i] = pending.submission().withSequence(store.nextSequence());
+                    entry = toEntry(numbered[i]);
+                }
+                byte[] payload = objectMapper.writeValueAsBytes(entry);
+                if (buffer.remaining() < HEADER_BYTES + payload.length) {
+                    buffer = flush(buffer, HEADER_BYTES + payload.length);
+                }
+                frame(buffer, payload);
+            }
+            flush(buffer, 0);
+            segment.force(false);
+        } catch (IOException | RuntimeException e) {
+            discardFrom(start);
+            throw e;
+        }
+
+        long now = System.nanoTime();
+        for (int i = 0; i < batch.size(); i++) {
+            Pending pending = batch.get(i);
+            Submission applied;
+            if (pending.attachment() != null) {
+                applied = applyAttachment(pending.attachTo(), pending.attachment());
+            } else {
+                applied = numbered[i];
+                store.put(applied);
+            }
+            recordLatency(now - pending.enqueuedAt());
+            pending.done().complete(applied);
+        }
+        appendedRecords += batch.size();
+        batches++;
+        sinceSnapshot += batch.size();
+        if (sinceSnapshot >= snapshotEvery) {
+            rollAndSnapshot();
+        }
+        return buffer;
+    }
+
+    /**
+     * Removes whatever part of a failed batch reached the segment. The batch's callers are told
+     * it failed, so none of it may come back on replay, and nothing after it may be lost.
+     */
+    private void discardFrom(long position) {
+        try {
+            segment.truncate(position);
+            segment.force(false);
+            return;
+        } catch (IOException e) {
+            log.error("Could not cut segment {} back to offset {}; continuing in a new segment", segmentNumber, position, e);
+        }
+        try {
+            segment.close();
+        } catch (IOException e) {
+            log.debug("Failed to close abandoned segment {}", segmentNumber, e);
+        }
+        segment = null;
+        try {
+            segment = openSegment(++segmentNumber);
+        } catch (IOException e) {
+            log.error("Could not open submission log segment {}; retrying on the next batch", segmentNumber, e);
+        }
+    }
+
+    private ByteBuffer flush(ByteBuffer buffer, int needed) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+        buffer.clear();
+        return buffer.capacity() >= needed ? buffer : ByteBuffer.allocateDirect(Integer.highestOneBit(needed) << 1);
+    }
+
+    private void rollAndSnapshot() throws IOException {
+        segment.close();
+        long snapshotNumber = ++segmentNumber;
+        segment = openSegment(snapshotNumber);
+        sinceSnapshot = 0;
+        List<Submission> state = new ArrayList<>(store.all());
+        snapshotter.execute(() -> writeSnapshot(snapshotNumber, state));
+    }
+
+    private void writeSnapshot(long number, Collection<Submission> state) {
+        Path target = directory.resolve("snapshot-" + number + ".bin");
+        Path temp = directory.resolve("snapshot-" + number + ".bin.tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+            for (Submission submission : state) {
+                byte[] payload = objectMapper.writeValueAsBytes(toEntry(submission));
+                if (buffer.remaining() < HEADER_BYTES + payload.length) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    buffer = ByteBuffer.allocate(Math.max(buffer.capacity(), HEADER_BYTES + payload.length));
+                }
+                frame(buffer, payload);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            for (Path old : list(SNAPSHOT).headMap(number, false).values()) {
+                Files.deleteIfExists(old);
+            }
+            for (Path old : list(SEGMENT).headMap(number, false).values()) {
+                Files.deleteIfExists(old);
+            }
+            log.info("Wrote submission snapshot {} with {} records", number, state.size());
+        } catch (IOException e) {
+            log.error("Submission snapshot {} failed; segments are kept for replay", number, e);
+        }
+    }
+
+    private long replay(Path path, Consumer<Entry> restore) throws IOException {
+        long records = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            CRC32C crc = new CRC32C();
+            while (position + HEADER_BYTES <= size) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, size - position));
+                int consumed = 0;
+                while (window.remaining() >= HEADER_BYTES) {
+                    int start = window.position();
+                    int length = window.getInt();
+                    int checksum = window.getInt();
+                    if (length < 0 || length > window.remaining()) {
+                        window.position(start);
+                        break;
+                    }
+                    byte[] payload = new byte[length];
+                    window.get(payload);
+                    crc.reset();
+                    crc.update(payload);
+                    if ((int) crc.getValue() != checksum) {
+                        log.warn("Stopping replay of {} at offset {}: checksum mismatch", path, position + start);
+                        return records;
+                    }
+                    restore.accept(objectMapper.readValue(payload, Entry.class));
+                    records++;
+                    consumed = window.position();
+                }
+                if (consumed == 0) {
+                    log.warn("Ignoring torn record at end of {} (offset {})", path, position);
+                    break;
+                }
+                position += consumed;
+            }
+        }
+        return records;
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return openChannel(directory.resolve(String.format("wal-%d.log", number)));
+    }
+
+    /** Opens a segment file for appending; tests override it to inject I/O failures. */
+    FileChannel openChannel(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private TreeMap<Long, Path> list(Pattern pattern) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (var stream = Files.list(directory)) {
+            stream.forEach(path -> {
+                Matcher matcher = pattern.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    files.put(Long.parseLong(matcher.group(1)), path);
+                }
+            });
+        }
+        return files;
+    }
+
+    private static void frame(ByteBuffer buffer, byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        buffer.putInt(payload.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+    }
+
+    private static Entry toEntry(Submission s) {
+        return new Entry(s.id(), s.sequence(), s.assessmentId(), s.userId(), s.answers(), s.status(), s.createdAt(),
+                s.similarityMode(), s.attachments(), null);
+    }
+
+    private void recordLatency(long nanos) {
+        long micros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos));
+        commitMicros.incrementAndGet(63 - Long.numberOfLeadingZeros(micros));
+    }
+
+    private long percentile(double quantile) {
+        long total = 0;
+        for (int i = 0; i < commitMicros.length(); i++) {
+            total += commitMicros.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < commitMicros.length(); i++) {
+            seen += commitMicros.get(i);
+            if (seen >= rank) {
+                return (1L << (i + 1)) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
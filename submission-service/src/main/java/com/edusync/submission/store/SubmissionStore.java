@@ -0,0 +1,99 @@
+package com.edusync.submission.store;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Submissions by ID plus secondary indexes by assessment and by user. Index entries
+ * are keyed by the submission's sequence number, which doubles as the listing cursor.
+ */
+@Component
+public class SubmissionStore {
+
+    public record Page(List<Submission> items, Long nextCursor) {}
+
+    private final Map<String, Submission> byId = new ConcurrentHashMap<>();
+    private final Map<String, NavigableMap<Long, String>> byAssessment = new ConcurrentHashMap<>();
+    private final Map<String, NavigableMap<Long, String>> byUser = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public long nextSequence() {
+        return sequence.incrementAndGet();
+    }
+
+    public void advanceSequence(long atLeast) {
+        sequence.accumulateAndGet(atLeast, Math::max);
+    }
+
+    public void put(Submission submission) {
+        byId.put(submission.id(), submission);
+        index(byAssessment, submission.assessmentId(), submission);
+        index(byUser, submission.userId(), submission);
+    }
+
+    public Submission get(String id) {
+        return byId.get(id);
+    }
+
+    public Collection<Submission> all() {
+        return byId.values();
+    }
+
+    public List<Submission> findByAssessment(String assessmentId) {
+        NavigableMap<Long, String> ids = byAssessment.get(assessmentId);
+        return ids == null ? List.of() : resolve(ids.values(), Integer.MAX_VALUE);
+    }
+
+    public int countByAssessment(String assessmentId) {
+        NavigableMap<Long, String> ids = byAssessment.get(assessmentId);
+        return ids == null ? 0 : ids.size();
+    }
+
+    public Page pageByAssessment(String assessmentId, Long cursor, int limit) {
+        return page(byAssessment.get(assessmentId), cursor, limit);
+    }
+
+    public Page pageByUser(String userId, Long cursor, int limit) {
+        return page(byUser.get(userId), cursor, limit);
+    }
+
+    private void index(Map<String, NavigableMap<Long, String>> index, String key, Submission submission) {
+        index.computeIfAbsent(key, ignored -> new ConcurrentSkipListMap<>()).put(submission.sequence(), submission.id());
+    }
+
+    private Page page(NavigableMap<Long, String> ids, Long cursor, int limit) {
+        if (ids == null) {
+            return new Page(List.of(), null);
+        }
+        NavigableMap<Long, String> tail = cursor == null ? ids : ids.tailMap(cursor, false);
+        List<Submission> items = resolve(tail.values(), limit);
+        Long nextCursor = null;
+        if (items.size() == limit) {
+            long last = items.get(items.size() - 1).sequence();
+            nextCursor = ids.higherKey(last) == null ? null : last;
+        }
+        return new Page(items, nextCursor);
+    }
+
+    private List<Submission> resolve(Iterable<String> ids, int limit) {
+        List<Submission> submissions = new ArrayList<>();
+        for (String id : ids) {
+            if (submissions.size() >= limit) {
+                break;
+            }
+            Submission submission = byId.get(id);
+            if (submission != null) {
+                submissions.add(submission);
+            }
+        }
+        return submissions;
+    }
+}
@@ -5,13 +5,31 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -19,6 +37,13 @@ import org.springframework.test.web.servlet.MvcResult;
 @AutoConfigureMockMvc
 class SubmissionControllerTest {
 
+    private static final Path STORAGE_DIR = createStorageDir();
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) {
+        registry.add("submission.storage.dir", STORAGE_DIR::toString);
+    }
+
     @Autowired
     private MockMvc mockMvc;
     @Autowired
@@ -56,6 +81,7 @@ class SubmissionControllerTest {
         JsonNode bJson = objectMapper.readTree(bResult.getResponse().getContentAsString());
         String aId = aJson.get("id").asText();
         String bId = bJson.get("id").asText();
+        awaitScored(bId);
 
         mockMvc.perform(get("/submissions/{id}/similarity", aId))
                 .andExpect(status().isOk())
@@ -63,4 +89,309 @@ class SubmissionControllerTest {
                 .andExpect(jsonPath("$.matches[0].submissionId").value(bId))
                 .andExpect(jsonPath("$.maxSimilarity").isNumber());
     }
+
+    @Test
+    void similarityShouldOnlyCompareLshCandidates() throws Exception {
+        String aId = createSubmission("u-1", """
+                {"assessmentId":"a-lsh","answers":[{"questionId":"q1","response":"Binary search halves the sorted interval each step"}]}
+                """);
+        createSubmission("u-2", """
+                {"assessmentId":"a-lsh","answers":[{"questionId":"q1","response":"Binary search halves the sorted interval at each step"}]}
+                """);
+        String unrelatedId = createSubmission("u-3", """
+                {"assessmentId":"a-lsh","answers":[{"questionId":"q1","response":"Photosynthesis converts light into chemical energy"}]}
+                """);
+        awaitScored(unrelatedId);
+
+        mockMvc.perform(get("/submissions/{id}/similarity", aId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.riskLevel").value("HIGH"))
+                .andExpect(jsonPath("$.comparedSubmissions").value(1))
+                .andExpect(jsonPath("$.totalSubmissions").value(2));
+    }
+
+    @Test
+    void similarityReportShouldStreamClusters() throws Exception {
+        String payload = """
+                {"assessmentId":"a-report","answers":[{"questionId":"q1","response":"Merge sort splits the array and merges sorted halves"}]}
+                """;
+        String first = createSubmission("u-1", payload);
+        String second = createSubmission("u-2", payload);
+        createSubmission("u-3", """
+                {"assessmentId":"a-report","answers":[{"questionId":"q1","response":"Mitochondria produce most cellular energy"}]}
+                """);
+
+        MvcResult started = mockMvc.perform(post("/submissions/assessments/{assessmentId}/similarity-report", "a-report")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"threshold\":0.8}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.strip().split("\n");
+        JsonNode pair = objectMapper.readTree(lines[0]);
+        JsonNode cluster = objectMapper.readTree(lines[1]);
+        JsonNode summary = objectMapper.readTree(lines[lines.length - 1]);
+        assertEquals(3, lines.length);
+        assertEquals("pair", pair.get("type").asText());
+        assertEquals(Set.of(first, second), Set.of(pair.get("left").asText(), pair.get("right").asText()));
+        assertEquals(2, cluster.get("size").asInt());
+        assertEquals("COMPLETED", summary.get("status").asText());
+        assertEquals(3, summary.get("submissions").asInt());
+
+        mockMvc.perform(delete("/submissions/similarity-reports/{reportId}", summary.get("reportId").asText()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void listingsShouldPageThroughSecondaryIndexes() throws Exception {
+        String payload = """
+                {"assessmentId":"a-list","answers":[{"questionId":"q1","response":"Queues are first in first out"}]}
+                """;
+        String first = createSubmission("u-list", payload);
+        String second = createSubmission("u-list", payload);
+        String third = createSubmission("u-other", payload);
+
+        MvcResult page = mockMvc.perform(get("/submissions/assessments/{assessmentId}", "a-list").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[0].id").value(first))
+                .andExpect(jsonPath("$.items[1].id").value(second))
+                .andReturn();
+        String cursor = objectMapper.readTree(page.getResponse().getContentAsString()).get("nextCursor").asText();
+
+        mockMvc.perform(get("/submissions/assessments/{assessmentId}", "a-list").param("limit", "2").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].id").value(third))
+                .andExpect(jsonPath("$.nextCursor").isEmpty());
+
+        mockMvc.perform(get("/submissions/users/{userId}", "u-list"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2));
+
+        mockMvc.perform(get("/submissions/users/{userId}", "u-list").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void bulkIngestShouldReportPerLineResults() throws Exception {
+        String payload = """
+                {"assessmentId":"a-bulk","answers":[{"questionId":"q1","response":"Stacks are last in first out"}]}
+                {"assessmentId":"a-bulk","userId":"u-migrated","answers":[{"questionId":"q1","response":"Heaps keep the minimum on top"}]}
+                not json
+
+                {"answers":[]}
+                """;
+
+        String body = mockMvc.perform(post("/submissions/bulk")
+                        .header("X-User-Id", "u-importer")
+                        .header("X-User-Roles", "INSTRUCTOR")
+                        .contentType("application/x-ndjson")
+                        .content(payload))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.strip().split("\n");
+        assertEquals(5, lines.length);
+        assertEquals("CREATED", objectMapper.readTree(lines[0]).get("status").asText());
+        assertEquals("CREATED", objectMapper.readTree(lines[1]).get("status").asText());
+        assertEquals("INVALID_JSON", objectMapper.readTree(lines[2]).get("error").asText());
+        assertEquals(5, objectMapper.readTree(lines[3]).get("line").asInt());
+        assertEquals("MISSING_ASSESSMENT_ID", objectMapper.readTree(lines[3]).get("error").asText());
+        JsonNode summary = objectMapper.readTree(lines[4]);
+        assertEquals(2, summary.get("created").asInt());
+        assertEquals(2, summary.get("rejected").asInt());
+
+        mockMvc.perform(get("/submissions/users/{userId}", "u-migrated"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].assessmentId").value("a-bulk"));
+    }
+
+    @Test
+    void bulkIngestShouldNotLetStudentsSubmitAsOtherUsers() throws Exception {
+        String payload = """
+                {"assessmentId":"a-bulk-own","userId":"u-victim","answers":[{"questionId":"q1","response":"Queues are first in first out"}]}
+                {"assessmentId":"a-bulk-own","userId":"u-student","answers":[{"questionId":"q1","response":"Queues are first in first out"}]}
+                """;
+
+        String body = mockMvc.perform(post("/submissions/bulk")
+                        .header("X-User-Id", "u-student")
+                        .header("X-User-Roles", "STUDENT")
+                        .contentType("application/x-ndjson")
+                        .content(payload))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.strip().split("\n");
+        assertEquals("USER_OVERRIDE_FORBIDDEN", objectMapper.readTree(lines[0]).get("error").asText());
+        assertEquals("CREATED", objectMapper.readTree(lines[1]).get("status").asText());
+        mockMvc.perform(get("/submissions/users/{userId}", "u-victim"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").isEmpty());
+    }
+
+    @Test
+    void codeModeShouldMatchRenamedCopies() throws Exception {
+        String original = objectMapper.writeValueAsString(Map.of(
+                "assessmentId", "a-code",
+                "similarityMode", "code",
+                "answers", List.of(Map.of("questionId", "q1", "code", """
+                        int total = 0;
+                        for (int i = 0; i < items.length; i++) {
+                            if (items[i] % 2 == 0) { total += items[i]; }
+                        }
+                        return total;
+                        """))));
+        String renamed = objectMapper.writeValueAsString(Map.of(
+                "assessmentId", "a-code",
+                "similarityMode", "CODE",
+                "answers", List.of(Map.of("questionId", "q1", "code", """
+                        // sum the even values
+                        int acc = 0;
+                        for (int k = 0; k < values.length; k++)
+                        {
+                            if (values[k] % 2 == 0) { acc += values[k]; }
+                        }
+                        return acc;
+                        """))));
+        String unrelated = objectMapper.writeValueAsString(Map.of(
+                "assessmentId", "a-code",
+                "similarityMode", "CODE",
+                "answers", List.of(Map.of("questionId", "q1", "code", """
+                        while (queue.size() > 0) { node = queue.poll(); visit(node); }
+                        """))));
+
+        String originalId = createSubmission("u-1", original);
+        String renamedId = createSubmission("u-2", renamed);
+        awaitScored(createSubmission("u-3", unrelated));
+
+        mockMvc.perform(get("/submissions/{id}/similarity", originalId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.mode").value("CODE"))
+                .andExpect(jsonPath("$.matches[0].submissionId").value(renamedId))
+                .andExpect(jsonPath("$.maxSimilarity").value(1.0))
+                .andExpect(jsonPath("$.comparedSubmissions").value(1));
+
+        mockMvc.perform(post("/submissions")
+                        .header("X-User-Id", "u-4")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"assessmentId\":\"a-code\",\"similarityMode\":\"AST\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void similarityShouldNotMixTextAndCodeSubmissions() throws Exception {
+        List<Map<String, Object>> answers = List.of(Map.of("questionId", "q1",
+                "code", "for (int i = 0; i < items.length; i++) { total += items[i]; } return total;"));
+        String codeId = createSubmission("u-1", objectMapper.writeValueAsString(Map.of(
+                "assessmentId", "a-mixed", "similarityMode", "CODE", "answers", answers)));
+        awaitScored(codeId);
+        String textId = createSubmission("u-2", objectMapper.writeValueAsString(Map.of(
+                "assessmentId", "a-mixed", "answers", answers)));
+        awaitScored(textId);
+
+        mockMvc.perform(get("/submissions/{id}/similarity", codeId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.mode").value("CODE"))
+                .andExpect(jsonPath("$.matches.length()").value(0));
+        mockMvc.perform(get("/submissions/{id}/similarity", textId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.matches.length()").value(0));
+    }
+
+    @Test
+    void similarityShouldKeepBoundedTopMatchesUpdatedByNewArrivals() throws Exception {
+        String payload = """
+                {"assessmentId":"a-topk","answers":[{"questionId":"q1","response":"Hash tables trade memory for constant time lookups"}]}
+                """;
+        String first = createSubmission("u-0", payload);
+        String last = first;
+        for (int i = 1; i <= 6; i++) {
+            last = createSubmission("u-" + i, payload);
+        }
+        awaitScored(last);
+
+        mockMvc.perform(get("/submissions/{id}/similarity", first))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pending").value(false))
+                .andExpect(jsonPath("$.matches.length()").value(5))
+                .andExpect(jsonPath("$.comparedSubmissions").value(6))
+                .andExpect(jsonPath("$.riskLevel").value("HIGH"));
+        mockMvc.perform(get("/submissions/{id}/similarity", last))
+                .andExpect(jsonPath("$.matches.length()").value(5))
+                .andExpect(jsonPath("$.comparedSubmissions").value(6));
+    }
+
+    @Test
+    void attachmentsShouldStreamDeduplicateAndDownload() throws Exception {
+        String id = createSubmission("u-files", """
+                {"assessmentId":"a-files","answers":[]}
+                """);
+        byte[] content = "print('hello world')\n".repeat(5_000).getBytes(StandardCharsets.UTF_8);
+
+        MvcResult uploaded = mockMvc.perform(post("/submissions/{id}/attachments", id)
+                        .param("filename", "solution.py")
+                        .header("X-User-Id", "u-files")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(content))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.attachment.sizeBytes").value(content.length))
+                .andExpect(jsonPath("$.deduplicated").value(false))
+                .andReturn();
+        String attachmentId = objectMapper.readTree(uploaded.getResponse().getContentAsString())
+                .get("attachment").get("id").asText();
+
+        mockMvc.perform(multipart("/submissions/{id}/attachments", id)
+                        .file(new MockMultipartFile("file", "copy.py", "text/x-python", content))
+                        .header("X-User-Id", "u-files"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.attachment.filename").value("copy.py"))
+                .andExpect(jsonPath("$.deduplicated").value(true));
+
+        byte[] downloaded = mockMvc.perform(get("/submissions/{id}/attachments/{attachmentId}", id, attachmentId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        assertArrayEquals(content, downloaded);
+
+        mockMvc.perform(get("/submissions/{id}", id))
+                .andExpect(jsonPath("$.attachments.length()").value(2));
+        mockMvc.perform(post("/submissions/{id}/attachments", id)
+                        .header("X-User-Id", "u-intruder")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(content))
+                .andExpect(status().isForbidden());
+    }
+
+    private static Path createStorageDir() {
+        try {
+            return Files.createTempDirectory("submission-test");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void awaitScored(String id) throws Exception {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            String body = mockMvc.perform(get("/submissions/{id}/similarity", id))
+                    .andReturn().getResponse().getContentAsString();
+            if (!objectMapper.readTree(body).get("pending").asBoolean()) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("similarity scoring did not finish for " + id);
+    }
+
+    private String createSubmission(String userId, String payload) throws Exception {
+        MvcResult result = mockMvc.perform(post("/submissions")
+                        .header("X-User-Id", userId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(payload))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asText();
+    }
 }
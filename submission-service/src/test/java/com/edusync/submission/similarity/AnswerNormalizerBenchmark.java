@@ -0,0 +1,95 @@
+package com.edusync.submission.similarity;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Time per normalization of one answer of repeated mixed-case prose at 1 KB, 50 KB and 1 MB:
+ * the former text extraction plus {@code toLowerCase} and two {@code replaceAll} regexes
+ * against {@link AnswerNormalizer#normalize}. Both must produce the same string. Not part of
+ * the test run; after {@code mvn -pl submission-service test-compile} run it with
+ * {@code java -cp submission-service/target/classes:submission-service/target/test-classes com.edusync.submission.similarity.AnswerNormalizerBenchmark}.
+ */
+public final class AnswerNormalizerBenchmark {
+
+    private static final String PROSE = "Dynamic-Programming stores OVERLAPPING sub_problems; "
+            + "Memoization (top-down) vs. tabulation (bottom-up)!\n";
+    private static final int[] SIZES = {1 << 10, 50 << 10, 1 << 20};
+    /** Roughly the same number of bytes is normalized at every size. */
+    private static final long BYTES_PER_ROUND = 16L << 20;
+
+    private static long checksum;
+
+    private AnswerNormalizerBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        for (int size : SIZES) {
+            List<Map<String, Object>> answers = List.of(Map.of("questionId", "q1", "response", prose(size)));
+            if (!legacyNormalize(answers).equals(AnswerNormalizer.normalize(answers))) {
+                throw new AssertionError("implementations disagree at " + size + " bytes");
+            }
+            int iterations = (int) Math.max(5, BYTES_PER_ROUND / size);
+            double regex = microsPerOp(answers, AnswerNormalizerBenchmark::legacyNormalize, iterations);
+            double singlePass = microsPerOp(answers, AnswerNormalizer::normalize, iterations);
+            System.out.printf("%8d bytes: regex %10.1f us/op, single-pass %10.1f us/op%n", size, regex, singlePass);
+        }
+        System.out.println("checksum " + checksum);
+    }
+
+    private static double microsPerOp(List<Map<String, Object>> answers, Function<List<Map<String, Object>>, String> normalizer,
+                                      int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            checksum += normalizer.apply(answers).length();
+        }
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            checksum += normalizer.apply(answers).length();
+        }
+        return (System.nanoTime() - startedAt) / 1e3 / iterations;
+    }
+
+    private static String prose(int size) {
+        StringBuilder sb = new StringBuilder(size + PROSE.length());
+        while (sb.length() < size) {
+            sb.append(PROSE);
+        }
+        sb.setLength(size);
+        return sb.toString();
+    }
+
+    /** The normalization submissions used before {@link AnswerNormalizer}. */
+    private static String legacyNormalize(List<Map<String, Object>> answers) {
+        StringBuilder sb = new StringBuilder();
+        for (Map<String, Object> answer : answers) {
+            legacyAppend(sb, answer);
+            sb.append(' ');
+        }
+        return sb.toString().toLowerCase(Locale.ROOT)
+                .replaceAll("[^a-z0-9\\s]", " ")
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+
+    private static void legacyAppend(StringBuilder sb, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Map<?, ?> map) {
+            for (Object nested : map.values()) {
+                legacyAppend(sb, nested);
+            }
+            return;
+        }
+        if (value instanceof Collection<?> collection) {
+            for (Object nested : collection) {
+                legacyAppend(sb, nested);
+            }
+            return;
+        }
+        sb.append(value).append(' ');
+    }
+}
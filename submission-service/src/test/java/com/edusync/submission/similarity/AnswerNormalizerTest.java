@@ -0,0 +1,119 @@
+package com.edusync.submission.similarity;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AnswerNormalizerTest {
+
+    private static final String ALPHABET = "abcXYZ019 \t\n\r\u000B\f.,;-_'\"!?éÉßİK̇Σσς漢😀  ";
+
+    @Test
+    void shouldMatchRegexNormalizationOnKnownInputs() {
+        List<Map<String, Object>> answers = List.of(
+                Map.of("questionId", "q1", "response", "  Dynamic-Programming, uses\tOVERLAPPING sub_problems!  "),
+                Map.of("score", 1.5e10, "flags", List.of(true, 42L, new BigDecimal("3.50"))),
+                Map.of("text", "İstanbul Kelvin K  émigré")
+        );
+
+        assertEquals(legacyNormalize(answers), AnswerNormalizer.normalize(answers));
+    }
+
+    @Test
+    void shouldMatchRegexNormalizationOnRandomInputs() {
+        Random random = new Random(7);
+        for (int round = 0; round < 2_000; round++) {
+            List<Map<String, Object>> answers = new ArrayList<>();
+            int count = random.nextInt(4);
+            for (int i = 0; i < count; i++) {
+                answers.add(randomAnswer(random, 0));
+            }
+            assertEquals(legacyNormalize(answers), AnswerNormalizer.normalize(answers), "round " + round);
+        }
+    }
+
+    @Test
+    void encodeShouldMatchEncodingTheNormalizedText() {
+        List<Map<String, Object>> answers = List.of(Map.of("response", "Graphs, TREES and graphs"));
+        TokenDictionary dictionary = new TokenDictionary();
+
+        assertArrayEquals(dictionary.encode(AnswerNormalizer.normalize(answers)), AnswerNormalizer.encode(answers, dictionary));
+    }
+
+    private Map<String, Object> randomAnswer(Random random, int depth) {
+        Map<String, Object> answer = new LinkedHashMap<>();
+        int fields = 1 + random.nextInt(3);
+        for (int i = 0; i < fields; i++) {
+            answer.put("f" + i, randomValue(random, depth));
+        }
+        return answer;
+    }
+
+    private Object randomValue(Random random, int depth) {
+        int kind = random.nextInt(depth > 2 ? 4 : 6);
+        return switch (kind) {
+            case 0 -> randomText(random);
+            case 1 -> random.nextBoolean() ? random.nextInt() : random.nextDouble() * 1e6;
+            case 2 -> null;
+            case 3 -> random.nextBoolean();
+            case 4 -> randomAnswer(random, depth + 1);
+            default -> Arrays.asList(randomValue(random, depth + 1), randomText(random));
+        };
+    }
+
+    private String randomText(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int length = random.nextInt(30);
+        while (sb.length() < length) {
+            int index = random.nextInt(ALPHABET.length());
+            char c = ALPHABET.charAt(index);
+            sb.append(c);
+            if (Character.isHighSurrogate(c)) {
+                sb.append(ALPHABET.charAt(index + 1));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String legacyNormalize(List<Map<String, Object>> answers) {
+        StringBuilder sb = new StringBuilder();
+        for (Map<String, Object> answer : answers) {
+            legacyAppend(sb, answer);
+            sb.append(' ');
+        }
+        return sb.toString().toLowerCase(Locale.ROOT)
+                .replaceAll("[^a-z0-9\\s]", " ")
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+
+    private static void legacyAppend(StringBuilder sb, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Map<?, ?> map) {
+            for (Object nested : map.values()) {
+                legacyAppend(sb, nested);
+            }
+            return;
+        }
+        if (value instanceof Collection<?> collection) {
+            for (Object nested : collection) {
+                legacyAppend(sb, nested);
+            }
+            return;
+        }
+        sb.append(value).append(' ');
+    }
+}
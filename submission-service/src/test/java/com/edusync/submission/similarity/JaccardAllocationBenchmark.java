@@ -0,0 +1,93 @@
+package com.edusync.submission.similarity;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.Set;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Bytes allocated per Jaccard comparison of two 200-token answers: the former split and
+ * {@code HashSet} version on normalized text against {@link TokenSets#jaccard} on the token ID
+ * arrays submissions keep. Counted with {@code ThreadMXBean.getThreadAllocatedBytes} after a
+ * warm-up, so escape-analysed allocations do not show. Not part of the test run; after
+ * {@code mvn -pl submission-service test-compile} run it with
+ * {@code java -cp submission-service/target/classes:submission-service/target/test-classes com.edusync.submission.similarity.JaccardAllocationBenchmark}.
+ */
+public final class JaccardAllocationBenchmark {
+
+    private static final int TOKENS = 200;
+    private static final int VOCABULARY = 400;
+    private static final int COMPARISONS = 200_000;
+
+    private JaccardAllocationBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        SplittableRandom random = new SplittableRandom(42);
+        String left = answer(random);
+        String right = answer(random);
+        TokenDictionary dictionary = new TokenDictionary();
+        int[] leftIds = AnswerNormalizer.encode(List.of(Map.of("response", left)), dictionary);
+        int[] rightIds = AnswerNormalizer.encode(List.of(Map.of("response", right)), dictionary);
+        String leftText = AnswerNormalizer.normalize(List.of(Map.of("response", left)));
+        String rightText = AnswerNormalizer.normalize(List.of(Map.of("response", right)));
+        if (legacyJaccard(leftText, rightText) != TokenSets.jaccard(leftIds, rightIds)) {
+            throw new AssertionError("implementations disagree");
+        }
+
+        report("split + HashSet", i -> legacyJaccard(leftText, rightText));
+        report("token ID merge walk", i -> TokenSets.jaccard(leftIds, rightIds));
+    }
+
+    private static void report(String name, IntToDoubleFunction comparison) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        double sink = 0.0;
+        for (int i = 0; i < COMPARISONS; i++) {
+            sink += comparison.applyAsDouble(i);
+        }
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < COMPARISONS; i++) {
+            sink += comparison.applyAsDouble(i);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        System.out.printf("%-20s %,10.1f bytes/comparison (checksum %.1f)%n", name,
+                allocated / (double) COMPARISONS, sink);
+    }
+
+    private static String answer(SplittableRandom random) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < TOKENS; i++) {
+            sb.append(i % 17 == 0 ? "Term" : "term").append(random.nextInt(VOCABULARY)).append(i % 9 == 0 ? ", " : " ");
+        }
+        return sb.toString();
+    }
+
+    /** The comparison submissions used before they carried token IDs. */
+    private static double legacyJaccard(String left, String right) {
+        if (left.isBlank() || right.isBlank()) {
+            return 0.0;
+        }
+        Set<String> leftSet = tokenSet(left);
+        Set<String> rightSet = tokenSet(right);
+        if (leftSet.isEmpty() || rightSet.isEmpty()) {
+            return 0.0;
+        }
+        Set<String> intersection = new HashSet<>(leftSet);
+        intersection.retainAll(rightSet);
+        Set<String> union = new HashSet<>(leftSet);
+        union.addAll(rightSet);
+        return union.isEmpty() ? 0.0 : (double) intersection.size() / union.size();
+    }
+
+    private static Set<String> tokenSet(String normalized) {
+        return Arrays.stream(normalized.split(" "))
+                .filter(token -> !token.isBlank())
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,30 @@
+package com.edusync.submission.similarity;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TokenSetsTest {
+
+    @Test
+    void encodeShouldProduceSortedDistinctIds() {
+        TokenDictionary dictionary = new TokenDictionary();
+        int[] tokens = dictionary.encode("dynamic programming dynamic subproblems");
+
+        assertEquals(3, tokens.length);
+        assertArrayEquals(new int[]{0, 1, 2}, tokens);
+        assertArrayEquals(new int[0], dictionary.encode(""));
+    }
+
+    @Test
+    void jaccardShouldMatchSetDefinition() {
+        TokenDictionary dictionary = new TokenDictionary();
+        int[] left = dictionary.encode("dynamic programming uses overlapping subproblems");
+        int[] right = dictionary.encode("dynamic programming solves overlapping subproblems efficiently");
+
+        assertEquals(4, TokenSets.intersectionSize(left, right));
+        assertEquals(4.0 / 7.0, TokenSets.jaccard(left, right), 1e-9);
+        assertEquals(0.0, TokenSets.jaccard(left, new int[0]));
+    }
+}
@@ -0,0 +1,311 @@
+package com.edusync.submission.store;
+
+import com.edusync.submission.similarity.SimilarityMode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubmissionLogTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoveryShouldReplaySnapshotAndLogTail() throws Exception {
+        SubmissionLog first = newLog(new SubmissionStore(), 4);
+        first.open(entry -> { });
+        List<CompletableFuture<Submission>> writes = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            writes.add(first.append(submission("s-" + i, i)));
+        }
+        CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).join();
+        first.close();
+
+        assertTrue(Files.list(directory).anyMatch(path -> path.getFileName().toString().startsWith("snapshot-")));
+
+        List<SubmissionLog.Entry> recovered = new ArrayList<>();
+        SubmissionLog second = newLog(new SubmissionStore(), 4);
+        second.open(recovered::add);
+        second.close();
+
+        assertEquals(10, recovered.size());
+        assertEquals(10, recovered.stream().map(SubmissionLog.Entry::id).distinct().count());
+        assertEquals(10, second.stats().recoveredRecords());
+    }
+
+    @Test
+    void recoveryShouldIgnoreTornTail() throws Exception {
+        SubmissionLog first = newLog(new SubmissionStore(), 1_000);
+        first.open(entry -> { });
+        first.append(submission("s-1", 1)).join();
+        first.append(submission("s-2", 2)).join();
+        first.close();
+
+        Path segment = Files.list(directory)
+                .filter(path -> path.getFileName().toString().startsWith("wal-"))
+                .findFirst()
+                .orElseThrow();
+        Files.write(segment, new byte[]{0, 0, 1, 0, 7}, StandardOpenOption.APPEND);
+
+        List<SubmissionLog.Entry> recovered = new ArrayList<>();
+        SubmissionLog second = newLog(new SubmissionStore(), 1_000);
+        second.open(recovered::add);
+        second.close();
+
+        assertEquals(List.of("s-1", "s-2"), recovered.stream().map(SubmissionLog.Entry::id).toList());
+    }
+
+    @Test
+    void failedBatchShouldNotHideLaterWritesOnReplay() throws Exception {
+        FailingChannel.Faults faults = new FailingChannel.Faults();
+        SubmissionLog first = new SubmissionLog(new SubmissionStore(), objectMapper, true, directory.toString(), 3, 1_000) {
+            @Override
+            FileChannel openChannel(Path path) throws IOException {
+                return new FailingChannel(super.openChannel(path), faults);
+            }
+        };
+        first.open(entry -> { });
+        first.append(submission("s-1", 1)).join();
+
+        // The frame reaches the file but the fsync fails: the caller is told, so it must not come back.
+        faults.failForce = true;
+        assertThrows(CompletionException.class, () -> first.append(submission("s-2", 2)).join());
+        // Half a frame reaches the file before the write fails.
+        faults.tearWrite = true;
+        assertThrows(CompletionException.class, () -> first.append(submission("s-3", 3)).join());
+        first.append(submission("s-4", 4)).join();
+        first.close();
+
+        List<SubmissionLog.Entry> recovered = new ArrayList<>();
+        SubmissionLog second = newLog(new SubmissionStore(), 1_000);
+        second.open(recovered::add);
+        second.close();
+
+        assertEquals(List.of("s-1", "s-4"), recovered.stream().map(SubmissionLog.Entry::id).toList());
+    }
+
+    @Test
+    void attachmentsShouldBeLoggedOnTheirOwnAndAllKept() throws Exception {
+        SubmissionStore store = new SubmissionStore();
+        SubmissionLog first = newLog(store, 1_000);
+        first.open(entry -> { });
+        Submission big = new Submission("s-1", 1, "a-1", "u-1", List.of(Map.of("response", "x".repeat(20_000))),
+                "SUBMITTED", "2030-01-01T00:00:00Z", new int[0], new int[0], SimilarityMode.TEXT, new int[0], List.of());
+        first.append(big).join();
+
+        List<CompletableFuture<Submission>> uploads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Attachment attachment = new Attachment("att-" + i, "f" + i + ".pdf", "application/pdf", 10, "abc", "2030-01-01T00:00:00Z");
+            uploads.add(CompletableFuture.supplyAsync(() -> first.appendAttachment("s-1", attachment).join()));
+        }
+        CompletableFuture.allOf(uploads.toArray(CompletableFuture[]::new)).join();
+        assertNull(first.appendAttachment("missing", new Attachment("x", "x", "x", 1, "x", "x")).join());
+        first.close();
+
+        assertEquals(8, store.get("s-1").attachments().size());
+        long logged = Files.list(directory)
+                .filter(path -> path.getFileName().toString().startsWith("wal-"))
+                .mapToLong(path -> path.toFile().length())
+                .sum();
+        // One copy of the answers, not one per upload.
+        assertTrue(logged < 2 * 20_000, "logged " + logged + " bytes");
+
+        List<SubmissionLog.Entry> recovered = new ArrayList<>();
+        SubmissionLog second = newLog(new SubmissionStore(), 1_000);
+        second.open(recovered::add);
+        second.close();
+        assertEquals(10, recovered.size());
+        assertNull(recovered.get(0).attachment());
+        assertTrue(recovered.subList(1, 9).stream().allMatch(entry -> entry.attachment() != null && entry.answers() == null));
+    }
+
+    @Test
+    void cursorPagingDuringConcurrentCreatesShouldSeeEverySubmission() throws Exception {
+        SubmissionStore store = new SubmissionStore();
+        SubmissionLog log = newLog(store, 1_000_000);
+        log.open(entry -> { });
+        int writers = 8;
+        int perWriter = 250;
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perWriter; i++) {
+                    // A caller-chosen sequence, as submissions used to be numbered before logging, is ignored.
+                    log.append(submission("s-" + writer + "-" + i, store.nextSequence())).join();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        // Page the way clients do: each request continues after the last sequence seen.
+        List<String> seen = new ArrayList<>();
+        Long cursor = null;
+        boolean writing = true;
+        while (true) {
+            List<Submission> items = store.pageByAssessment("a-1", cursor, 7).items();
+            for (Submission item : items) {
+                seen.add(item.id());
+                cursor = item.sequence();
+            }
+            if (items.isEmpty()) {
+                if (!writing) {
+                    break;
+                }
+                writing = threads.stream().anyMatch(Thread::isAlive);
+            }
+        }
+        log.close();
+
+        assertEquals(writers * perWriter, seen.size());
+        assertEquals(writers * perWriter, seen.stream().distinct().count());
+    }
+
+    private SubmissionLog newLog(SubmissionStore store, long snapshotEvery) {
+        return new SubmissionLog(store, objectMapper, true, directory.toString(), 3, snapshotEvery);
+    }
+
+    private Submission submission(String id, long sequence) {
+        return new Submission(id, sequence, "a-1", "u-1", List.of(Map.of("response", "answer " + id)),
+                "SUBMITTED", "2030-01-01T00:00:00Z", new int[0], new int[0], SimilarityMode.TEXT, new int[0], List.of());
+    }
+
+    /** Delegating channel that fails the next write part-way, or the next fsync, when asked. */
+    private static final class FailingChannel extends FileChannel {
+
+        static final class Faults {
+            volatile boolean failForce;
+            volatile boolean tearWrite;
+        }
+
+        private final FileChannel delegate;
+        private final Faults faults;
+
+        FailingChannel(FileChannel delegate, Faults faults) {
+            this.delegate = delegate;
+            this.faults = faults;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (faults.tearWrite) {
+                faults.tearWrite = false;
+                ByteBuffer half = src.duplicate();
+                half.limit(src.position() + src.remaining() / 2);
+                delegate.write(half);
+                throw new IOException("injected torn write");
+            }
+            return delegate.write(src);
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            if (faults.failForce) {
+                faults.failForce = false;
+                throw new IOException("injected fsync failure");
+            }
+            delegate.force(metaData);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}